@@ -0,0 +1,82 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import benchmarks.TransferTarget;
+
+/**
+ * Heap footprint and GC cost of keeping accounts as objects versus in a PrimitiveAccountStore.
+ * Not a JMH benchmark: it needs a fresh JVM per model, with a heap big enough for the object model, e.g.
+ * java -Xmx8g -cp target/benchmarks.jar AccountFootprint PrimitiveStoreLockFreeTarget 10000000 10
+ * java -Xmx8g -cp target/benchmarks.jar AccountFootprint LockFreeTarget 10000000 10
+ */
+public class AccountFootprint {
+
+  public static void main(String[] args) throws InterruptedException {
+    String strategy = args.length > 0 ? args[0] : "PrimitiveStoreLockFreeTarget";
+    int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    long before = usedHeapAfterGc();
+    TransferTarget target = TransferTarget.create(strategy);
+    target.setUp(accounts, 1_000_000);
+    long after = usedHeapAfterGc();
+    System.out.printf("%s: %d accounts, %.1f MB heap, %.1f bytes per account%n",
+        strategy, accounts, (after - before) / 1e6, (after - before) / (double) accounts);
+
+    long gcCountBefore = gcCount();
+    long gcTimeBefore = gcTimeMillis();
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      workers[t] = new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        //garbage from a real service, so young collections happen and have to deal with the accounts
+        Object[] requests = new Object[1024];
+        int i = 0;
+        while (System.nanoTime() < deadline) {
+          requests[i++ & 1023] = new long[8];
+          target.transfer(random.nextInt(accounts), random.nextInt(accounts), 1);
+        }
+      });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    System.out.printf("during %d s of transfers: %d collections, %d ms in GC%n",
+        seconds, gcCount() - gcCountBefore, gcTimeMillis() - gcTimeBefore);
+
+    long start = System.nanoTime();
+    System.gc();
+    System.out.printf("full GC with accounts live: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+    if (target.totalBalance() != (long) accounts * 1_000_000) {
+      throw new IllegalStateException("money not conserved");
+    }
+  }
+
+  private static long usedHeapAfterGc() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcTimeMillis() {
+    long time = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(0, gc.getCollectionTime());
+    }
+    return time;
+  }
+}
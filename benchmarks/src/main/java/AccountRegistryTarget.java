@@ -0,0 +1,16 @@
+import benchmarks.RegistryTarget;
+
+public class AccountRegistryTarget implements RegistryTarget {
+  private AccountRegistry registry;
+
+  public void setUp(long[] ids, int initialBalance) {
+    registry = new AccountRegistry(ids.length);
+    for (long id : ids) {
+      registry.getOrCreate(id, initialBalance);
+    }
+  }
+
+  public long balanceOf(long id) {
+    return registry.get(id).getBalance();
+  }
+}
@@ -0,0 +1,39 @@
+import benchmarks.AccountNames;
+import benchmarks.ReadWriteTarget;
+
+/**
+ * LockFreeTarget with AdaptiveBankAccount: accounts that get contended deposits (-p zipfExponent=0.99)
+ * turn hot and take deposits in striped cells.
+ */
+public class AdaptiveLockFreeTarget implements ReadWriteTarget {
+  private final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+  private AdaptiveBankAccount[] accounts;
+
+  public void setUp(int accountCount, int initialBalance) {
+    accounts = new AdaptiveBankAccount[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = new AdaptiveBankAccount(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long readBalance(int index) {
+    return accounts[index].getBalance();
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (AdaptiveBankAccount account : accounts) {
+      total += account.getBalance();
+    }
+    return total;
+  }
+}
@@ -0,0 +1,24 @@
+import benchmarks.AccountNames;
+import benchmarks.TransferTarget;
+
+/**
+ * Base for strategies working on AtomicBankAccount objects.
+ */
+public abstract class AtomicBankAccountTarget implements TransferTarget {
+  protected AtomicBankAccount[] accounts;
+
+  public void setUp(int accountCount, int initialBalance) {
+    accounts = new AtomicBankAccount[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = new AtomicBankAccount(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (AtomicBankAccount account : accounts) {
+      total += account.getBalance();
+    }
+    return total;
+  }
+}
@@ -0,0 +1,12 @@
+/**
+ * Blind atomic withdraw and deposit, as in MoneyTransferRunnableRaceConditionAtomic.
+ * Never rejects a transfer, balances may go negative.
+ */
+public class AtomicTarget extends AtomicBankAccountTarget {
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    accounts[fromIndex].withdraw(amount);
+    accounts[toIndex].deposit(amount);
+    return true;
+  }
+}
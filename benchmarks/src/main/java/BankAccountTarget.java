@@ -0,0 +1,33 @@
+import benchmarks.AccountNames;
+import benchmarks.TransferTarget;
+
+/**
+ * Base for strategies working on plain BankAccount objects.
+ */
+public abstract class BankAccountTarget implements TransferTarget {
+  protected BankAccount[] accounts;
+
+  public void setUp(int accountCount, int initialBalance) {
+    accounts = new BankAccount[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = new BankAccount(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (BankAccount account : accounts) {
+      total += account.getBalance();
+    }
+    return total;
+  }
+
+  protected static boolean transferChecked(BankAccount fromAccount, BankAccount toAccount, int amount) {
+    if (fromAccount.getBalance() < amount) {
+      return false;
+    }
+    fromAccount.withdraw(amount);
+    toAccount.deposit(amount);
+    return true;
+  }
+}
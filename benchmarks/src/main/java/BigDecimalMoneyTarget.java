@@ -0,0 +1,50 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import benchmarks.MoneyTarget;
+
+/**
+ * What the long minor units replaced: amounts as BigDecimal with two decimal places.
+ * Every add, multiply and rounding allocates a new BigDecimal.
+ */
+public class BigDecimalMoneyTarget implements MoneyTarget {
+  private static final int SCALE = 2;
+  private static final BigDecimal BASIS_POINTS = BigDecimal.valueOf(10_000);
+
+  private BigDecimal[] balances;
+  private BigDecimal[] amounts;
+  private BigDecimal fees = BigDecimal.ZERO.setScale(SCALE);
+
+  public void setUp(int accountCount, long initialBalance, long[] amounts) {
+    balances = new BigDecimal[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      balances[i] = BigDecimal.valueOf(initialBalance, SCALE);
+    }
+    this.amounts = new BigDecimal[amounts.length];
+    for (int i = 0; i < amounts.length; i++) {
+      this.amounts[i] = BigDecimal.valueOf(amounts[i], SCALE);
+    }
+  }
+
+  public boolean pay(int fromIndex, int toIndex, int amountIndex, int feeBasisPoints) {
+    BigDecimal amount = amounts[amountIndex];
+    BigDecimal fee = amount.multiply(BigDecimal.valueOf(feeBasisPoints))
+        .divide(BASIS_POINTS, SCALE, RoundingMode.HALF_EVEN);
+    BigDecimal debit = amount.add(fee);
+    if (balances[fromIndex].compareTo(debit) < 0) {
+      return false;
+    }
+    balances[fromIndex] = balances[fromIndex].subtract(debit);
+    balances[toIndex] = balances[toIndex].add(amount);
+    fees = fees.add(fee);
+    return true;
+  }
+
+  public long totalMinorUnits() {
+    BigDecimal total = fees;
+    for (BigDecimal balance : balances) {
+      total = total.add(balance);
+    }
+    return total.movePointRight(SCALE).longValueExact();
+  }
+}
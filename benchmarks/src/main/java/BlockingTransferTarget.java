@@ -0,0 +1,50 @@
+import java.util.concurrent.CompletableFuture;
+
+import benchmarks.AccountNames;
+import benchmarks.IngestionTarget;
+
+/**
+ * Transfers that first block for -Dio.millis (default 10, simulated I/O outside the locks) and then transfer with
+ * MoneyTransferRunnableOrderedReentrantLock, run on whatever executor the subclass provides.
+ */
+public abstract class BlockingTransferTarget implements IngestionTarget {
+  private final long ioMillis = Long.getLong("io.millis", 10);
+  private final AccountLocks locks = new AccountLocks();
+  private BankAccount[] accounts;
+
+  public void setUp(int accountCount, int initialBalance) {
+    accounts = new BankAccount[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = new BankAccount(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  protected abstract CompletableFuture<Void> submit(Runnable transfer) throws InterruptedException;
+
+  public void transferAll(int[] from, int[] to, int offset, int count, int amount) throws InterruptedException {
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+    for (int i = 0; i < count; i++) {
+      BankAccount fromAccount = accounts[from[offset + i]];
+      BankAccount toAccount = accounts[to[offset + i]];
+      futures[i] = submit(() -> {
+        try {
+          Thread.sleep(ioMillis);
+          new MoneyTransferRunnableOrderedReentrantLock(locks, fromAccount, toAccount, amount).run();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (InsufficientFundsException e) {
+          //rejected transfers count as handled
+        }
+      });
+    }
+    CompletableFuture.allOf(futures).join();
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (BankAccount account : accounts) {
+      total += account.getBalance();
+    }
+    return total;
+  }
+}
@@ -0,0 +1,22 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import benchmarks.RegistryTarget;
+
+/**
+ * What AccountRegistry replaces: every lookup boxes the id into a Long.
+ */
+public class ConcurrentHashMapRegistryTarget implements RegistryTarget {
+  private Map<Long, BankAccount> accounts;
+
+  public void setUp(long[] ids, int initialBalance) {
+    accounts = new ConcurrentHashMap<>(ids.length * 2);
+    for (long id : ids) {
+      accounts.computeIfAbsent(id, newId -> new BankAccount(newId, initialBalance, "Account " + newId));
+    }
+  }
+
+  public long balanceOf(long id) {
+    return accounts.get(id).getBalance();
+  }
+}
@@ -0,0 +1,17 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One lock for all transfers, as in MoneyTransferRunnableMutex, without the demo sleep and printing.
+ */
+public class GlobalLockTarget extends BankAccountTarget {
+  private final ReentrantLock lock = new ReentrantLock();
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    lock.lock();
+    try {
+      return transferChecked(accounts[fromIndex], accounts[toIndex], amount);
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/**
+ * Both account monitors taken in System.identityHashCode order with a tie lock,
+ * as in MoneyTransferRunnableWithIdentityHashCode, without the printing.
+ * Balance reads take the account monitor too, the only way to read a BankAccount without seeing stale values.
+ */
+import benchmarks.ReadWriteTarget;
+
+public class IdentityHashOrderedTarget extends BankAccountTarget implements ReadWriteTarget {
+  private final Object tieLock = new Object();
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    BankAccount fromAccount = accounts[fromIndex];
+    BankAccount toAccount = accounts[toIndex];
+    int fromHash = System.identityHashCode(fromAccount);
+    int toHash = System.identityHashCode(toAccount);
+
+    if (fromHash < toHash) {
+      synchronized (fromAccount) {
+        synchronized (toAccount) {
+          return transferChecked(fromAccount, toAccount, amount);
+        }
+      }
+    } else if (fromHash > toHash) {
+      synchronized (toAccount) {
+        synchronized (fromAccount) {
+          return transferChecked(fromAccount, toAccount, amount);
+        }
+      }
+    } else {
+      synchronized (tieLock) {
+        synchronized (fromAccount) {
+          synchronized (toAccount) {
+            return transferChecked(fromAccount, toAccount, amount);
+          }
+        }
+      }
+    }
+  }
+
+  public long readBalance(int index) {
+    BankAccount account = accounts[index];
+    synchronized (account) {
+      return account.getBalance();
+    }
+  }
+}
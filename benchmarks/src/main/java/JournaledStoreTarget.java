@@ -0,0 +1,52 @@
+import benchmarks.AccountNames;
+import benchmarks.TransferTarget;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Same transfers as PrimitiveStoreStripedLockTarget, but each one waits until its journal record is on disk.
+ * The difference between the two is the price of durability; it shrinks with more threads (-t),
+ * because more transfers share each force of the journal segment.
+ * The journal lives in a temporary directory (java.io.tmpdir) which is deleted after the trial.
+ */
+public class JournaledStoreTarget implements TransferTarget {
+  private Path directory;
+  private DurableTransferEngine engine;
+
+  public void setUp(int accountCount, int initialBalance) {
+    try {
+      directory = Files.createTempDirectory("transfer-journal");
+      engine = DurableTransferEngine.open(directory, accountCount);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    engine.createAccounts(accountCount, initialBalance, AccountNames::of);
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(fromIndex, toIndex, amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long totalBalance() {
+    return engine.getStore().totalBalance();
+  }
+
+  @Override
+  public void tearDown() {
+    try (Stream<Path> files = Files.walk(directory)) {
+      engine.close();
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,18 @@
+import benchmarks.ReadWriteTarget;
+
+public class LockFreeTarget extends AtomicBankAccountTarget implements ReadWriteTarget {
+  private final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long readBalance(int index) {
+    return accounts[index].getBalance();
+  }
+}
@@ -0,0 +1,36 @@
+import benchmarks.MoneyTarget;
+
+public class LongMoneyTarget implements MoneyTarget {
+  private long[] balances;
+  private long[] amounts;
+  private long fees;
+
+  public void setUp(int accountCount, long initialBalance, long[] amounts) {
+    balances = new long[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      balances[i] = initialBalance;
+    }
+    this.amounts = amounts.clone();
+  }
+
+  public boolean pay(int fromIndex, int toIndex, int amountIndex, int feeBasisPoints) {
+    long amount = amounts[amountIndex];
+    long fee = Money.fraction(amount, feeBasisPoints);
+    long debit = Money.add(amount, fee);
+    if (balances[fromIndex] < debit) {
+      return false;
+    }
+    balances[fromIndex] = Money.subtract(balances[fromIndex], debit);
+    balances[toIndex] = Money.add(balances[toIndex], amount);
+    fees = Money.add(fees, fee);
+    return true;
+  }
+
+  public long totalMinorUnits() {
+    long total = fees;
+    for (long balance : balances) {
+      total = Money.add(total, balance);
+    }
+    return total;
+  }
+}
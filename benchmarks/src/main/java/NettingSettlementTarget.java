@@ -0,0 +1,7 @@
+public class NettingSettlementTarget extends StoreSettlementTarget {
+  private final SettlementEngine engine = new SettlementEngine();
+
+  public boolean settle(int[] fromIds, int[] toIds, long[] amounts) {
+    return engine.settle(store, fromIds, toIds, amounts).isApplied();
+  }
+}
@@ -0,0 +1,37 @@
+import java.util.concurrent.locks.Lock;
+
+/**
+ * One explicit lock per account, both taken in index order, as MoneyTransferRunnableOrderedReentrantLock does
+ * with AccountLocks (without its map lookup and metrics, which would cost more than the locks being compared).
+ * Subclasses choose the lock.
+ */
+public abstract class OrderedAccountLockTarget extends BankAccountTarget {
+  private Lock[] locks;
+
+  protected abstract Lock newLock();
+
+  @Override
+  public void setUp(int accountCount, int initialBalance) {
+    super.setUp(accountCount, initialBalance);
+    locks = new Lock[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      locks[i] = newLock();
+    }
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    Lock first = locks[Math.min(fromIndex, toIndex)];
+    Lock second = locks[Math.max(fromIndex, toIndex)];
+    first.lock();
+    try {
+      second.lock();
+      try {
+        return transferChecked(accounts[fromIndex], accounts[toIndex], amount);
+      } finally {
+        second.unlock();
+      }
+    } finally {
+      first.unlock();
+    }
+  }
+}
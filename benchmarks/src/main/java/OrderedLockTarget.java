@@ -0,0 +1,49 @@
+import benchmarks.MultiTransferTarget;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hand-written N-account locking for comparison with StmTarget: one ReentrantLock per account,
+ * all of them taken in index order, as MoneyTransferRunnableOrderedReentrantLock does for two.
+ */
+public class OrderedLockTarget extends BankAccountTarget implements MultiTransferTarget {
+  private ReentrantLock[] locks;
+
+  @Override
+  public void setUp(int accountCount, int initialBalance) {
+    super.setUp(accountCount, initialBalance);
+    locks = new ReentrantLock[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    return split(fromIndex, new int[] {toIndex}, amount);
+  }
+
+  public boolean split(int fromIndex, int[] toIndexes, int amountEach) {
+    int[] ordered = Arrays.copyOf(toIndexes, toIndexes.length + 1);
+    ordered[toIndexes.length] = fromIndex;
+    Arrays.sort(ordered);
+    int locked = 0;
+    try {
+      for (; locked < ordered.length; locked++) {
+        locks[ordered[locked]].lock();
+      }
+      BankAccount fromAccount = accounts[fromIndex];
+      if (fromAccount.getBalance() < amountEach * toIndexes.length) {
+        return false;
+      }
+      fromAccount.withdraw(amountEach * toIndexes.length);
+      for (int toIndex : toIndexes) {
+        accounts[toIndex].deposit(amountEach);
+      }
+      return true;
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        locks[ordered[i]].unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+import benchmarks.AccountNames;
+import benchmarks.LayoutTarget;
+
+/**
+ * LockFreeTarget on PaddedAtomicBankAccounts, allocated back to back like the AtomicBankAccounts there.
+ */
+public class PaddedLockFreeTarget implements LayoutTarget {
+  private final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+  private PaddedAtomicBankAccount[] accounts;
+
+  public void setUp(int accountCount, int initialBalance, String layout) {
+    accounts = new PaddedAtomicBankAccount[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = new PaddedAtomicBankAccount(initialBalance, AccountNames.of(i), BalanceLayout.valueOf(layout));
+    }
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (PaddedAtomicBankAccount account : accounts) {
+      total += account.getBalance();
+    }
+    return total;
+  }
+}
@@ -0,0 +1,20 @@
+import benchmarks.AccountNames;
+import benchmarks.LayoutTarget;
+
+/**
+ * PrimitiveStoreLockFreeTarget with the balances of the store laid out as asked.
+ */
+public class PaddedPrimitiveStoreLockFreeTarget extends PrimitiveStoreLockFreeTarget implements LayoutTarget {
+
+  public void setUp(int accountCount, int initialBalance, String layout) {
+    store = new PrimitiveAccountStore(accountCount, BalanceLayout.valueOf(layout));
+    for (int i = 0; i < accountCount; i++) {
+      store.create(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  @Override
+  public void setUp(int accountCount, int initialBalance) {
+    LayoutTarget.super.setUp(accountCount, initialBalance);
+  }
+}
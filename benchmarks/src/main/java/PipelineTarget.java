@@ -0,0 +1,33 @@
+import benchmarks.AccountNames;
+import benchmarks.IngestionTarget;
+
+public class PipelineTarget implements IngestionTarget {
+  private final int partitions = Integer.getInteger("pipeline.partitions", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  private PrimitiveAccountStore store;
+  private TransferPipeline pipeline;
+
+  public void setUp(int accountCount, int initialBalance) {
+    store = new PrimitiveAccountStore(accountCount);
+    for (int i = 0; i < accountCount; i++) {
+      store.create(initialBalance, AccountNames.of(i));
+    }
+    pipeline = new TransferPipeline(store, partitions);
+  }
+
+  public void transferAll(int[] from, int[] to, int offset, int count, int amount) {
+    for (int i = offset; i < offset + count; i++) {
+      pipeline.submit(from[i], to[i], amount, null);
+    }
+    pipeline.flush();
+  }
+
+  public long totalBalance() {
+    pipeline.flush();
+    return store.totalBalance();
+  }
+
+  @Override
+  public void tearDown() throws InterruptedException {
+    pipeline.close();
+  }
+}
@@ -0,0 +1,28 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same blocking transfers on a fixed pool of -Dplatform.threads (default 200) platform threads.
+ */
+public class PlatformPoolTarget extends BlockingTransferTarget {
+  private final int threads = Integer.getInteger("platform.threads", VirtualThreadTransferExecutor.DEFAULT_FALLBACK_THREADS);
+  private ExecutorService pool;
+
+  @Override
+  public void setUp(int accountCount, int initialBalance) {
+    super.setUp(accountCount, initialBalance);
+    pool = Executors.newFixedThreadPool(threads);
+  }
+
+  protected CompletableFuture<Void> submit(Runnable transfer) {
+    return CompletableFuture.runAsync(transfer, pool);
+  }
+
+  @Override
+  public void tearDown() throws InterruptedException {
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.MINUTES);
+  }
+}
@@ -0,0 +1,12 @@
+public class PrimitiveStoreLockFreeTarget extends PrimitiveStoreTarget {
+  private final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(store, fromIndex, toIndex, amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
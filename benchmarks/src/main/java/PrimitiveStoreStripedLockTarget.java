@@ -0,0 +1,12 @@
+public class PrimitiveStoreStripedLockTarget extends PrimitiveStoreTarget {
+  private final StripedLockTransferEngine engine = new StripedLockTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(store, fromIndex, toIndex, amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+import benchmarks.AccountNames;
+import benchmarks.TransferTarget;
+
+/**
+ * Base for strategies running against a PrimitiveAccountStore instead of account objects.
+ */
+public abstract class PrimitiveStoreTarget implements TransferTarget {
+  protected PrimitiveAccountStore store;
+
+  public void setUp(int accountCount, int initialBalance) {
+    store = new PrimitiveAccountStore(accountCount);
+    for (int i = 0; i < accountCount; i++) {
+      store.create(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public long totalBalance() {
+    return store.totalBalance();
+  }
+}
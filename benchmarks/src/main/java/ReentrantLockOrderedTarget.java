@@ -0,0 +1,10 @@
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ReentrantLockOrderedTarget extends OrderedAccountLockTarget {
+
+  @Override
+  protected Lock newLock() {
+    return new ReentrantLock();
+  }
+}
@@ -0,0 +1,18 @@
+/**
+ * Today's settlement: every transfer on its own through the striped locks, two balance writes each.
+ */
+public class SequentialSettlementTarget extends StoreSettlementTarget {
+  private final StripedLockTransferEngine engine = new StripedLockTransferEngine();
+
+  public boolean settle(int[] fromIds, int[] toIds, long[] amounts) {
+    boolean allApplied = true;
+    for (int i = 0; i < fromIds.length; i++) {
+      try {
+        engine.transfer(store, fromIds[i], toIds[i], amounts[i]);
+      } catch (InsufficientFundsException e) {
+        allApplied = false;
+      }
+    }
+    return allApplied;
+  }
+}
@@ -0,0 +1,36 @@
+import java.util.concurrent.CompletionException;
+
+/**
+ * Each transfer is sent to the owning shard threads and waited for, so this measures the full
+ * round trip a caller sees, including the reserve/commit exchange for cross-shard transfers.
+ */
+public class ShardedLedgerTarget extends BankAccountTarget {
+  private ShardedLedger ledger;
+
+  @Override
+  public void setUp(int accountCount, int initialBalance) {
+    super.setUp(accountCount, initialBalance);
+    ledger = new ShardedLedger(Runtime.getRuntime().availableProcessors());
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      ledger.transfer(accounts[fromIndex], accounts[toIndex], amount).join();
+      return true;
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof InsufficientFundsException) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public long totalBalance() {
+    long total = 0;
+    for (BankAccount account : accounts) {
+      total += ledger.getBalance(account).join();
+    }
+    return total;
+  }
+}
@@ -0,0 +1,26 @@
+import benchmarks.SnapshotTarget;
+
+public class SnapshotStripedLockTarget extends BankAccountTarget implements SnapshotTarget {
+  private final SnapshotTransferEngine engine = new SnapshotTransferEngine();
+
+  @Override
+  public void setUp(int accountCount, int initialBalance) {
+    super.setUp(accountCount, initialBalance);
+    for (BankAccount account : accounts) {
+      engine.register(account);
+    }
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long snapshotTotal() {
+    return engine.snapshot().getTotal();
+  }
+}
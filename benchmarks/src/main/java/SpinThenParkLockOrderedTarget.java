@@ -0,0 +1,9 @@
+import java.util.concurrent.locks.Lock;
+
+public class SpinThenParkLockOrderedTarget extends OrderedAccountLockTarget {
+
+  @Override
+  protected Lock newLock() {
+    return new SpinThenParkLock();
+  }
+}
@@ -0,0 +1,34 @@
+import benchmarks.AccountNames;
+import benchmarks.ReadWriteTarget;
+
+public class StampedLockTarget implements ReadWriteTarget {
+  private StampedBankAccount[] accounts;
+
+  public void setUp(int accountCount, int initialBalance) {
+    accounts = new StampedBankAccount[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = new StampedBankAccount(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      StampedBankAccount.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long readBalance(int index) {
+    return accounts[index].getBalance();
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (long balance : StampedBankAccount.snapshot(accounts)) {
+      total += balance;
+    }
+    return total;
+  }
+}
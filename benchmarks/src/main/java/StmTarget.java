@@ -0,0 +1,53 @@
+import benchmarks.AccountNames;
+import benchmarks.MultiTransferTarget;
+
+public class StmTarget implements MultiTransferTarget {
+  private final StmTransferEngine engine = new StmTransferEngine();
+  private TxRef[] accounts;
+
+  public void setUp(int accountCount, int initialBalance) {
+    accounts = new TxRef[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = new TxRef(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public boolean split(int fromIndex, int[] toIndexes, int amountEach) {
+    TxRef fromAccount = accounts[fromIndex];
+    try {
+      Stm.atomically(tx -> {
+        tx.withdraw(fromAccount, (long) amountEach * toIndexes.length);
+        for (int toIndex : toIndexes) {
+          tx.deposit(accounts[toIndex], amountEach);
+        }
+      });
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long totalBalance() {
+    return Stm.atomicallyGet(tx -> {
+      long total = 0;
+      for (TxRef account : accounts) {
+        total += tx.get(account);
+      }
+      return total;
+    });
+  }
+
+  @Override
+  public void tearDown() {
+    System.out.println("STM commits: " + Stm.getCommits() + ", retries: " + Stm.getRetries());
+  }
+}
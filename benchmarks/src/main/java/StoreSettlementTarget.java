@@ -0,0 +1,28 @@
+import benchmarks.AccountNames;
+import benchmarks.SettlementTarget;
+
+/**
+ * Base for settlement modes working on a PrimitiveAccountStore.
+ */
+public abstract class StoreSettlementTarget implements SettlementTarget {
+  protected PrimitiveAccountStore store;
+  private long initialBalance;
+
+  public void setUp(int accountCount, long initialBalance) {
+    this.initialBalance = initialBalance;
+    store = new PrimitiveAccountStore(accountCount);
+    for (int i = 0; i < accountCount; i++) {
+      store.create(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public void reset() {
+    for (int id = 0; id < store.size(); id++) {
+      store.setBalancePlain(id, initialBalance);
+    }
+  }
+
+  public long totalBalance() {
+    return store.totalBalance();
+  }
+}
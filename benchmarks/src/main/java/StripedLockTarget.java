@@ -0,0 +1,12 @@
+public class StripedLockTarget extends BankAccountTarget {
+  private final StripedLockTransferEngine engine = new StripedLockTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
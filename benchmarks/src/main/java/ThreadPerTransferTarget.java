@@ -0,0 +1,45 @@
+import benchmarks.AccountNames;
+import benchmarks.IngestionTarget;
+
+/**
+ * The model of MoneyTransferTest: a new thread per transfer, started and then joined.
+ * The transfer itself goes through StripedLockTransferEngine without printing, so only the threads are measured.
+ */
+public class ThreadPerTransferTarget implements IngestionTarget {
+  private final StripedLockTransferEngine engine = new StripedLockTransferEngine();
+  private BankAccount[] accounts;
+
+  public void setUp(int accountCount, int initialBalance) {
+    accounts = new BankAccount[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = new BankAccount(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public void transferAll(int[] from, int[] to, int offset, int count, int amount) throws InterruptedException {
+    Thread[] threads = new Thread[count];
+    for (int i = 0; i < count; i++) {
+      BankAccount fromAccount = accounts[from[offset + i]];
+      BankAccount toAccount = accounts[to[offset + i]];
+      threads[i] = new Thread(() -> {
+        try {
+          engine.transfer(fromAccount, toAccount, amount);
+        } catch (InsufficientFundsException e) {
+          //rejected transfers count as handled
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (BankAccount account : accounts) {
+      total += account.getBalance();
+    }
+    return total;
+  }
+}
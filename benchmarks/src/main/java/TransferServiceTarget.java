@@ -0,0 +1,36 @@
+import benchmarks.AccountNames;
+import benchmarks.TransferTarget;
+
+/**
+ * Transfers through TransferService on the strategy named by -Dtransfer.strategy, to compare strategies
+ * the way a deployment would switch them, e.g. under LoadGenerator.
+ */
+public class TransferServiceTarget implements TransferTarget {
+  private TransferService service;
+  private Account[] accounts;
+
+  public void setUp(int accountCount, int initialBalance) {
+    service = TransferService.fromSystemProperties();
+    accounts = new Account[accountCount];
+    for (int i = 0; i < accountCount; i++) {
+      accounts[i] = service.openAccount(initialBalance, AccountNames.of(i));
+    }
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, int amount) {
+    try {
+      service.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (Account account : accounts) {
+      total += service.getBalance(account);
+    }
+    return total;
+  }
+}
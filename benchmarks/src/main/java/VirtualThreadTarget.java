@@ -0,0 +1,27 @@
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A virtual thread per transfer through VirtualThreadTransferExecutor. Needs JDK 21+ at runtime,
+ * on an older JDK the executor falls back to its platform pool and setUp says so.
+ */
+public class VirtualThreadTarget extends BlockingTransferTarget {
+  private VirtualThreadTransferExecutor executor;
+
+  @Override
+  public void setUp(int accountCount, int initialBalance) {
+    super.setUp(accountCount, initialBalance);
+    executor = new VirtualThreadTransferExecutor(1 << 20);
+    if (!executor.isVirtual()) {
+      System.out.println("no virtual threads in this JDK, VirtualThreadTransferExecutor uses its fallback pool");
+    }
+  }
+
+  protected CompletableFuture<Void> submit(Runnable transfer) throws InterruptedException {
+    return executor.submit(transfer);
+  }
+
+  @Override
+  public void tearDown() throws InterruptedException {
+    executor.close();
+  }
+}
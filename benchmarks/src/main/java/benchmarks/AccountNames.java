@@ -0,0 +1,22 @@
+package benchmarks;
+
+/**
+ * Names come from a small pool, so with millions of accounts the heap is dominated by balances,
+ * not by one name string per account, in every account model.
+ */
+public final class AccountNames {
+  private static final String[] NAMES = new String[1024];
+
+  static {
+    for (int i = 0; i < NAMES.length; i++) {
+      NAMES[i] = "Account " + i;
+    }
+  }
+
+  private AccountNames() {
+  }
+
+  public static String of(int index) {
+    return NAMES[index & (NAMES.length - 1)];
+  }
+}
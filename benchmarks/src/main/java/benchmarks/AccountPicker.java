@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks account indexes either uniformly or with Zipf skew, so a few hot accounts
+ * take most of the traffic. Exponent 0 means uniform; around 1 is a typical hot-key skew.
+ */
+public class AccountPicker {
+  private final int accountCount;
+  private final double[] cumulative;
+
+  public AccountPicker(int accountCount, double zipfExponent) {
+    this.accountCount = accountCount;
+    if (zipfExponent <= 0) {
+      cumulative = null;
+      return;
+    }
+    cumulative = new double[accountCount];
+    double sum = 0;
+    for (int rank = 0; rank < accountCount; rank++) {
+      sum += 1.0 / Math.pow(rank + 1, zipfExponent);
+      cumulative[rank] = sum;
+    }
+    for (int rank = 0; rank < accountCount; rank++) {
+      cumulative[rank] /= sum;
+    }
+  }
+
+  public int next(SplittableRandom random) {
+    if (cumulative == null) {
+      return random.nextInt(accountCount);
+    }
+    double u = random.nextDouble();
+    int low = 0;
+    int high = accountCount - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulative[mid] < u) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Fills from/to with distinct account pairs, so the measured loop doesn't pay for sampling.
+   */
+  public void fillPairs(SplittableRandom random, int[] from, int[] to) {
+    for (int i = 0; i < from.length; i++) {
+      int a = next(random);
+      int b = next(random);
+      while (b == a && accountCount > 1) {
+        b = next(random);
+      }
+      from[i] = a;
+      to[i] = b;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mix of balance reads and transfers: monitors (synchronized reads and ordered synchronized transfers),
+ * AtomicInteger (plain volatile reads, CAS transfers) and StampedLock optimistic reads.
+ * java -jar target/benchmarks.jar BalanceReadBenchmark -t 8 -p readPercent=95
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BalanceReadBenchmark {
+  private static final int OPS = 1 << 16;
+  private static final AtomicLong seeds = new AtomicLong(7);
+
+  @Param({"IdentityHashOrderedTarget", "LockFreeTarget", "StampedLockTarget", "AdaptiveLockFreeTarget"})
+  public String strategy;
+
+  @Param({"50", "90", "95", "99"})
+  public int readPercent;
+
+  @Param({"64"})
+  public int accounts;
+
+  @Param({"0.99"})
+  public double zipfExponent;
+
+  private ReadWriteTarget target;
+  private AccountPicker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    target = (ReadWriteTarget) TransferTarget.create(strategy);
+    target.setUp(accounts, 1_000_000);
+    picker = new AccountPicker(accounts, zipfExponent);
+  }
+
+  @State(Scope.Thread)
+  public static class Workload {
+    int[] from = new int[OPS];
+    int[] to = new int[OPS];
+    boolean[] read = new boolean[OPS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp(BalanceReadBenchmark benchmark) {
+      SplittableRandom random = new SplittableRandom(seeds.getAndIncrement());
+      benchmark.picker.fillPairs(random, from, to);
+      for (int i = 0; i < OPS; i++) {
+        read[i] = random.nextInt(100) < benchmark.readPercent;
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public long mixed(Workload workload) {
+    int i = workload.next++ & (OPS - 1);
+    if (workload.read[i]) {
+      return target.readBalance(workload.from[i]);
+    }
+    return target.transfer(workload.from[i], workload.to[i], 1) ? 1 : 0;
+  }
+}
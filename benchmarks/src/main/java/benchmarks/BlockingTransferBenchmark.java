@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A burst of BURST transfers that each block for a while before they transfer, on a virtual thread each
+ * against a fixed platform thread pool. Reported per transfer. The blocking time and pool size are system properties
+ * of the adapters, for example 200 ms of I/O as in MoneyTransferRunnableMutex:
+ * java -jar target/benchmarks.jar BlockingTransferBenchmark -jvmArgs "-Dio.millis=200 -Dplatform.threads=200"
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BlockingTransferBenchmark {
+  private static final int BURST = 10_000;
+  private static final int INITIAL_BALANCE = 1_000_000;
+
+  @Param({"VirtualThreadTarget", "PlatformPoolTarget"})
+  public String model;
+
+  @Param({"1000"})
+  public int accounts;
+
+  private IngestionTarget target;
+  private final int[] from = new int[BURST];
+  private final int[] to = new int[BURST];
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    new AccountPicker(accounts, 0).fillPairs(new SplittableRandom(9), from, to);
+    target = IngestionTarget.create(model);
+    target.setUp(accounts, INITIAL_BALANCE);
+  }
+
+  @TearDown(Level.Trial)
+  public void checkMoneyConserved() throws InterruptedException {
+    long expected = (long) accounts * INITIAL_BALANCE;
+    try {
+      if (target.totalBalance() != expected) {
+        throw new IllegalStateException(model + " lost money: " + target.totalBalance() + " instead of " + expected);
+      }
+    } finally {
+      target.tearDown();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(BURST)
+  public void burst() throws InterruptedException {
+    target.transferAll(from, to, 0, BURST, 1);
+  }
+}
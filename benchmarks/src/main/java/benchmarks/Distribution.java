@@ -0,0 +1,38 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Shapes of generated balances and amounts, all parameterized by their mean.
+ */
+public enum Distribution {
+  //always the mean
+  FIXED,
+  //evenly between 0 and twice the mean
+  UNIFORM,
+  //many small values, few large ones
+  EXPONENTIAL,
+  //80/20: a fifth of the accounts hold most of the money, a fifth of the payments move most of it
+  PARETO;
+
+  private static final double PARETO_ALPHA = 1.16;
+  //cap of the Pareto tail, so a sample can't overflow what it's added to
+  private static final long MAX_MEAN_MULTIPLE = 10_000;
+
+  public long sample(SplittableRandom random, long mean) {
+    switch (this) {
+      case FIXED:
+        return mean;
+      case UNIFORM:
+        return random.nextLong(2 * mean + 1);
+      case EXPONENTIAL:
+        return Math.round(-mean * Math.log(1 - random.nextDouble()));
+      case PARETO:
+        double scale = mean * (PARETO_ALPHA - 1) / PARETO_ALPHA;
+        double value = scale / Math.pow(1 - random.nextDouble(), 1 / PARETO_ALPHA);
+        return Math.round(Math.min(value, (double) mean * MAX_MEAN_MULTIPLE));
+      default:
+        throw new AssertionError(this);
+    }
+  }
+}
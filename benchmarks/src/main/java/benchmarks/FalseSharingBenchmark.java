@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Every thread transfers back and forth between its own two accounts, 2k and 2k + 1, so no two threads ever
+ * touch the same balance. Whatever slows them down as threads are added is false sharing between neighbouring
+ * balances, which the layouts differ in. Run it at the core counts of the deployment, for example:
+ * for t in 1 8 32 64; do java -jar target/benchmarks.jar FalseSharingBenchmark -t $t; done
+ * and weigh the result against the memory per account (AccountFootprint with PaddedLockFreeTarget).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FalseSharingBenchmark {
+  private static final int MAX_THREADS = 64;
+  private static final int INITIAL_BALANCE = 1_000_000;
+
+  @Param({"PaddedLockFreeTarget", "PaddedPrimitiveStoreLockFreeTarget"})
+  public String strategy;
+
+  @Param({"PACKED", "LINE", "PADDED"})
+  public String layout;
+
+  private LayoutTarget target;
+  private final AtomicInteger threads = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    target = LayoutTarget.create(strategy);
+    target.setUp(2 * MAX_THREADS, INITIAL_BALANCE, layout);
+  }
+
+  @TearDown(Level.Trial)
+  public void checkMoneyConserved() {
+    long expected = 2L * MAX_THREADS * INITIAL_BALANCE;
+    if (target.totalBalance() != expected) {
+      throw new IllegalStateException(strategy + " lost money: " + target.totalBalance() + " instead of " + expected);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Pair {
+    int first;
+    int second;
+
+    @Setup(Level.Trial)
+    public void setUp(FalseSharingBenchmark benchmark) {
+      int thread = benchmark.threads.getAndIncrement() % MAX_THREADS;
+      first = 2 * thread;
+      second = first + 1;
+    }
+
+    void swap() {
+      int previous = first;
+      first = second;
+      second = previous;
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public boolean disjointTransfers(Pair pair) {
+    pair.swap();
+    return target.transfer(pair.first, pair.second, 1);
+  }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A burst of BURST transfers handed over and awaited: a thread started and joined per transfer, like MoneyTransferTest,
+ * against publishing into TransferPipeline and flushing. Reported per transfer.
+ * Pipeline partitions default to half the cores, -Dpipeline.partitions=N (via -jvmArgs) to change:
+ * java -jar target/benchmarks.jar IngestionBenchmark -jvmArgs -Dpipeline.partitions=4
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IngestionBenchmark {
+  private static final int BURST = 1024;
+  private static final int BURSTS = 64;
+  private static final int INITIAL_BALANCE = 1_000_000;
+
+  @Param({"ThreadPerTransferTarget", "PipelineTarget"})
+  public String model;
+
+  @Param({"1024"})
+  public int accounts;
+
+  private IngestionTarget target;
+  private final int[] from = new int[BURST * BURSTS];
+  private final int[] to = new int[BURST * BURSTS];
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    new AccountPicker(accounts, 0).fillPairs(new SplittableRandom(5), from, to);
+    target = IngestionTarget.create(model);
+    target.setUp(accounts, INITIAL_BALANCE);
+  }
+
+  @TearDown(Level.Trial)
+  public void checkMoneyConserved() throws InterruptedException {
+    long expected = (long) accounts * INITIAL_BALANCE;
+    try {
+      if (target.totalBalance() != expected) {
+        throw new IllegalStateException(model + " lost money: " + target.totalBalance() + " instead of " + expected);
+      }
+    } finally {
+      target.tearDown();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(BURST)
+  public void burst() throws InterruptedException {
+    int offset = (next++ % BURSTS) * BURST;
+    target.transferAll(from, to, offset, BURST, 1);
+  }
+}
@@ -0,0 +1,28 @@
+package benchmarks;
+
+/**
+ * How transfer requests reach the accounts, for IngestionBenchmark; bridged like TransferTarget.
+ */
+public interface IngestionTarget {
+
+  void setUp(int accountCount, int initialBalance);
+
+  /**
+   * Hands over the transfers from[offset + i] -> to[offset + i] for i < count and returns once all of them
+   * are applied (or rejected for insufficient funds).
+   */
+  void transferAll(int[] from, int[] to, int offset, int count, int amount) throws InterruptedException;
+
+  long totalBalance();
+
+  default void tearDown() throws InterruptedException {
+  }
+
+  static IngestionTarget create(String className) {
+    try {
+      return Class.forName(className).asSubclass(IngestionTarget.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Unknown ingestion model " + className, e);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package benchmarks;
+
+/**
+ * A TransferTarget whose balances can be packed or spaced out, by BalanceLayout name (PACKED, LINE, PADDED).
+ * Plain setUp uses PADDED, so AccountFootprint can measure what the padding costs in memory.
+ */
+public interface LayoutTarget extends TransferTarget {
+
+  void setUp(int accountCount, int initialBalance, String layout);
+
+  @Override
+  default void setUp(int accountCount, int initialBalance) {
+    setUp(accountCount, initialBalance, "PADDED");
+  }
+
+  static LayoutTarget create(String className) {
+    try {
+      return Class.forName(className).asSubclass(LayoutTarget.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Unknown layout strategy " + className, e);
+    }
+  }
+}
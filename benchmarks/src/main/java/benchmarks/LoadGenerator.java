@@ -0,0 +1,220 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Drives a transfer strategy with a TransferTrace, generated or recorded, and reports throughput and latency.
+ *
+ * The load is open-loop: every transfer has a time it arrives at, whether or not the strategy has finished
+ * the ones before. Workers take transfers in arrival order, wait until their arrival time and run them, and latency
+ * is measured from the arrival time, not from when a worker got to it. A closed loop (JMH, the tests) only sends
+ * the next transfer when the last one returned, so a stall delays the transfers that would have arrived during it
+ * without measuring them (coordinated omission), and its percentiles look far better than what callers would see.
+ * The service time (from when the worker started the transfer) is reported next to it, the difference
+ * between the two is the time transfers queued.
+ *
+ * Any strategy with a TransferTarget adapter can be driven. Adapters open every account with the same balance,
+ * so the balances of the trace are set up by transfers through a reserve account first, which aren't measured.
+ *
+ * java -cp target/benchmarks.jar [-Dload.rate=200000 ...] benchmarks.LoadGenerator generate trace.bin
+ * java -cp target/benchmarks.jar benchmarks.LoadGenerator replay trace.bin StripedLockTarget [workers]
+ * java -cp target/benchmarks.jar [-Dload.rate=200000 ...] benchmarks.LoadGenerator run StripedLockTarget [workers]
+ * (see WorkloadGenerator.fromSystemProperties() for the stream parameters)
+ */
+public class LoadGenerator {
+  //time to start all workers before the first arrival
+  private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+  //waits longer than this park, shorter ones spin, parkNanos oversleeps by tens of microseconds
+  private static final long PARK_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("usage: LoadGenerator generate <trace file> | replay <trace file> <strategy> [workers]"
+          + " | run <strategy> [workers]");
+      System.exit(2);
+    }
+    int workers = Runtime.getRuntime().availableProcessors();
+    switch (args[0]) {
+      case "generate": {
+        WorkloadGenerator generator = WorkloadGenerator.fromSystemProperties();
+        TransferTrace trace = generator.generate();
+        Path file = Paths.get(args[1]);
+        trace.write(file);
+        System.out.printf("%s%nwritten to %s%n", generator, file);
+        break;
+      }
+      case "replay": {
+        TransferTrace trace = TransferTrace.read(Paths.get(args[1]));
+        if (args.length > 3) {
+          workers = Integer.parseInt(args[3]);
+        }
+        System.out.println(run(trace, TransferTarget.create(args[2]), workers).format(args[2]));
+        break;
+      }
+      case "run": {
+        WorkloadGenerator generator = WorkloadGenerator.fromSystemProperties();
+        System.out.println(generator);
+        if (args.length > 2) {
+          workers = Integer.parseInt(args[2]);
+        }
+        System.out.println(run(generator.generate(), TransferTarget.create(args[1]), workers).format(args[1]));
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("unknown command " + args[0]);
+    }
+  }
+
+  /**
+   * Outcome of one run.
+   */
+  public static class Report {
+    final int transfers;
+    final long rejected;
+    final int sequentialRejections;
+    final long elapsedNanos;
+    final long scheduledNanos;
+    final Histogram latency;
+    final Histogram serviceTime;
+
+    Report(int transfers, long rejected, int sequentialRejections, long elapsedNanos, long scheduledNanos,
+           Histogram latency, Histogram serviceTime) {
+      this.transfers = transfers;
+      this.rejected = rejected;
+      this.sequentialRejections = sequentialRejections;
+      this.elapsedNanos = elapsedNanos;
+      this.scheduledNanos = scheduledNanos;
+      this.latency = latency;
+      this.serviceTime = serviceTime;
+    }
+
+    public double getThroughputPerSecond() {
+      return transfers * 1e9 / elapsedNanos;
+    }
+
+    public Histogram getLatency() {
+      return latency;
+    }
+
+    public Histogram getServiceTime() {
+      return serviceTime;
+    }
+
+    public String format(String strategy) {
+      return String.format("%s: %d transfers in %.3f s (scheduled %.3f s), %.0f transfers/s, %d rejected (%d in arrival order)%n",
+          strategy, transfers, elapsedNanos / 1e9, scheduledNanos / 1e9, getThroughputPerSecond(), rejected, sequentialRejections)
+          + percentiles("latency from arrival", latency) + percentiles("service time", serviceTime);
+    }
+
+    private static String percentiles(String name, Histogram histogram) {
+      return String.format("  %-20s p50 %,10d ns  p90 %,10d ns  p99 %,10d ns  p99.9 %,10d ns  max %,12d ns%n", name,
+          histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+          histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+    }
+  }
+
+  /**
+   * Sets the target up with the accounts of the trace, replays the transfers open-loop on the given number of
+   * worker threads and checks that no money was lost or created.
+   */
+  public static Report run(TransferTrace trace, TransferTarget target, int workers) throws InterruptedException {
+    int reserve = trace.getAccountCount();
+    long openingBalance = fund(trace, target);
+    try {
+      AtomicInteger next = new AtomicInteger();
+      LongAdder rejected = new LongAdder();
+      Histogram[] latencies = new Histogram[workers];
+      Histogram[] serviceTimes = new Histogram[workers];
+      Thread[] threads = new Thread[workers];
+      long start = System.nanoTime() + START_DELAY_NANOS;
+      for (int w = 0; w < workers; w++) {
+        Histogram latency = latencies[w] = new Histogram(3);
+        Histogram serviceTime = serviceTimes[w] = new Histogram(3);
+        threads[w] = new Thread(() -> {
+          for (int i = next.getAndIncrement(); i < trace.size(); i = next.getAndIncrement()) {
+            long arrival = start + trace.getArrivalNanos(i);
+            waitUntil(arrival);
+            long begin = System.nanoTime();
+            if (!target.transfer(trace.getFromId(i), trace.getToId(i), trace.getAmount(i))) {
+              rejected.increment();
+            }
+            long end = System.nanoTime();
+            latency.recordValue(end - arrival);
+            serviceTime.recordValue(end - begin);
+          }
+        }, "load-" + w);
+        threads[w].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      long elapsed = System.nanoTime() - start;
+
+      long expected = (long) (reserve + 1) * openingBalance;
+      if (target.totalBalance() != expected) {
+        throw new IllegalStateException("money not conserved: " + target.totalBalance() + " instead of " + expected);
+      }
+      Histogram latency = new Histogram(3);
+      Histogram serviceTime = new Histogram(3);
+      for (int w = 0; w < workers; w++) {
+        latency.add(latencies[w]);
+        serviceTime.add(serviceTimes[w]);
+      }
+      return new Report(trace.size(), rejected.sum(), trace.countSequentialRejections(), elapsed,
+          trace.getArrivalNanos(Math.max(0, trace.size() - 1)), latency, serviceTime);
+    } finally {
+      target.tearDown();
+    }
+  }
+
+  /**
+   * Opens the accounts of the trace plus a reserve account (the last id), all with the same balance,
+   * then moves money between the reserve and the accounts until each has its balance from the trace:
+   * first the accounts above their trace balance pay into the reserve, then the reserve pays the others.
+   * @return the opening balance of every account
+   */
+  static long fund(TransferTrace trace, TransferTarget target) {
+    int accounts = trace.getAccountCount();
+    long total = trace.totalBalance();
+    //(accounts + 1) * openingBalance >= total, so the reserve can't run dry
+    long openingBalance = (total + accounts - 1) / accounts;
+    if (openingBalance > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("mean balance doesn't fit an int: " + openingBalance);
+    }
+    target.setUp(accounts + 1, (int) openingBalance);
+    for (int id = 0; id < accounts; id++) {
+      move(target, id, accounts, openingBalance - trace.getBalance(id));
+    }
+    for (int id = 0; id < accounts; id++) {
+      move(target, accounts, id, trace.getBalance(id) - openingBalance);
+    }
+    return openingBalance;
+  }
+
+  private static void move(TransferTarget target, int fromId, int toId, long amount) {
+    while (amount > 0) {
+      int part = (int) Math.min(amount, Integer.MAX_VALUE);
+      if (!target.transfer(fromId, toId, part)) {
+        throw new IllegalStateException("funding transfer " + fromId + " -> " + toId + " rejected");
+      }
+      amount -= part;
+    }
+  }
+
+  private static void waitUntil(long deadline) {
+    for (long now = System.nanoTime(); now < deadline; now = System.nanoTime()) {
+      if (deadline - now > PARK_THRESHOLD_NANOS) {
+        LockSupport.parkNanos(deadline - now - PARK_THRESHOLD_NANOS / 2);
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+  }
+}
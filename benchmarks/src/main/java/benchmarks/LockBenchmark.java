@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The same ordered two-account transfer on account monitors, ReentrantLocks and SpinThenParkLocks, with few accounts
+ * so threads mostly wait for each other. The critical section is a few field updates, what matters is how a waiting
+ * thread gets the lock back. Run it once per thread count, for example:
+ * for t in 2 4 8 16 32 64; do java -jar target/benchmarks.jar LockBenchmark -t $t; done
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LockBenchmark {
+  private static final int PAIRS = 1 << 16;
+  private static final int INITIAL_BALANCE = 1_000_000;
+  private static final AtomicLong seeds = new AtomicLong(42);
+
+  @Param({"IdentityHashOrderedTarget", "ReentrantLockOrderedTarget", "SpinThenParkLockOrderedTarget"})
+  public String lock;
+
+  @Param({"4", "64"})
+  public int accounts;
+
+  private TransferTarget target;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    target = TransferTarget.create(lock);
+    target.setUp(accounts, INITIAL_BALANCE);
+  }
+
+  @TearDown(Level.Trial)
+  public void checkMoneyConserved() {
+    long expected = (long) accounts * INITIAL_BALANCE;
+    if (target.totalBalance() != expected) {
+      throw new IllegalStateException(lock + " lost money: " + target.totalBalance() + " instead of " + expected);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Workload {
+    int[] from = new int[PAIRS];
+    int[] to = new int[PAIRS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp(LockBenchmark benchmark) {
+      new AccountPicker(benchmark.accounts, 0).fillPairs(new SplittableRandom(seeds.getAndIncrement()), from, to);
+    }
+
+    int nextPair() {
+      return next++ & (PAIRS - 1);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public boolean throughput(Workload workload) {
+    int i = workload.nextPair();
+    return target.transfer(workload.from[i], workload.to[i], 1);
+  }
+}
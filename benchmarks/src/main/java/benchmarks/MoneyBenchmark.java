@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Payments with a percentage fee on one thread: long minor units with overflow-checked arithmetic (Money)
+ * against BigDecimal. No locking involved, only the cost of the representation; run with -prof gc
+ * to see the allocation per payment (none for long):
+ * java -jar target/benchmarks.jar MoneyBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MoneyBenchmark {
+  private static final int OPS = 1 << 14;
+  private static final int ACCOUNTS = 1024;
+  //1,000,000.00 in cents
+  private static final long INITIAL_BALANCE = 100_000_000;
+
+  @Param({"LongMoneyTarget", "BigDecimalMoneyTarget"})
+  public String representation;
+
+  @Param({"25"})
+  public int feeBasisPoints;
+
+  private MoneyTarget target;
+  private final int[] from = new int[OPS];
+  private final int[] to = new int[OPS];
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(7);
+    long[] amounts = new long[OPS];
+    for (int i = 0; i < OPS; i++) {
+      from[i] = random.nextInt(ACCOUNTS);
+      to[i] = random.nextInt(ACCOUNTS);
+      //0.01 to 1,000.00, so fees have a fractional cent to round
+      amounts[i] = random.nextLong(1, 100_001);
+    }
+    target = MoneyTarget.create(representation);
+    target.setUp(ACCOUNTS, INITIAL_BALANCE, amounts);
+  }
+
+  @TearDown(Level.Trial)
+  public void checkMoneyConserved() {
+    long expected = ACCOUNTS * INITIAL_BALANCE;
+    if (target.totalMinorUnits() != expected) {
+      throw new IllegalStateException(representation + " lost money: " + target.totalMinorUnits() + " instead of " + expected);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public boolean pay() {
+    int i = next++ & (OPS - 1);
+    return target.pay(from[i], to[i], i, feeBasisPoints);
+  }
+}
@@ -0,0 +1,34 @@
+package benchmarks;
+
+/**
+ * Representation of money amounts for MoneyBenchmark, bridged like TransferTarget.
+ * Amounts cross the bridge as long minor units (cents) only in setUp, so the benchmark
+ * measures the arithmetic and not the conversion.
+ */
+public interface MoneyTarget {
+
+  /**
+   * @param amounts payment amounts in minor units, pay() refers to them by index
+   */
+  void setUp(int accountCount, long initialBalance, long[] amounts);
+
+  /**
+   * Moves amounts[amountIndex] from fromIndex to toIndex, plus a fee of feeBasisPoints of it (rounded half
+   * to even to the minor unit) from fromIndex to a separate fee account.
+   * @return false if fromIndex can't cover the amount and the fee
+   */
+  boolean pay(int fromIndex, int toIndex, int amountIndex, int feeBasisPoints);
+
+  /**
+   * Total of all accounts and the fee account, in minor units.
+   */
+  long totalMinorUnits();
+
+  static MoneyTarget create(String className) {
+    try {
+      return Class.forName(className).asSubclass(MoneyTarget.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Unknown money representation " + className, e);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Split payments touching accountsPerTransaction distinct accounts (the payer and the payees):
+ * STM against locks taken in a global order. Contention grows with fewer accounts and more skew.
+ * java -jar target/benchmarks.jar MultiAccountBenchmark -t 8 -p accounts=16
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MultiAccountBenchmark {
+  private static final int OPS = 1 << 14;
+  private static final int INITIAL_BALANCE = 1_000_000;
+  private static final AtomicLong seeds = new AtomicLong(11);
+
+  @Param({"StmTarget", "OrderedLockTarget"})
+  public String strategy;
+
+  @Param({"2", "5", "16"})
+  public int accountsPerTransaction;
+
+  @Param({"16", "1024"})
+  public int accounts;
+
+  @Param({"0", "0.99"})
+  public double zipfExponent;
+
+  private MultiTransferTarget target;
+  private AccountPicker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if (accountsPerTransaction > accounts) {
+      throw new IllegalArgumentException("accountsPerTransaction must not exceed accounts");
+    }
+    target = (MultiTransferTarget) TransferTarget.create(strategy);
+    target.setUp(accounts, INITIAL_BALANCE);
+    picker = new AccountPicker(accounts, zipfExponent);
+  }
+
+  @TearDown(Level.Trial)
+  public void checkMoneyConserved() {
+    long expected = (long) accounts * INITIAL_BALANCE;
+    try {
+      if (target.totalBalance() != expected) {
+        throw new IllegalStateException(strategy + " lost money: " + target.totalBalance() + " instead of " + expected);
+      }
+    } finally {
+      target.tearDown();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Workload {
+    int[] from = new int[OPS];
+    int[][] to = new int[OPS][];
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp(MultiAccountBenchmark benchmark) {
+      SplittableRandom random = new SplittableRandom(seeds.getAndIncrement());
+      boolean[] taken = new boolean[benchmark.accounts];
+      for (int i = 0; i < OPS; i++) {
+        int[] picked = new int[benchmark.accountsPerTransaction];
+        for (int j = 0; j < picked.length; j++) {
+          int account = benchmark.picker.next(random);
+          while (taken[account]) {
+            account = benchmark.picker.next(random);
+          }
+          taken[account] = true;
+          picked[j] = account;
+        }
+        for (int account : picked) {
+          taken[account] = false;
+        }
+        from[i] = picked[0];
+        to[i] = Arrays.copyOfRange(picked, 1, picked.length);
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public boolean split(Workload workload) {
+    int i = workload.next++ & (OPS - 1);
+    return target.split(workload.from[i], workload.to[i], 1);
+  }
+}
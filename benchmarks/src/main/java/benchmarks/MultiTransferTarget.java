@@ -0,0 +1,13 @@
+package benchmarks;
+
+/**
+ * Strategy that can also move money from one account to several others in one atomic step.
+ */
+public interface MultiTransferTarget extends TransferTarget {
+
+  /**
+   * Pays amountEach to every account in toIndexes, all or nothing. toIndexes are distinct and don't contain fromIndex.
+   * @return false if fromIndex can't cover the whole payment
+   */
+  boolean split(int fromIndex, int[] toIndexes, int amountEach);
+}
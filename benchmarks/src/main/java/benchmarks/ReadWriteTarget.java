@@ -0,0 +1,9 @@
+package benchmarks;
+
+/**
+ * Strategy that also serves balance reads, for read/write mix benchmarks.
+ */
+public interface ReadWriteTarget extends TransferTarget {
+
+  long readBalance(int index);
+}
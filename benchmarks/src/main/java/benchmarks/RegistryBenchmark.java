@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Balance lookups by random long id: AccountRegistry against ConcurrentHashMap<Long, BankAccount>.
+ * Ids above the Long cache (-128..127), so the map boxes on every lookup; -prof gc shows the allocation.
+ * java -jar target/benchmarks.jar RegistryBenchmark -t 4 -prof gc
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RegistryBenchmark {
+  private static final int OPS = 1 << 16;
+
+  @Param({"AccountRegistryTarget", "ConcurrentHashMapRegistryTarget"})
+  public String registry;
+
+  @Param({"1024", "1048576"})
+  public int accounts;
+
+  private RegistryTarget target;
+  private long[] ids;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(3);
+    ids = new long[accounts];
+    for (int i = 0; i < accounts; i++) {
+      //account numbers as a front end would send them, sparse in a large range
+      ids[i] = 1_000_000_000L + random.nextLong(1L << 40);
+    }
+    target = RegistryTarget.create(registry);
+    target.setUp(ids, 1000);
+  }
+
+  @State(Scope.Thread)
+  public static class Workload {
+    long[] lookups = new long[OPS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp(RegistryBenchmark benchmark) {
+      SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+      for (int i = 0; i < OPS; i++) {
+        lookups[i] = benchmark.ids[random.nextInt(benchmark.ids.length)];
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public long lookup(Workload workload) {
+    return target.balanceOf(workload.lookups[workload.next++ & (OPS - 1)]);
+  }
+}
@@ -0,0 +1,22 @@
+package benchmarks;
+
+/**
+ * Lookup of accounts by long id, for RegistryBenchmark; bridged like TransferTarget.
+ */
+public interface RegistryTarget {
+
+  void setUp(long[] ids, int initialBalance);
+
+  /**
+   * @return balance of the account with this id, which exists
+   */
+  long balanceOf(long id);
+
+  static RegistryTarget create(String className) {
+    try {
+      return Class.forName(className).asSubclass(RegistryTarget.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Unknown registry " + className, e);
+    }
+  }
+}
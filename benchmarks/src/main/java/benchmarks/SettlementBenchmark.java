@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall-clock time to settle a batch of random transfers: one by one under the striped locks against
+ * SettlementEngine netting it in parallel on the common pool. Every invocation starts from the same balances.
+ * The batch is 16 bytes per transfer, 100M transfers need a bigger heap:
+ * java -jar target/benchmarks.jar SettlementBenchmark -p transfers=100000000 -jvmArgs -Xmx4g
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SettlementBenchmark {
+  //large enough that no transfer is ever short, so both modes do the same work
+  private static final long INITIAL_BALANCE = 1L << 40;
+
+  @Param({"SequentialSettlementTarget", "NettingSettlementTarget"})
+  public String mode;
+
+  @Param({"1000000", "10000000", "100000000"})
+  public int transfers;
+
+  @Param({"100000"})
+  public int accounts;
+
+  private SettlementTarget target;
+  private int[] fromIds;
+  private int[] toIds;
+  private long[] amounts;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(13);
+    fromIds = new int[transfers];
+    toIds = new int[transfers];
+    amounts = new long[transfers];
+    for (int i = 0; i < transfers; i++) {
+      fromIds[i] = random.nextInt(accounts);
+      toIds[i] = random.nextInt(accounts);
+      amounts[i] = 1 + random.nextInt(10_000);
+    }
+    target = SettlementTarget.create(mode);
+    target.setUp(accounts, INITIAL_BALANCE);
+  }
+
+  @Setup(Level.Iteration)
+  public void resetBalances() {
+    target.reset();
+  }
+
+  @TearDown(Level.Iteration)
+  public void checkMoneyConserved() {
+    long expected = accounts * INITIAL_BALANCE;
+    if (target.totalBalance() != expected) {
+      throw new IllegalStateException(mode + " lost money: " + target.totalBalance() + " instead of " + expected);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public boolean settle() {
+    return target.settle(fromIds, toIds, amounts);
+  }
+}
@@ -0,0 +1,29 @@
+package benchmarks;
+
+/**
+ * Applying a whole batch of transfers, for SettlementBenchmark; bridged like TransferTarget.
+ */
+public interface SettlementTarget {
+
+  void setUp(int accountCount, long initialBalance);
+
+  /**
+   * Puts every balance back to the initial one.
+   */
+  void reset();
+
+  /**
+   * @return false if the batch (or any transfer of it) was rejected for insufficient funds
+   */
+  boolean settle(int[] fromIds, int[] toIds, long[] amounts);
+
+  long totalBalance();
+
+  static SettlementTarget create(String className) {
+    try {
+      return Class.forName(className).asSubclass(SettlementTarget.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Unknown settlement mode " + className, e);
+    }
+  }
+}
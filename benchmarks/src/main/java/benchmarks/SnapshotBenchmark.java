@@ -0,0 +1,109 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfer throughput while a background thread takes snapshots every snapshotIntervalMicros
+ * (-1: no snapshots, the cost of the epoch bookkeeping alone; 0: back to back).
+ * Compare with TransferBenchmark -p strategy=StripedLockTarget for the engine without snapshot support.
+ * Every snapshot total is checked, the trial fails if one of them is off.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SnapshotBenchmark {
+  private static final int PAIRS = 1 << 16;
+  private static final int INITIAL_BALANCE = 1_000_000;
+  private static final AtomicLong seeds = new AtomicLong(11);
+
+  @Param({"SnapshotStripedLockTarget"})
+  public String strategy;
+
+  @Param({"-1", "10000", "1000", "0"})
+  public long snapshotIntervalMicros;
+
+  @Param({"1024", "65536"})
+  public int accounts;
+
+  private SnapshotTarget target;
+  private AccountPicker picker;
+  private Thread snapshotter;
+  private volatile boolean running;
+  private final AtomicLong snapshots = new AtomicLong();
+  private final AtomicLong badSnapshots = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    target = (SnapshotTarget) TransferTarget.create(strategy);
+    target.setUp(accounts, INITIAL_BALANCE);
+    picker = new AccountPicker(accounts, 0);
+    if (snapshotIntervalMicros < 0) {
+      return;
+    }
+    long expected = (long) accounts * INITIAL_BALANCE;
+    running = true;
+    snapshotter = new Thread(() -> {
+      while (running) {
+        if (target.snapshotTotal() != expected) {
+          badSnapshots.incrementAndGet();
+        }
+        snapshots.incrementAndGet();
+        if (snapshotIntervalMicros > 0) {
+          LockSupport.parkNanos(snapshotIntervalMicros * 1000);
+        }
+      }
+    }, "snapshotter");
+    snapshotter.setDaemon(true);
+    snapshotter.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    running = false;
+    if (snapshotter != null) {
+      snapshotter.join();
+      System.out.println("snapshots taken: " + snapshots.get());
+    }
+    if (badSnapshots.get() != 0) {
+      throw new IllegalStateException(badSnapshots.get() + " inconsistent snapshots");
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Workload {
+    int[] from = new int[PAIRS];
+    int[] to = new int[PAIRS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp(SnapshotBenchmark benchmark) {
+      benchmark.picker.fillPairs(new SplittableRandom(seeds.getAndIncrement()), from, to);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public boolean transfer(Workload workload) {
+    int i = workload.next++ & (PAIRS - 1);
+    return target.transfer(workload.from[i], workload.to[i], 1);
+  }
+}
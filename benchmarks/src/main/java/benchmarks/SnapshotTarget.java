@@ -0,0 +1,9 @@
+package benchmarks;
+
+/**
+ * Strategy that can report the total of all balances at one instant while transfers keep running.
+ */
+public interface SnapshotTarget extends TransferTarget {
+
+  long snapshotTotal();
+}
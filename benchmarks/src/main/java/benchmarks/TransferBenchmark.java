@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfers between random account pairs through each strategy.
+ * Thread count is taken from the command line (-t), the rest are @Params, for example:
+ * java -jar target/benchmarks.jar TransferBenchmark -t 8 -p accounts=64 -p zipfExponent=0.99
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TransferBenchmark {
+  private static final int PAIRS = 1 << 16;
+  private static final int INITIAL_BALANCE = 1_000_000;
+  private static final AtomicLong seeds = new AtomicLong(42);
+
+  @Param({"GlobalLockTarget", "IdentityHashOrderedTarget", "AtomicTarget", "StripedLockTarget", "LockFreeTarget",
+      "ShardedLedgerTarget", "PrimitiveStoreStripedLockTarget", "PrimitiveStoreLockFreeTarget", "StampedLockTarget",
+      "JournaledStoreTarget", "AdaptiveLockFreeTarget", "StmTarget"})
+  public String strategy;
+
+  @Param({"16", "1024", "65536"})
+  public int accounts;
+
+  @Param({"0", "0.99"})
+  public double zipfExponent;
+
+  private TransferTarget target;
+  private AccountPicker picker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    target = TransferTarget.create(strategy);
+    target.setUp(accounts, INITIAL_BALANCE);
+    picker = new AccountPicker(accounts, zipfExponent);
+  }
+
+  @TearDown(Level.Trial)
+  public void checkMoneyConserved() {
+    long expected = (long) accounts * INITIAL_BALANCE;
+    try {
+      if (target.totalBalance() != expected) {
+        throw new IllegalStateException(strategy + " lost money: " + target.totalBalance() + " instead of " + expected);
+      }
+    } finally {
+      target.tearDown();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Workload {
+    int[] from = new int[PAIRS];
+    int[] to = new int[PAIRS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp(TransferBenchmark benchmark) {
+      benchmark.picker.fillPairs(new SplittableRandom(seeds.getAndIncrement()), from, to);
+    }
+
+    int nextPair() {
+      return next++ & (PAIRS - 1);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public boolean throughput(Workload workload) {
+    int i = workload.nextPair();
+    return target.transfer(workload.from[i], workload.to[i], 1);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public boolean latency(Workload workload) {
+    int i = workload.nextPair();
+    return target.transfer(workload.from[i], workload.to[i], 1);
+  }
+}
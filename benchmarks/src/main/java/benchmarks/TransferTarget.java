@@ -0,0 +1,33 @@
+package benchmarks;
+
+/**
+ * Bridge between the benchmarks and the transfer strategies.
+ * JMH refuses benchmark classes in the default package, while every strategy in the main module
+ * lives there and can only be referenced from the default package. So each strategy gets a small
+ * default-package adapter implementing this interface, and benchmarks create it by class name.
+ */
+public interface TransferTarget {
+
+  void setUp(int accountCount, int initialBalance);
+
+  /**
+   * @return false if the transfer was rejected because of insufficient funds
+   */
+  boolean transfer(int fromIndex, int toIndex, int amount);
+
+  long totalBalance();
+
+  /**
+   * Releases what setUp acquired besides memory, e.g. files.
+   */
+  default void tearDown() {
+  }
+
+  static TransferTarget create(String className) {
+    try {
+      return Class.forName(className).asSubclass(TransferTarget.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("Unknown transfer strategy " + className, e);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A transfer workload that can be replayed: the opening balance of every account and the transfers
+ * with the time each one arrives, relative to the start of the run. Kept as parallel primitive arrays.
+ *
+ * Saved as a compact binary file, so a production-like run can be repeated exactly against every strategy:
+ * magic, version, account count, transfer count (ints), then the balances, then per transfer the arrival time
+ * since the previous transfer in nanoseconds, from id, to id and amount. Everything after the header is
+ * an unsigned varint (7 bits per byte, high bit set on all but the last byte), so most transfers take
+ * 6-10 bytes instead of 28.
+ */
+public class TransferTrace {
+  private static final int MAGIC = 0x54525443;
+  private static final int VERSION = 1;
+
+  private final long[] balances;
+  private final long[] arrivalNanos;
+  private final int[] fromIds;
+  private final int[] toIds;
+  private final int[] amounts;
+
+  /**
+   * @param arrivalNanos must not decrease
+   */
+  public TransferTrace(long[] balances, long[] arrivalNanos, int[] fromIds, int[] toIds, int[] amounts) {
+    if (arrivalNanos.length != fromIds.length || fromIds.length != toIds.length || toIds.length != amounts.length) {
+      throw new IllegalArgumentException("arrivalNanos, fromIds, toIds and amounts must have the same length");
+    }
+    this.balances = balances;
+    this.arrivalNanos = arrivalNanos;
+    this.fromIds = fromIds;
+    this.toIds = toIds;
+    this.amounts = amounts;
+  }
+
+  public int getAccountCount() {
+    return balances.length;
+  }
+
+  public int size() {
+    return fromIds.length;
+  }
+
+  public long getBalance(int id) {
+    return balances[id];
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    for (long balance : balances) {
+      total = Math.addExact(total, balance);
+    }
+    return total;
+  }
+
+  public long getArrivalNanos(int i) {
+    return arrivalNanos[i];
+  }
+
+  public int getFromId(int i) {
+    return fromIds[i];
+  }
+
+  public int getToId(int i) {
+    return toIds[i];
+  }
+
+  public int getAmount(int i) {
+    return amounts[i];
+  }
+
+  /**
+   * @return transfers rejected for insufficient funds when the trace is applied one by one in arrival order
+   */
+  public int countSequentialRejections() {
+    long[] model = balances.clone();
+    int rejected = 0;
+    for (int i = 0; i < fromIds.length; i++) {
+      if (amounts[i] > model[fromIds[i]]) {
+        rejected++;
+      } else {
+        model[fromIds[i]] -= amounts[i];
+        model[toIds[i]] += amounts[i];
+      }
+    }
+    return rejected;
+  }
+
+  /**
+   * @return time from the first arrival to the last
+   */
+  public long getDurationNanos() {
+    return size() == 0 ? 0 : arrivalNanos[size() - 1] - arrivalNanos[0];
+  }
+
+  public void write(Path file) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(balances.length);
+      out.writeInt(fromIds.length);
+      for (long balance : balances) {
+        writeVarLong(out, balance);
+      }
+      long previous = 0;
+      for (int i = 0; i < fromIds.length; i++) {
+        writeVarLong(out, arrivalNanos[i] - previous);
+        previous = arrivalNanos[i];
+        writeVarLong(out, fromIds[i]);
+        writeVarLong(out, toIds[i]);
+        writeVarLong(out, amounts[i]);
+      }
+    }
+  }
+
+  public static TransferTrace read(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(file + " is not a transfer trace");
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException(file + " has trace version " + version + ", expected " + VERSION);
+      }
+      long[] balances = new long[in.readInt()];
+      int size = in.readInt();
+      for (int id = 0; id < balances.length; id++) {
+        balances[id] = readVarLong(in);
+      }
+      long[] arrivalNanos = new long[size];
+      int[] fromIds = new int[size];
+      int[] toIds = new int[size];
+      int[] amounts = new int[size];
+      long arrival = 0;
+      for (int i = 0; i < size; i++) {
+        arrival += readVarLong(in);
+        arrivalNanos[i] = arrival;
+        fromIds[i] = checkId(readVarLong(in), balances.length);
+        toIds[i] = checkId(readVarLong(in), balances.length);
+        amounts[i] = Math.toIntExact(readVarLong(in));
+      }
+      return new TransferTrace(balances, arrivalNanos, fromIds, toIds, amounts);
+    }
+  }
+
+  private static int checkId(long id, int accountCount) throws IOException {
+    if (id >= accountCount) {
+      throw new IOException("unknown account id " + id + " in trace");
+    }
+    return (int) id;
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    if (value < 0) {
+      throw new IllegalArgumentException("negative value in trace: " + value);
+    }
+    while (value >= 0x80) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("varint longer than 64 bits in trace");
+  }
+}
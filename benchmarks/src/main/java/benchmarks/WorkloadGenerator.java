@@ -0,0 +1,123 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates a TransferTrace that looks like traffic instead of two accounts and two transfers:
+ * - accounts with opening balances drawn from balanceDistribution around meanBalance
+ * - transfers arriving as a Poisson process at ratePerSecond (exponential gaps, so there are bursts and lulls)
+ * - account pairs with Zipf skew (AccountPicker), a few hot accounts take most of the traffic
+ * - amounts drawn from amountDistribution around meanAmount
+ * - a share of overdraft attempts, transfers of more than the source holds at that point
+ *
+ * To know what "more than the source holds" is, the generator applies its own transfers one by one to a copy
+ * of the balances. Ordinary transfers are cut to what the source holds there, so in that sequential order almost
+ * only the overdraft attempts are rejected (and the few from empty accounts); a concurrent replay reorders nearby
+ * transfers and may differ a little, TransferTrace.countSequentialRejections() gives the number to compare with.
+ * All parameters can be set as system properties (load.accounts, load.balance, ...), see fromSystemProperties().
+ */
+public class WorkloadGenerator {
+  private final int accounts;
+  private final long meanBalance;
+  private final Distribution balanceDistribution;
+  private final int transfers;
+  private final double ratePerSecond;
+  private final double zipfExponent;
+  private final long meanAmount;
+  private final Distribution amountDistribution;
+  private final double overdraftShare;
+  private final long seed;
+
+  public WorkloadGenerator(int accounts, long meanBalance, Distribution balanceDistribution,
+                           int transfers, double ratePerSecond, double zipfExponent,
+                           long meanAmount, Distribution amountDistribution, double overdraftShare, long seed) {
+    if (accounts < 2) {
+      throw new IllegalArgumentException("need at least 2 accounts: " + accounts);
+    }
+    if (ratePerSecond <= 0) {
+      throw new IllegalArgumentException("rate must be positive: " + ratePerSecond);
+    }
+    if (meanAmount <= 0 || meanAmount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("mean amount must be a positive int: " + meanAmount);
+    }
+    if (overdraftShare < 0 || overdraftShare > 1) {
+      throw new IllegalArgumentException("overdraft share must be between 0 and 1: " + overdraftShare);
+    }
+    this.accounts = accounts;
+    this.meanBalance = meanBalance;
+    this.balanceDistribution = balanceDistribution;
+    this.transfers = transfers;
+    this.ratePerSecond = ratePerSecond;
+    this.zipfExponent = zipfExponent;
+    this.meanAmount = meanAmount;
+    this.amountDistribution = amountDistribution;
+    this.overdraftShare = overdraftShare;
+    this.seed = seed;
+  }
+
+  /**
+   * -Dload.accounts=100000 -Dload.balance=100000 -Dload.balanceDistribution=PARETO -Dload.transfers=1000000
+   * -Dload.rate=100000 -Dload.zipf=0.99 -Dload.amount=1000 -Dload.amountDistribution=EXPONENTIAL
+   * -Dload.overdraftShare=0.01 -Dload.seed=42 (the defaults)
+   */
+  public static WorkloadGenerator fromSystemProperties() {
+    return new WorkloadGenerator(
+        Integer.getInteger("load.accounts", 100_000),
+        Long.getLong("load.balance", 100_000),
+        Distribution.valueOf(System.getProperty("load.balanceDistribution", "PARETO").toUpperCase()),
+        Integer.getInteger("load.transfers", 1_000_000),
+        Double.parseDouble(System.getProperty("load.rate", "100000")),
+        Double.parseDouble(System.getProperty("load.zipf", "0.99")),
+        Long.getLong("load.amount", 1000),
+        Distribution.valueOf(System.getProperty("load.amountDistribution", "EXPONENTIAL").toUpperCase()),
+        Double.parseDouble(System.getProperty("load.overdraftShare", "0.01")),
+        Long.getLong("load.seed", 42));
+  }
+
+  public TransferTrace generate() {
+    SplittableRandom random = new SplittableRandom(seed);
+    long[] balances = new long[accounts];
+    for (int id = 0; id < accounts; id++) {
+      balances[id] = balanceDistribution.sample(random, meanBalance);
+    }
+    long[] arrivalNanos = new long[transfers];
+    int[] fromIds = new int[transfers];
+    int[] toIds = new int[transfers];
+    int[] amounts = new int[transfers];
+    AccountPicker picker = new AccountPicker(accounts, zipfExponent);
+    long[] model = balances.clone();
+    double meanGapNanos = 1e9 / ratePerSecond;
+    double arrival = 0;
+    for (int i = 0; i < transfers; i++) {
+      arrival += -meanGapNanos * Math.log(1 - random.nextDouble());
+      arrivalNanos[i] = (long) arrival;
+      int from = picker.next(random);
+      int to = picker.next(random);
+      while (to == from) {
+        to = picker.next(random);
+      }
+      long amount = Math.max(1, amountDistribution.sample(random, meanAmount));
+      if (random.nextDouble() < overdraftShare) {
+        amount = model[from] + amount;
+      } else {
+        amount = Math.min(amount, Math.max(1, model[from]));
+      }
+      amount = Math.min(amount, Integer.MAX_VALUE);
+      if (amount <= model[from]) {
+        model[from] -= amount;
+        model[to] += amount;
+      }
+      fromIds[i] = from;
+      toIds[i] = to;
+      amounts[i] = (int) amount;
+    }
+    return new TransferTrace(balances, arrivalNanos, fromIds, toIds, amounts);
+  }
+
+  @Override
+  public String toString() {
+    return accounts + " accounts (" + balanceDistribution + " balances, mean " + meanBalance + "), "
+        + transfers + " transfers at " + ratePerSecond + "/s (zipf " + zipfExponent + ", "
+        + amountDistribution + " amounts, mean " + meanAmount + ", " + overdraftShare * 100 + "% overdraft attempts)";
+  }
+}
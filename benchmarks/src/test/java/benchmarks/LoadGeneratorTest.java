@@ -0,0 +1,103 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class LoadGeneratorTest {
+
+  /**
+   * Counts balances itself, so the test can see every account and not only the total.
+   */
+  private static class ArrayTarget implements TransferTarget {
+    long[] balances;
+
+    @Override
+    public void setUp(int accountCount, int initialBalance) {
+      balances = new long[accountCount];
+      Arrays.fill(balances, initialBalance);
+    }
+
+    @Override
+    public boolean transfer(int fromIndex, int toIndex, int amount) {
+      if (balances[fromIndex] < amount) {
+        return false;
+      }
+      balances[fromIndex] -= amount;
+      balances[toIndex] += amount;
+      return true;
+    }
+
+    @Override
+    public long totalBalance() {
+      long total = 0;
+      for (long balance : balances) {
+        total += balance;
+      }
+      return total;
+    }
+  }
+
+  private static TransferTrace generate() {
+    return new WorkloadGenerator(100, 10_000, Distribution.PARETO, 1000, 1_000_000, 0.99,
+        100, Distribution.EXPONENTIAL, 0.01, 42).generate();
+  }
+
+  /**
+   * A replay is only repeatable if the file gives back exactly the trace that was written:
+   * every balance and every transfer with its arrival time.
+   **/
+  @Test
+  public void testTraceRoundTrip() throws IOException {
+    TransferTrace trace = generate();
+    Path file = Files.createTempFile("transfers", ".trace");
+    trace.write(file);
+    System.out.println(trace.size() + " transfers in " + Files.size(file) + " bytes");
+
+    TransferTrace read = TransferTrace.read(file);
+    assertEquals(trace.getAccountCount(), read.getAccountCount());
+    assertEquals(trace.size(), read.size());
+    long[] balances = new long[trace.getAccountCount()];
+    long[] readBalances = new long[read.getAccountCount()];
+    for (int id = 0; id < balances.length; id++) {
+      balances[id] = trace.getBalance(id);
+      readBalances[id] = read.getBalance(id);
+    }
+    assertArrayEquals(balances, readBalances);
+    for (int i = 0; i < trace.size(); i++) {
+      assertEquals(trace.getArrivalNanos(i), read.getArrivalNanos(i));
+      assertEquals(trace.getFromId(i), read.getFromId(i));
+      assertEquals(trace.getToId(i), read.getToId(i));
+      assertEquals(trace.getAmount(i), read.getAmount(i));
+    }
+    assertEquals(trace.countSequentialRejections(), read.countSequentialRejections());
+  }
+
+  /**
+   * Targets only open accounts with one common balance, fund moves money through the reserve account
+   * until every account has its balance from the trace, without creating or losing any.
+   **/
+  @Test
+  public void testFundReproducesTraceBalances() {
+    TransferTrace trace = generate();
+    ArrayTarget target = new ArrayTarget();
+    long openingBalance = LoadGenerator.fund(trace, target);
+
+    long total = openingBalance * (trace.getAccountCount() + 1);
+    assertEquals(total, target.totalBalance());
+    for (int id = 0; id < trace.getAccountCount(); id++) {
+      assertEquals(trace.getBalance(id), target.balances[id]);
+    }
+    assertEquals(total - trace.totalBalance(), target.balances[trace.getAccountCount()]);
+
+    //same through a real strategy, which only reports the total
+    TransferTarget stripedLock = TransferTarget.create("StripedLockTarget");
+    assertEquals(openingBalance, LoadGenerator.fund(trace, stripedLock));
+    assertEquals(total, stripedLock.totalBalance());
+    stripedLock.tearDown();
+  }
+}
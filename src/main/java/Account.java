@@ -0,0 +1,16 @@
+/**
+ * What every account kind has in common, so code can hold accounts without knowing which transfer strategy
+ * they belong to. Balances change only through the strategy that opened the account, see TransferService.
+ */
+public interface Account {
+
+  long getId();
+
+  String getName();
+
+  /**
+   * Balance as the account itself sees it. For account kinds guarded by external locks this may be stale,
+   * TransferService.getBalance() reads it the way the strategy requires.
+   */
+  long getBalance();
+}
@@ -0,0 +1,32 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One lock per account id, created on first use.
+ * For code that needs explicit locks per account (tryLock, or not pinning a virtual thread's carrier
+ * the way a synchronized block does) instead of the account monitor.
+ * The locks are ReentrantLocks unless another kind is asked for, e.g. new AccountLocks(SpinThenParkLock::new).
+ */
+public class AccountLocks {
+  private final Map<Long, Lock> locks = new ConcurrentHashMap<>();
+  private final Supplier<? extends Lock> lockFactory;
+
+  public AccountLocks() {
+    this(ReentrantLock::new);
+  }
+
+  /**
+   * @param lockFactory creates the lock of an account, the locks must be reentrant: a transfer from an account
+   *                    to itself takes its lock twice
+   */
+  public AccountLocks(Supplier<? extends Lock> lockFactory) {
+    this.lockFactory = lockFactory;
+  }
+
+  public Lock lockFor(BankAccount account) {
+    return locks.computeIfAbsent(account.getId(), id -> lockFactory.get());
+  }
+}
@@ -0,0 +1,146 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongFunction;
+
+/**
+ * Accounts by numeric id, for callers that only have the id (a front end, a request from the network).
+ * ConcurrentHashMap<Long, BankAccount> would box every id on every lookup; here ids stay primitive:
+ * an open-addressing table of long keys with linear probing and a parallel array of accounts.
+ *
+ * Reads take no lock. An account slot is the publication point: a writer stores the key first and then the account
+ * with a release write, a reader loads the account with an acquire read and only then looks at the key,
+ * so a non-null account always comes with its key. An empty account slot ends the probe.
+ * Inserts and resizes run under the registry monitor, which is what makes computeIfAbsent create every account
+ * exactly once. A resize builds a new table and publishes it through a volatile field; readers still probing the
+ * old one may miss an account inserted meanwhile, like a lookup that ran just before the insert.
+ * Accounts are never removed, so there are no tombstones.
+ */
+public class AccountRegistry {
+  public static final int DEFAULT_CAPACITY = 1024;
+  private static final VarHandle ACCOUNT = MethodHandles.arrayElementVarHandle(BankAccount[].class);
+
+  private static final class Table {
+    final long[] ids;
+    final BankAccount[] accounts;
+    final int mask;
+    final int shift;
+
+    Table(int capacity) {
+      ids = new long[capacity];
+      accounts = new BankAccount[capacity];
+      mask = capacity - 1;
+      shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    int slotFor(long id) {
+      //Fibonacci hashing: sequential ids spread over the table instead of clustering in one probe run
+      return (int) ((id * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+  }
+
+  private volatile Table table;
+  //guarded by this
+  private int size;
+
+  public AccountRegistry() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedAccounts accounts to hold without resizing
+   */
+  public AccountRegistry(int expectedAccounts) {
+    int capacity = 2;
+    //load factor 1/2 keeps probe runs short
+    while (capacity < expectedAccounts * 2) {
+      capacity <<= 1;
+    }
+    table = new Table(capacity);
+  }
+
+  /**
+   * @return the account, or null if there is none with this id
+   */
+  public BankAccount get(long id) {
+    Table current = table;
+    for (int slot = current.slotFor(id); ; slot = (slot + 1) & current.mask) {
+      BankAccount account = (BankAccount) ACCOUNT.getAcquire(current.accounts, slot);
+      if (account == null) {
+        return null;
+      }
+      if (current.ids[slot] == id) {
+        return account;
+      }
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if there is no account with this id
+   */
+  public BankAccount require(long id) {
+    BankAccount account = get(id);
+    if (account == null) {
+      throw new IllegalArgumentException("unknown account id " + id);
+    }
+    return account;
+  }
+
+  /**
+   * Returns the account with this id, creating it on first use. When several threads ask for the same new id at once,
+   * factory runs once and all of them get the same account.
+   * @param factory must return an account whose getId() is id, it runs under the registry lock
+   */
+  public BankAccount computeIfAbsent(long id, LongFunction<BankAccount> factory) {
+    BankAccount account = get(id);
+    if (account != null) {
+      return account;
+    }
+    synchronized (this) {
+      account = get(id);
+      if (account != null) {
+        return account;
+      }
+      account = factory.apply(id);
+      if (account.getId() != id) {
+        throw new IllegalArgumentException("factory created account " + account.getId() + " for id " + id);
+      }
+      if ((size + 1) * 2 > table.accounts.length) {
+        resize();
+      }
+      insert(table, id, account);
+      size++;
+      return account;
+    }
+  }
+
+  /**
+   * Lazily creates accounts with the given opening balance, named "Account <id>".
+   */
+  public BankAccount getOrCreate(long id, long initialBalance) {
+    return computeIfAbsent(id, newId -> new BankAccount(newId, initialBalance, "Account " + newId));
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  private static void insert(Table target, long id, BankAccount account) {
+    int slot = target.slotFor(id);
+    while (target.accounts[slot] != null) {
+      slot = (slot + 1) & target.mask;
+    }
+    target.ids[slot] = id;
+    ACCOUNT.setRelease(target.accounts, slot, account);
+  }
+
+  private void resize() {
+    Table old = table;
+    Table bigger = new Table(old.accounts.length * 2);
+    for (int slot = 0; slot < old.accounts.length; slot++) {
+      if (old.accounts[slot] != null) {
+        insert(bigger, old.ids[slot], old.accounts[slot]);
+      }
+    }
+    table = bigger;
+  }
+}
@@ -0,0 +1,292 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock-free account for the few accounts (merchants) that receive most of the deposits.
+ * With AtomicBankAccount every deposit to such an account is a CAS on the same field, and that cache line
+ * bounces between the cores all the time. This account starts the same way, but counts the deposits whose CAS
+ * failed because another thread got in between; when there are too many of them within a short window the
+ * account turns hot and from then on deposits go to one of several cells, picked by thread, like in LongAdder.
+ *
+ * The base balance is a floor of the real balance, because cells only ever receive deposits. So tryWithdraw
+ * takes money from the base with a CAS like AtomicBankAccount does, and only when the base can't cover the
+ * amount it moves the cells into the base and checks again. Insufficient funds are reported only after
+ * that, so a transfer is never rejected while the money is sitting in the cells.
+ * Cells stay once allocated: an account that was hot once is expected to be hot again.
+ *
+ * A cell doesn't hold its deposits but a budget: the room below Long.MAX_VALUE that was handed to it, next to
+ * the limit it was handed. A deposit takes the amount out of its own cell's budget with one getAndAdd, and the
+ * cell holds limit - budget. The budgets together never exceed what the base leaves free, so the balance can't
+ * overflow without any deposit looking at the other cells. A cell whose budget is used up sends the deposit
+ * to the base: that drains the cells under drainLock, checks the overflow on the whole balance and hands out
+ * what is left as new budgets. Withdrawals from the base don't give their room back right away, it comes back
+ * with the next drain.
+ */
+public class AdaptiveBankAccount {
+  public static final int DEFAULT_PROMOTION_THRESHOLD = 16;
+  public static final long PROMOTION_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  //longs per cell, 128 bytes: a cell shares neither its cache line nor the prefetched neighbour line
+  private static final int CELL_STRIDE = 16;
+  private static final int CELL_COUNT = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+  //larger deposits go to the base: the budgets of failed deposits going back below zero at once can't wrap around
+  private static final long MAX_CELL_DEPOSIT = 1L << 48;
+
+  private final AtomicLong base;
+  private final String name;
+  private final int promotionThreshold;
+
+  //failed deposit CASes since windowStart, approximate: a lost update only delays the promotion
+  private final AtomicInteger contendedDeposits = new AtomicInteger();
+  private volatile long windowStart = System.nanoTime();
+
+  //budget of a cell at its index, the limit it was handed right after, written only under drainLock
+  private volatile AtomicLongArray cells;
+  private final ReentrantLock drainLock = new ReentrantLock();
+  //odd while cells are being moved to the base or handed budgets, so getBalance() doesn't count that money
+  //twice or not at all
+  private volatile int drainSequence;
+
+  public AdaptiveBankAccount(long initialBalance, String name) {
+    this(initialBalance, name, DEFAULT_PROMOTION_THRESHOLD);
+  }
+
+  /**
+   * @param promotionThreshold failed deposit CASes within PROMOTION_WINDOW_NANOS that make the account hot,
+   *                           0 to start hot
+   */
+  public AdaptiveBankAccount(long initialBalance, String name, int promotionThreshold) {
+    this.base = new AtomicLong(initialBalance);
+    this.name = name;
+    this.promotionThreshold = promotionThreshold;
+    if (promotionThreshold <= 0) {
+      AtomicLongArray current = new AtomicLongArray(CELL_COUNT * CELL_STRIDE);
+      handOutBudgets(current);
+      cells = current;
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isHot() {
+    return cells != null;
+  }
+
+  /**
+   * Exact when no deposits run at the same time, otherwise some value between the balances at the start
+   * and at the end of the call, like LongAdder.sum().
+   */
+  public long getBalance() {
+    AtomicLongArray current = cells;
+    if (current == null) {
+      return base.get();
+    }
+    while (true) {
+      int sequence = drainSequence;
+      if ((sequence & 1) == 0) {
+        long total = base.get();
+        for (int i = 0; i < current.length(); i += CELL_STRIDE) {
+          total += current.get(i + 1) - current.get(i);
+        }
+        if (sequence == drainSequence) {
+          return total;
+        }
+      }
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * @throws ArithmeticException if the balance would overflow, nothing is deposited then
+   */
+  public void deposit(long amount) {
+    if (!tryDeposit(amount)) {
+      throw new ArithmeticException("balance overflow on " + name);
+    }
+  }
+
+  /**
+   * Deposit that reports an overflow of the balance with false instead of an exception.
+   * On a hot account a deposit the cell's budget can't cover goes to the base, which rejects it only if the
+   * whole balance would overflow.
+   */
+  public boolean tryDeposit(long amount) {
+    AtomicLongArray current = cells;
+    if (current == null) {
+      boolean contended = false;
+      while (true) {
+        long balance = base.get();
+        long updated = balance + amount;
+        if (overflows(balance, amount, updated)) {
+          return false;
+        }
+        if (base.compareAndSet(balance, updated)) {
+          if (cells != null) {
+            //promoted in between, the budgets may have been handed out without this amount in the base
+            drainCells();
+          }
+          return true;
+        }
+        if (!contended) {
+          //counted once per deposit, the retries are the same contention
+          contended = true;
+          recordContention();
+          current = cells;
+          if (current != null) {
+            break;
+          }
+        }
+      }
+    }
+    if (amount <= MAX_CELL_DEPOSIT) {
+      int cell = cellIndex();
+      if (current.getAndAdd(cell, -amount) >= amount) {
+        return true;
+      }
+      current.getAndAdd(cell, amount);
+    }
+    return tryDepositToBase(amount);
+  }
+
+  private boolean tryDepositToBase(long amount) {
+    drainLock.lock();
+    try {
+      drainSequence++;
+      try {
+        //drained, the budgets are zero and the base holds the whole balance
+        moveCellsToBase(cells);
+        long balance;
+        long updated;
+        do {
+          balance = base.get();
+          updated = balance + amount;
+          if (overflows(balance, amount, updated)) {
+            return false;
+          }
+        } while (!base.compareAndSet(balance, updated));
+        return true;
+      } finally {
+        handOutBudgets(cells);
+        drainSequence++;
+      }
+    } finally {
+      drainLock.unlock();
+    }
+  }
+
+  private static boolean overflows(long balance, long amount, long updated) {
+    return ((balance ^ updated) & (amount ^ updated)) < 0;
+  }
+
+  /**
+   * Blind withdraw, like AtomicBankAccount.withdraw(): may take the balance below zero.
+   */
+  public void withdraw(long amount) {
+    base.getAndAdd(-amount);
+  }
+
+  /**
+   * Takes the amount only if the balance covers it, counting the money deposited to the cells.
+   */
+  public boolean tryWithdraw(long amount) {
+    if (tryWithdrawFromBase(amount)) {
+      return true;
+    }
+    if (cells == null) {
+      return false;
+    }
+    //another withdrawal may have drained the cells while we waited, then there's nothing left to move
+    drainCells();
+    return tryWithdrawFromBase(amount);
+  }
+
+  private boolean tryWithdrawFromBase(long amount) {
+    long current;
+    do {
+      current = base.get();
+      if (current < amount) {
+        return false;
+      }
+    } while (!base.compareAndSet(current, current - amount));
+    return true;
+  }
+
+  private void drainCells() {
+    drainLock.lock();
+    try {
+      drainSequence++;
+      try {
+        moveCellsToBase(cells);
+      } finally {
+        handOutBudgets(cells);
+        drainSequence++;
+      }
+    } finally {
+      drainLock.unlock();
+    }
+  }
+
+  /**
+   * Under drainLock. Can't overflow the base: the limits of the cells fit into what the base leaves free.
+   */
+  private void moveCellsToBase(AtomicLongArray current) {
+    for (int i = 0; i < current.length(); i += CELL_STRIDE) {
+      long budget = current.get(i);
+      //below zero a failed deposit is about to give its amount back
+      while (budget < 0 || !current.compareAndSet(i, budget, 0)) {
+        Thread.onSpinWait();
+        budget = current.get(i);
+      }
+      base.getAndAdd(current.get(i + 1) - budget);
+      current.set(i + 1, 0);
+    }
+  }
+
+  /**
+   * Under drainLock, on drained cells. Splits the room the base leaves free among the cells.
+   */
+  private void handOutBudgets(AtomicLongArray current) {
+    long share = (Long.MAX_VALUE - Math.max(base.get(), 0)) / CELL_COUNT;
+    for (int i = 0; i < current.length(); i += CELL_STRIDE) {
+      current.set(i + 1, share);
+      //added, a failed deposit may still have to give its amount back
+      current.getAndAdd(i, share);
+    }
+  }
+
+  private void recordContention() {
+    long now = System.nanoTime();
+    if (now - windowStart > PROMOTION_WINDOW_NANOS) {
+      windowStart = now;
+      contendedDeposits.set(0);
+    }
+    if (contendedDeposits.incrementAndGet() >= promotionThreshold) {
+      drainLock.lock();
+      try {
+        if (cells == null) {
+          //published before the base is read for the budgets: a deposit that still saw no cells either
+          //lands in the base before that read, or sees the cells afterwards and drains them
+          drainSequence++;
+          try {
+            cells = new AtomicLongArray(CELL_COUNT * CELL_STRIDE);
+          } finally {
+            handOutBudgets(cells);
+            drainSequence++;
+          }
+        }
+      } finally {
+        drainLock.unlock();
+      }
+    }
+  }
+
+  private static int cellIndex() {
+    long id = Thread.currentThread().getId();
+    int hash = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+    return (hash & (CELL_COUNT - 1)) * CELL_STRIDE;
+  }
+}
@@ -1,25 +1,76 @@
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
-public class AtomicBankAccount  {
-  private AtomicInteger balance;
+public class AtomicBankAccount implements Account {
+  private static final AtomicLong nextId = new AtomicLong();
+
+  private final long id;
+  private final AtomicLong balance;
   private String name;
 
-  public AtomicBankAccount(int initialBalance, String name) {
-    this.balance = new AtomicInteger(initialBalance);
+  public AtomicBankAccount(long initialBalance, String name) {
+    this.id = nextId.incrementAndGet();
+    this.balance = new AtomicLong(initialBalance);
     this.name = name;
   }
 
-  public int getBalance() {
+  public long getId() {
+    return id;
+  }
+
+  public long getBalance() {
     return balance.get();
   }
 
-  public void deposit(int amount) {
-    balance.getAndAdd(amount);
+  /**
+   * Still a blind read-modify-write, but one that can't be interleaved with another: a CAS loop
+   * (getAndUpdate would allocate a lambda per call).
+   * @throws ArithmeticException if the balance would overflow, the balance is left unchanged
+   */
+  public void deposit(long amount) {
+    long current;
+    do {
+      current = balance.get();
+    } while (!balance.compareAndSet(current, Money.add(current, amount)));
+  }
+
+  public void withdraw(long amount) {
+    long current;
+    do {
+      current = balance.get();
+    } while (!balance.compareAndSet(current, Money.subtract(current, amount)));
+  }
+
+  /**
+   * Check-then-act done as one CAS: the balance is only decreased if it still covers the amount
+   * at the moment of the write, so concurrent withdrawals can never take it below zero.
+   * Returns false instead of blocking or retrying when funds are insufficient.
+   */
+  public boolean tryWithdraw(long amount) {
+    long current;
+    do {
+      current = balance.get();
+      if (current < amount) {
+        return false;
+      }
+    } while (!balance.compareAndSet(current, current - amount));
+    return true;
   }
 
-  public void withdraw(int amount) {
-    balance.getAndAdd(-amount);
+  /**
+   * Deposit that reports an overflow of the balance with false instead of an exception.
+   */
+  public boolean tryDeposit(long amount) {
+    long current;
+    long updated;
+    do {
+      current = balance.get();
+      updated = current + amount;
+      if (((current ^ updated) & (amount ^ updated)) < 0) {
+        return false;
+      }
+    } while (!balance.compareAndSet(current, updated));
+    return true;
   }
 
   public String getName() {
@@ -0,0 +1,33 @@
+/**
+ * How far apart balances that are updated by different threads are kept in memory.
+ * A cache line is 64 bytes, so eight packed long balances share one: two threads transferring between
+ * unrelated accounts that happen to be neighbours still take the line away from each other on every write
+ * (false sharing). Spacing trades memory for that: PADDED gives every balance 128 bytes, its own line and
+ * the neighbour line the adjacent-line prefetcher pulls in with it, the same stride AdaptiveBankAccount cells
+ * and the TransferPipeline sequences use.
+ */
+public enum BalanceLayout {
+  //8 bytes per balance
+  PACKED(1),
+  //64 bytes per balance, enough where the prefetcher pairs no lines
+  LINE(8),
+  //128 bytes per balance
+  PADDED(16);
+
+  private final int longsPerSlot;
+
+  BalanceLayout(int longsPerSlot) {
+    this.longsPerSlot = longsPerSlot;
+  }
+
+  /**
+   * @return longs reserved per balance, a power of two
+   */
+  public int getLongsPerSlot() {
+    return longsPerSlot;
+  }
+
+  int shift() {
+    return Integer.numberOfTrailingZeros(longsPerSlot);
+  }
+}
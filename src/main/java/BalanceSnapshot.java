@@ -0,0 +1,47 @@
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Balances of all accounts of a SnapshotTransferEngine as of one instant.
+ */
+public class BalanceSnapshot {
+  private final long epoch;
+  private final Map<Long, Long> balances;
+  private final long total;
+
+  BalanceSnapshot(long epoch, Map<Long, Long> balances) {
+    this.epoch = epoch;
+    this.balances = Collections.unmodifiableMap(balances);
+    long sum = 0;
+    for (long balance : balances.values()) {
+      sum += balance;
+    }
+    this.total = sum;
+  }
+
+  /**
+   * @return transfers of epochs before this one are in the snapshot, later ones are not
+   */
+  public long getEpoch() {
+    return epoch;
+  }
+
+  public long getBalance(BankAccount account) {
+    Long balance = balances.get(account.getId());
+    if (balance == null) {
+      throw new IllegalArgumentException(account.getName() + " is not in the snapshot");
+    }
+    return balance;
+  }
+
+  /**
+   * @return balances by account id
+   */
+  public Map<Long, Long> getBalances() {
+    return balances;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+}
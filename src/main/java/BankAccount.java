@@ -1,13 +1,28 @@
-public class BankAccount {
-  private int balance;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BankAccount implements Account {
+  private static final AtomicLong nextId = new AtomicLong();
+
+  private final long id;
+  //minor units, see Money
+  private long balance;
   private String name;
 
-  public BankAccount(int initialBalance, String name) {
+  public BankAccount(long initialBalance, String name) {
+    this(nextId.incrementAndGet(), initialBalance, name);
+  }
+
+  public BankAccount(long id, long initialBalance, String name) {
+    this.id = id;
     this.balance = initialBalance;
     this.name = name;
   }
 
-  public int getBalance() {
+  public long getId() {
+    return id;
+  }
+
+  public long getBalance() {
     return balance;
   }
 
@@ -15,11 +30,11 @@ public class BankAccount {
     return name;
   }
 
-  public void deposit(int amount) {
-    balance += amount;
+  public void deposit(long amount) {
+    balance = Money.add(balance, amount);
   }
 
-  public void withdraw(int amount) {
-    balance -= amount;
+  public void withdraw(long amount) {
+    balance = Money.subtract(balance, amount);
   }
 }
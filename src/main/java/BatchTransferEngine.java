@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies many transfers while taking every account monitor once per group instead of once per transfer.
+ * Transfers are grouped by the accounts they touch (transfers that share an account directly or through
+ * other transfers end up in one group), and each group's monitors are acquired in System.identityHashCode
+ * order, the same ordering used by MoneyTransferRunnableWithIdentityHashCode, so batches can run
+ * concurrently with each other and with that runnable without deadlock.
+ * A group never holds more than maxLocksPerGroup monitors: bigger groups are cut into consecutive chunks,
+ * which keeps the order of transfers on each account as it was in the input.
+ */
+public class BatchTransferEngine {
+  public static final int DEFAULT_MAX_LOCKS_PER_GROUP = 64;
+
+  private static final Comparator<BankAccount> lockOrder = Comparator.comparingInt(System::identityHashCode);
+  private static final TransferMetrics metrics = TransferMetrics.forStrategy("BatchTransferEngine");
+
+  private final int maxLocksPerGroup;
+
+  public BatchTransferEngine() {
+    this(DEFAULT_MAX_LOCKS_PER_GROUP);
+  }
+
+  public BatchTransferEngine(int maxLocksPerGroup) {
+    if (maxLocksPerGroup < 2) {
+      throw new IllegalArgumentException("a group needs at least 2 locks: " + maxLocksPerGroup);
+    }
+    this.maxLocksPerGroup = maxLocksPerGroup;
+  }
+
+  /**
+   * @return one result per transfer, in the same order as the input
+   * @throws IllegalArgumentException if a transfer isn't between BankAccounts or its amount is negative,
+   *                                  nothing is applied then
+   */
+  public List<TransferResult> transferAll(List<Transfer> transfers) {
+    for (Transfer transfer : transfers) {
+      if (!(transfer.getFromAccount() instanceof BankAccount) || !(transfer.getToAccount() instanceof BankAccount)) {
+        throw new IllegalArgumentException("not between BankAccounts: " + transfer);
+      }
+      Money.checkAmount(transfer.getAmount());
+    }
+    TransferResult[] results = new TransferResult[transfers.size()];
+    for (List<Integer> component : groupByAccounts(transfers)) {
+      applyInChunks(transfers, component, results);
+    }
+    return Arrays.asList(results);
+  }
+
+  private List<List<Integer>> groupByAccounts(List<Transfer> transfers) {
+    Map<Account, Integer> accountIndex = new IdentityHashMap<>();
+    for (Transfer transfer : transfers) {
+      accountIndex.putIfAbsent(transfer.getFromAccount(), accountIndex.size());
+      accountIndex.putIfAbsent(transfer.getToAccount(), accountIndex.size());
+    }
+    int[] parent = new int[accountIndex.size()];
+    for (int i = 0; i < parent.length; i++) {
+      parent[i] = i;
+    }
+    for (Transfer transfer : transfers) {
+      int fromRoot = find(parent, accountIndex.get(transfer.getFromAccount()));
+      int toRoot = find(parent, accountIndex.get(transfer.getToAccount()));
+      parent[fromRoot] = toRoot;
+    }
+    Map<Integer, List<Integer>> components = new LinkedHashMap<>();
+    for (int i = 0; i < transfers.size(); i++) {
+      int root = find(parent, accountIndex.get(transfers.get(i).getFromAccount()));
+      components.computeIfAbsent(root, r -> new ArrayList<>()).add(i);
+    }
+    return new ArrayList<>(components.values());
+  }
+
+  private static int find(int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  private void applyInChunks(List<Transfer> transfers, List<Integer> component, TransferResult[] results) {
+    Map<Account, Boolean> accounts = new IdentityHashMap<>();
+    List<Integer> chunk = new ArrayList<>();
+    for (int i : component) {
+      Transfer transfer = transfers.get(i);
+      int newAccounts = (accounts.containsKey(transfer.getFromAccount()) ? 0 : 1)
+          + (accounts.containsKey(transfer.getToAccount()) || transfer.getToAccount() == transfer.getFromAccount() ? 0 : 1);
+      if (accounts.size() + newAccounts > maxLocksPerGroup) {
+        applyGroup(transfers, chunk, accounts, results);
+        accounts.clear();
+        chunk.clear();
+      }
+      accounts.put(transfer.getFromAccount(), Boolean.TRUE);
+      accounts.put(transfer.getToAccount(), Boolean.TRUE);
+      chunk.add(i);
+    }
+    if (!chunk.isEmpty()) {
+      applyGroup(transfers, chunk, accounts, results);
+    }
+  }
+
+  private void applyGroup(List<Transfer> transfers, List<Integer> group, Map<Account, Boolean> accounts, TransferResult[] results) {
+    BankAccount[] locks = accounts.keySet().toArray(new BankAccount[0]);
+    Arrays.sort(locks, lockOrder);
+    long start = metrics.start();
+    long[] lockedAt = new long[1];
+    Runnable body = () -> {
+      lockedAt[0] = metrics.now(start);
+      for (int i : group) {
+        results[i] = apply(transfers.get(i));
+      }
+    };
+
+    if (hasHashTie(locks)) {
+      //same tie lock as the single transfers, so a tied pair is never locked in two different orders
+      synchronized (MoneyTransferRunnableWithIdentityHashCode.tieLock) {
+        lockInOrder(locks, 0, body);
+      }
+    } else {
+      lockInOrder(locks, 0, body);
+    }
+    //one lock wait and hold for the group, every transfer in it finished when the group did
+    metrics.recordLocks(start, lockedAt[0]);
+    metrics.recordTransfers(start, group.size());
+  }
+
+  private static boolean hasHashTie(BankAccount[] sortedLocks) {
+    for (int i = 1; i < sortedLocks.length; i++) {
+      if (System.identityHashCode(sortedLocks[i - 1]) == System.identityHashCode(sortedLocks[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void lockInOrder(BankAccount[] locks, int next, Runnable body) {
+    if (next == locks.length) {
+      body.run();
+      return;
+    }
+    synchronized (locks[next]) {
+      lockInOrder(locks, next + 1, body);
+    }
+  }
+
+  private static TransferResult apply(Transfer transfer) {
+    BankAccount fromAccount = (BankAccount) transfer.getFromAccount();
+    BankAccount toAccount = (BankAccount) transfer.getToAccount();
+    if (fromAccount.getBalance() < transfer.getAmount()) {
+      metrics.recordInsufficientFunds();
+      return TransferResult.failure(transfer, new InsufficientFundsException());
+    }
+    try {
+      toAccount.deposit(transfer.getAmount());
+    } catch (ArithmeticException e) {
+      return TransferResult.failure(transfer, e);
+    }
+    fromAccount.withdraw(transfer.getAmount());
+    return TransferResult.success(transfer);
+  }
+}
@@ -0,0 +1,156 @@
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Transfers that lock the accounts in the order they are given, like MoneyTransferRunnableDeadLock,
+ * for callers that can't agree on a global lock order. Deadlocks are not prevented, they are recovered from:
+ * every lock is taken with tryLock and a timeout, and a thread that chose the wrong moment can also be
+ * aborted by DeadlockWatchdog. Either way the attempt releases what it holds, backs off for a random
+ * time that grows with every attempt (so the two sides don't collide again in lockstep) and retries.
+ */
+public class DeadlockRecoveringTransferEngine {
+  public static final long DEFAULT_LOCK_TIMEOUT_MILLIS = 50;
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 20;
+
+  private final AccountLocks locks = new AccountLocks();
+  private final long lockTimeoutNanos;
+  private final long maxBackoffNanos;
+  private final DeadlockStats stats = new DeadlockStats();
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("DeadlockRecoveringTransferEngine");
+
+  //threads inside transfer() by thread id: added without a lock, removed together with abortRequested under this
+  private final Map<Long, Thread> activeTransfers = new ConcurrentHashMap<>();
+  //the threads the watchdog asked to give up; guarded by this
+  private final Set<Thread> abortRequested = new HashSet<>();
+
+  public DeadlockRecoveringTransferEngine() {
+    this(DEFAULT_LOCK_TIMEOUT_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public DeadlockRecoveringTransferEngine(long lockTimeout, long maxBackoff, TimeUnit unit) {
+    this.lockTimeoutNanos = unit.toNanos(lockTimeout);
+    this.maxBackoffNanos = Math.max(1, unit.toNanos(maxBackoff));
+  }
+
+  public DeadlockStats getStats() {
+    return stats;
+  }
+
+  public void transfer(BankAccount fromAccount, BankAccount toAccount, long amount) throws InterruptedException {
+    transfer(fromAccount, toAccount, amount, null);
+  }
+
+  /**
+   * @param whileHoldingFrom work done after fromAccount is locked and before toAccount is, may be null
+   * @throws InsufficientFundsException if fromAccount can't cover the amount
+   * @throws InterruptedException if the thread was interrupted by someone other than the watchdog
+   */
+  public void transfer(BankAccount fromAccount, BankAccount toAccount, long amount, Runnable whileHoldingFrom) throws InterruptedException {
+    Money.checkAmount(amount);
+    Thread thread = Thread.currentThread();
+    activeTransfers.put(thread.getId(), thread);
+    long start = metrics.start();
+    long locked = 0;
+    try {
+      for (int attempt = 0; ; attempt++) {
+        if (attempt > 0) {
+          stats.retries.increment();
+          metrics.recordRetry();
+        }
+        long attemptStart = System.nanoTime();
+        Lock first = locks.lockFor(fromAccount);
+        Lock second = locks.lockFor(toAccount);
+
+        if (tryLock(first)) {
+          try {
+            if (whileHoldingFrom != null) {
+              whileHoldingFrom.run();
+            }
+            if (tryLock(second)) {
+              locked = metrics.now(start);
+              try {
+                if (fromAccount.getBalance() < amount) {
+                  metrics.recordInsufficientFunds();
+                  throw new InsufficientFundsException();
+                }
+                toAccount.deposit(amount);
+                fromAccount.withdraw(amount);
+                return;
+              } finally {
+                second.unlock();
+              }
+            }
+          } finally {
+            first.unlock();
+          }
+        }
+        backoff(attempt);
+        stats.lostNanos.add(System.nanoTime() - attemptStart);
+      }
+    } finally {
+      //lock wait includes the attempts given up and their backoff
+      metrics.recordLocked(start, locked);
+      synchronized (this) {
+        activeTransfers.remove(thread.getId());
+        if (abortRequested.remove(thread)) {
+          //the watchdog picked us after we were already done, drop its interrupt
+          Thread.interrupted();
+        }
+      }
+    }
+  }
+
+  private boolean tryLock(Lock lock) throws InterruptedException {
+    try {
+      if (lock.tryLock(lockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+        return true;
+      }
+      stats.lockTimeouts.increment();
+      return false;
+    } catch (InterruptedException e) {
+      if (consumeAbort()) {
+        stats.abortedVictims.increment();
+        metrics.recordAbort();
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void backoff(int attempt) throws InterruptedException {
+    long cap = Math.min(maxBackoffNanos, TimeUnit.MILLISECONDS.toNanos(1) << Math.min(attempt, 20));
+    LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(1, cap + 1));
+    if (Thread.currentThread().isInterrupted() && !consumeAbort()) {
+      throw new InterruptedException();
+    }
+  }
+
+  private synchronized boolean consumeAbort() {
+    if (abortRequested.remove(Thread.currentThread())) {
+      Thread.interrupted();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Called by the watchdog: makes the thread give up its current attempt, if it's still in a transfer.
+   * @return false if the thread isn't transferring through this engine
+   */
+  synchronized boolean abort(long threadId) {
+    Thread thread = activeTransfers.get(threadId);
+    if (thread == null) {
+      return false;
+    }
+    //interrupt again even if already requested: the previous interrupt may have been swallowed by whileHoldingFrom
+    abortRequested.add(thread);
+    thread.interrupt();
+    return true;
+  }
+}
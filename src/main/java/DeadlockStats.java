@@ -0,0 +1,56 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of DeadlockRecoveringTransferEngine and its DeadlockWatchdog.
+ */
+public class DeadlockStats {
+  final LongAdder detectedDeadlocks = new LongAdder();
+  final LongAdder unrecoverableDeadlocks = new LongAdder();
+  final LongAdder abortedVictims = new LongAdder();
+  final LongAdder lockTimeouts = new LongAdder();
+  final LongAdder retries = new LongAdder();
+  final LongAdder lostNanos = new LongAdder();
+
+  /**
+   * @return deadlock cycles found by the watchdog
+   */
+  public long getDetectedDeadlocks() {
+    return detectedDeadlocks.sum();
+  }
+
+  /**
+   * @return cycles the watchdog couldn't break, e.g. on intrinsic locks like in MoneyTransferRunnableDeadLock
+   */
+  public long getUnrecoverableDeadlocks() {
+    return unrecoverableDeadlocks.sum();
+  }
+
+  public long getAbortedVictims() {
+    return abortedVictims.sum();
+  }
+
+  public long getLockTimeouts() {
+    return lockTimeouts.sum();
+  }
+
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  /**
+   * @return time spent in attempts that had to be given up, plus backoff before retrying them
+   */
+  public long getLostNanos() {
+    return lostNanos.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "detected deadlocks: " + getDetectedDeadlocks()
+        + ", unrecoverable: " + getUnrecoverableDeadlocks()
+        + ", aborted victims: " + getAbortedVictims()
+        + ", lock timeouts: " + getLockTimeouts()
+        + ", retries: " + getRetries()
+        + ", time lost: " + getLostNanos() / 1_000_000 + " ms";
+  }
+}
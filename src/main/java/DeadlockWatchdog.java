@@ -0,0 +1,114 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically asks the JVM for deadlocked threads (ThreadMXBean.findDeadlockedThreads covers both
+ * monitors and ReentrantLocks) and breaks every cycle it finds by aborting one transfer of the engine in each.
+ * The deadlocked threads are split into cycles by following the owner of the lock each one waits for.
+ * The victim of a cycle is its thread with the highest id, so the choice is the same on every check
+ * and the older transfers get to finish.
+ * Cycles on intrinsic locks, like the one in MoneyTransferRunnableDeadLock, can't be broken because
+ * a thread waiting to enter synchronized ignores interrupts; they are only counted and reported.
+ */
+public class DeadlockWatchdog implements AutoCloseable {
+  private final DeadlockRecoveringTransferEngine engine;
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final ScheduledExecutorService scheduler;
+  private long[] lastUnrecoverable = new long[0];
+
+  public DeadlockWatchdog(DeadlockRecoveringTransferEngine engine, long checkInterval, TimeUnit unit) {
+    this.engine = engine;
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "deadlock-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::check, checkInterval, checkInterval, unit);
+  }
+
+  public DeadlockStats getStats() {
+    return engine.getStats();
+  }
+
+  void check() {
+    long[] deadlocked = threads.findDeadlockedThreads();
+    if (deadlocked == null) {
+      return;
+    }
+    List<Long> stuck = new ArrayList<>();
+    for (long[] cycle : cycles(deadlocked)) {
+      if (abortOne(cycle)) {
+        engine.getStats().detectedDeadlocks.increment();
+      } else {
+        for (long id : cycle) {
+          stuck.add(id);
+        }
+      }
+    }
+    //nothing we can abort in these, report each stuck set of threads once
+    long[] unrecoverable = stuck.stream().mapToLong(Long::longValue).sorted().toArray();
+    if (unrecoverable.length > 0 && !Arrays.equals(unrecoverable, lastUnrecoverable)) {
+      lastUnrecoverable = unrecoverable;
+      engine.getStats().detectedDeadlocks.increment();
+      engine.getStats().unrecoverableDeadlocks.increment();
+      System.err.println("Deadlock that can't be recovered between threads " + Arrays.toString(unrecoverable));
+    }
+  }
+
+  /**
+   * @param cycle thread ids sorted ascending
+   */
+  private boolean abortOne(long[] cycle) {
+    for (int i = cycle.length - 1; i >= 0; i--) {
+      if (engine.abort(cycle[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Each cycle of "waits for a lock owned by" among the deadlocked threads, as thread ids sorted ascending.
+   * A thread that got its lock since findDeadlockedThreads breaks its chain, the next check looks again.
+   */
+  private List<long[]> cycles(long[] deadlocked) {
+    Map<Long, Long> owners = new HashMap<>();
+    for (ThreadInfo info : threads.getThreadInfo(deadlocked)) {
+      if (info != null) {
+        owners.put(info.getThreadId(), info.getLockOwnerId());
+      }
+    }
+    Set<Long> visited = new HashSet<>();
+    List<long[]> cycles = new ArrayList<>();
+    for (long id : deadlocked) {
+      List<Long> path = new ArrayList<>();
+      Long current = id;
+      while (owners.containsKey(current) && !visited.contains(current) && !path.contains(current)) {
+        path.add(current);
+        current = owners.get(current);
+      }
+      int start = path.indexOf(current);
+      if (start >= 0) {
+        cycles.add(path.subList(start, path.size()).stream().mapToLong(Long::longValue).sorted().toArray());
+      }
+      visited.addAll(path);
+    }
+    return cycles;
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+}
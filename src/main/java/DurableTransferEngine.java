@@ -0,0 +1,108 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.IntFunction;
+
+/**
+ * Striped-lock transfers on a PrimitiveAccountStore that survive a restart.
+ * A transfer is applied in memory and appended to the journal while its stripes are still locked,
+ * so a transfer that spends money received from another one always comes after it in the journal.
+ * It returns only once its record is on disk, waiting for the group commit outside the locks.
+ * If the process dies before that, the transfer was never acknowledged and the in-memory change dies
+ * with the process; if it dies after, replay repeats it together with everything it depended on.
+ */
+public class DurableTransferEngine implements AutoCloseable {
+  private final PrimitiveAccountStore store;
+  private final TransferJournal journal;
+  private final StripedLockTransferEngine locks = new StripedLockTransferEngine();
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("DurableTransferEngine");
+
+  private DurableTransferEngine(PrimitiveAccountStore store, TransferJournal journal) {
+    this.store = store;
+    this.journal = journal;
+  }
+
+  /**
+   * Opens the journal in directory and restores all accounts and transfers from it into a new store.
+   */
+  public static DurableTransferEngine open(Path directory, int capacity) throws IOException {
+    return open(directory, capacity, TransferJournal.DEFAULT_SEGMENT_SIZE);
+  }
+
+  public static DurableTransferEngine open(Path directory, int capacity, int segmentSize) throws IOException {
+    PrimitiveAccountStore store = new PrimitiveAccountStore(capacity);
+    return new DurableTransferEngine(store, TransferJournal.open(directory, segmentSize, store));
+  }
+
+  public PrimitiveAccountStore getStore() {
+    return store;
+  }
+
+  /**
+   * Synchronized so ids are journaled in the order the store assigns them, replay depends on it.
+   */
+  public synchronized int createAccount(long initialBalance, String name) {
+    int id = store.create(initialBalance, name);
+    journal.awaitDurable(journal.appendCreate(id, initialBalance));
+    return id;
+  }
+
+  /**
+   * Opens count accounts at once and waits for the disk only once, e.g. when loading a bank.
+   * @return id of the first account, the others follow it
+   */
+  public synchronized int createAccounts(int count, long initialBalance, IntFunction<String> names) {
+    int firstId = store.size();
+    long sequence = journal.getLastSequence();
+    for (int i = 0; i < count; i++) {
+      sequence = journal.appendCreate(store.create(initialBalance, names.apply(i)), initialBalance);
+    }
+    journal.awaitDurable(sequence);
+    return firstId;
+  }
+
+  public long getBalance(int id) {
+    int stripe = locks.stripeFor(id);
+    locks.lockInOrder(stripe, stripe);
+    try {
+      return store.getBalancePlain(id);
+    } finally {
+      locks.unlock(stripe, stripe);
+    }
+  }
+
+  public void transfer(int fromId, int toId, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    int fromStripe = locks.stripeFor(fromId);
+    int toStripe = locks.stripeFor(toId);
+    long sequence;
+
+    long start = metrics.start();
+    try {
+      locks.lockInOrder(fromStripe, toStripe);
+      long locked = metrics.now(start);
+      try {
+        long fromBalance = store.getBalancePlain(fromId);
+        if (fromBalance < amount) {
+          metrics.recordInsufficientFunds();
+          throw new InsufficientFundsException();
+        }
+        Money.add(store.getBalancePlain(toId), amount);
+        store.setBalancePlain(fromId, fromBalance - amount);
+        store.setBalancePlain(toId, store.getBalancePlain(toId) + amount);
+        sequence = journal.appendTransfer(fromId, toId, amount);
+      } finally {
+        locks.unlock(fromStripe, toStripe);
+        metrics.recordLocks(start, locked);
+      }
+      journal.awaitDurable(sequence);
+    } finally {
+      //latency includes waiting for the group commit
+      metrics.recordTransfer(start);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    journal.close();
+  }
+}
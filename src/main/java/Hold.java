@@ -0,0 +1,58 @@
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Money taken from an account by HoldTransferEngine.reserve and not yet paid out or given back.
+ * It ends exactly once: the first of commit, release and the expiry timer to move it out of HELD
+ * decides where the money goes, the others find it already final.
+ */
+public final class Hold {
+  public enum State {
+    HELD, COMMITTED, RELEASED, EXPIRED
+  }
+
+  private final long id;
+  private final BankAccount account;
+  private final long amount;
+  private final long deadlineNanos;
+  final long metricsStart;
+  private final AtomicReference<State> state = new AtomicReference<>(State.HELD);
+  volatile ScheduledFuture<?> expiry;
+
+  Hold(long id, BankAccount account, long amount, long deadlineNanos, long metricsStart) {
+    this.id = id;
+    this.account = account;
+    this.amount = amount;
+    this.deadlineNanos = deadlineNanos;
+    this.metricsStart = metricsStart;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public BankAccount getAccount() {
+    return account;
+  }
+
+  public long getAmount() {
+    return amount;
+  }
+
+  public State getState() {
+    return state.get();
+  }
+
+  boolean isPastDeadline() {
+    return System.nanoTime() - deadlineNanos > 0;
+  }
+
+  boolean finish(State finalState) {
+    return state.compareAndSet(State.HELD, finalState);
+  }
+
+  @Override
+  public String toString() {
+    return "Hold " + id + " of " + amount + " on " + account.getName() + " (" + state.get() + ")";
+  }
+}
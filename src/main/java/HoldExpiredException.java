@@ -0,0 +1,5 @@
+/**
+ * The hold timed out before it was committed, its amount is back on the account it was taken from.
+ */
+public class HoldExpiredException extends RuntimeException {
+}
@@ -0,0 +1,184 @@
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-phase transfers for when something slow has to happen between checking the funds and moving them
+ * (the Thread.sleep(200) in MoneyTransferRunnableMutex, a fraud check in real life).
+ * Holding a lock across that work makes every transfer on the same lock wait for it. Here:
+ * 1. reserve - under the account's stripe lock, checks the balance and moves the amount out of it into a hold
+ *              (or throws InsufficientFundsException), a few nanoseconds of locking
+ * 2. the slow work runs with no lock held; the reserved money can't be spent by anyone else meanwhile
+ * 3. commit  - deposits the held amount to the target under its stripe lock; release gives it back instead
+ * A hold that is neither committed nor released within its timeout expires and the amount returns to the account.
+ *
+ * Pass the StripedLockTransferEngine that also runs the direct transfers on these accounts, so both use the same stripes.
+ */
+public class HoldTransferEngine implements AutoCloseable {
+  public static final long DEFAULT_HOLD_TIMEOUT_MILLIS = 30_000;
+
+  private final StripedLockTransferEngine locks;
+  private final long defaultTimeoutNanos;
+  private final AtomicLong nextHoldId = new AtomicLong();
+  private final AtomicLong heldTotal = new AtomicLong();
+  private final ScheduledThreadPoolExecutor expiry = newExpiryTimer();
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("HoldTransferEngine");
+
+  public HoldTransferEngine() {
+    this(new StripedLockTransferEngine(), DEFAULT_HOLD_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public HoldTransferEngine(StripedLockTransferEngine locks, long defaultTimeout, TimeUnit unit) {
+    this.locks = locks;
+    this.defaultTimeoutNanos = unit.toNanos(defaultTimeout);
+  }
+
+  private static ScheduledThreadPoolExecutor newExpiryTimer() {
+    ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "hold-expiry");
+      thread.setDaemon(true);
+      return thread;
+    });
+    //most holds are committed long before they expire, their timers shouldn't pile up in the queue until then
+    timer.setRemoveOnCancelPolicy(true);
+    return timer;
+  }
+
+  public Hold reserve(BankAccount account, long amount) throws InsufficientFundsException {
+    return reserve(account, amount, defaultTimeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @throws InsufficientFundsException if the balance doesn't cover the amount, nothing is held then
+   * @throws IllegalStateException if the engine was closed, nothing is held then
+   */
+  public Hold reserve(BankAccount account, long amount, long timeout, TimeUnit unit) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    if (expiry.isShutdown()) {
+      throw new IllegalStateException("hold engine is closed");
+    }
+    long start = metrics.start();
+    int stripe = locks.stripeFor(account);
+    locks.lockInOrder(stripe, stripe);
+    long locked = metrics.now(start);
+    try {
+      if (account.getBalance() < amount) {
+        metrics.recordInsufficientFunds();
+        throw new InsufficientFundsException();
+      }
+      account.withdraw(amount);
+      heldTotal.addAndGet(amount);
+    } finally {
+      locks.unlock(stripe, stripe);
+      metrics.recordLocks(start, locked);
+    }
+    long timeoutNanos = unit.toNanos(timeout);
+    Hold hold = new Hold(nextHoldId.incrementAndGet(), account, amount, System.nanoTime() + timeoutNanos, start);
+    try {
+      hold.expiry = expiry.schedule(() -> expire(hold), timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      //closed since the check above: a hold nothing would ever expire must not keep the money
+      hold.finish(Hold.State.RELEASED);
+      refund(hold);
+      throw new IllegalStateException("hold engine is closed", e);
+    }
+    return hold;
+  }
+
+  /**
+   * Pays the held amount to toAccount.
+   * @throws HoldExpiredException if the hold timed out first, the money is back on the source account then
+   * @throws IllegalStateException if the hold was already committed or released
+   * @throws ArithmeticException if toAccount would overflow, the hold stays open and can be released
+   */
+  public void commit(Hold hold, BankAccount toAccount) {
+    if (hold.isPastDeadline()) {
+      expire(hold);
+    }
+    int stripe = locks.stripeFor(toAccount);
+    locks.lockInOrder(stripe, stripe);
+    try {
+      Money.add(toAccount.getBalance(), hold.getAmount());
+      if (!hold.finish(Hold.State.COMMITTED)) {
+        throw finalStateError(hold);
+      }
+      toAccount.deposit(hold.getAmount());
+      heldTotal.addAndGet(-hold.getAmount());
+    } finally {
+      locks.unlock(stripe, stripe);
+    }
+    hold.expiry.cancel(false);
+    metrics.recordTransfer(hold.metricsStart);
+  }
+
+  /**
+   * Gives the held amount back to the account it was reserved on.
+   * @return false if the hold had already ended (committed, released or expired)
+   */
+  public boolean release(Hold hold) {
+    if (!hold.finish(Hold.State.RELEASED)) {
+      return false;
+    }
+    hold.expiry.cancel(false);
+    refund(hold);
+    metrics.recordTransfer(hold.metricsStart);
+    return true;
+  }
+
+  private void expire(Hold hold) {
+    if (hold.finish(Hold.State.EXPIRED)) {
+      refund(hold);
+      metrics.recordAbort();
+    }
+  }
+
+  private void refund(Hold hold) {
+    BankAccount account = hold.getAccount();
+    int stripe = locks.stripeFor(account);
+    locks.lockInOrder(stripe, stripe);
+    try {
+      account.deposit(hold.getAmount());
+      heldTotal.addAndGet(-hold.getAmount());
+    } finally {
+      locks.unlock(stripe, stripe);
+    }
+  }
+
+  private static RuntimeException finalStateError(Hold hold) {
+    if (hold.getState() == Hold.State.EXPIRED) {
+      return new HoldExpiredException();
+    }
+    return new IllegalStateException(hold + " has already ended");
+  }
+
+  /**
+   * reserve, slowWork with no lock held, then commit; if slowWork or commit throws (e.g. ArithmeticException
+   * when toAccount would overflow), the hold is released.
+   */
+  public void transfer(BankAccount fromAccount, BankAccount toAccount, long amount, Runnable slowWork) throws InsufficientFundsException {
+    Hold hold = reserve(fromAccount, amount);
+    try {
+      slowWork.run();
+      commit(hold, toAccount);
+    } catch (RuntimeException | Error e) {
+      release(hold);
+      throw e;
+    }
+  }
+
+  /**
+   * Money reserved and not yet committed or given back. Balances plus this is all the money.
+   */
+  public long getHeldTotal() {
+    return heldTotal.get();
+  }
+
+  /**
+   * Stops the expiry timer; holds still open stay held until committed or released, new ones are rejected.
+   */
+  @Override
+  public void close() {
+    expiry.shutdownNow();
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Two-account transfer without any monitors.
+ * The money first leaves fromAccount with a conditional CAS (tryWithdraw), which is the only
+ * place where insufficient funds are detected, so a balance never goes negative.
+ * Then it is deposited to toAccount. If that deposit can't be applied the withdrawal is
+ * compensated by depositing the amount back, so money is never lost or created.
+ * Between the two steps the amount is "in flight": each account is always consistent on its own,
+ * but a reader summing both balances at that moment sees the total reduced by the amount.
+ */
+public class LockFreeTransferEngine {
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("LockFreeTransferEngine");
+
+  public void transfer(AtomicBankAccount fromAccount, AtomicBankAccount toAccount, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    long start = metrics.start();
+    try {
+      if (!fromAccount.tryWithdraw(amount)) {
+        metrics.recordInsufficientFunds();
+        throw new InsufficientFundsException();
+      }
+      if (!toAccount.tryDeposit(amount)) {
+        //compensation: the withdrawn amount fits back because it was just taken out of fromAccount
+        fromAccount.deposit(amount);
+        throw new ArithmeticException("balance overflow on " + toAccount.getName());
+      }
+    } finally {
+      metrics.recordTransfer(start);
+    }
+  }
+
+  /**
+   * Same protocol for accounts with a padded balance.
+   */
+  public void transfer(PaddedAtomicBankAccount fromAccount, PaddedAtomicBankAccount toAccount, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    long start = metrics.start();
+    try {
+      if (!fromAccount.tryWithdraw(amount)) {
+        metrics.recordInsufficientFunds();
+        throw new InsufficientFundsException();
+      }
+      if (!toAccount.tryDeposit(amount)) {
+        fromAccount.deposit(amount);
+        throw new ArithmeticException("balance overflow on " + toAccount.getName());
+      }
+    } finally {
+      metrics.recordTransfer(start);
+    }
+  }
+
+  /**
+   * Same protocol for accounts that may be hot.
+   */
+  public void transfer(AdaptiveBankAccount fromAccount, AdaptiveBankAccount toAccount, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    long start = metrics.start();
+    try {
+      if (!fromAccount.tryWithdraw(amount)) {
+        metrics.recordInsufficientFunds();
+        throw new InsufficientFundsException();
+      }
+      if (!toAccount.tryDeposit(amount)) {
+        fromAccount.deposit(amount);
+        throw new ArithmeticException("balance overflow on " + toAccount.getName());
+      }
+    } finally {
+      metrics.recordTransfer(start);
+    }
+  }
+
+  /**
+   * Same protocol for accounts kept in a PrimitiveAccountStore.
+   */
+  public void transfer(PrimitiveAccountStore store, int fromId, int toId, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    long start = metrics.start();
+    try {
+      if (!store.tryWithdraw(fromId, amount)) {
+        metrics.recordInsufficientFunds();
+        throw new InsufficientFundsException();
+      }
+      if (!store.tryDeposit(toId, amount)) {
+        store.deposit(fromId, amount);
+        throw new ArithmeticException("balance overflow on " + store.getName(toId));
+      }
+    } finally {
+      metrics.recordTransfer(start);
+    }
+  }
+}
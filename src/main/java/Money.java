@@ -0,0 +1,82 @@
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * Amounts and balances are plain longs counting minor units of the currency (cents for USD, yen for JPY),
+ * so money needs no objects: no allocation per operation like with BigDecimal, no boxing, and a long
+ * holds balances up to 92 quadrillion dollars instead of the 21 million an int of cents can hold.
+ *
+ * Arithmetic goes through these methods instead of + - *: they throw ArithmeticException on overflow
+ * like Math.addExact, so a balance never wraps around into negative money.
+ * Conversion from and to decimal text is the only place that allocates and the only place
+ * where the currency (its number of fraction digits) matters.
+ */
+public final class Money {
+  private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+  private static final long BASIS_POINTS = 10_000;
+
+  private Money() {
+  }
+
+  public static long add(long balance, long amount) {
+    return Math.addExact(balance, amount);
+  }
+
+  public static long subtract(long balance, long amount) {
+    return Math.subtractExact(balance, amount);
+  }
+
+  public static long multiply(long amount, long factor) {
+    return Math.multiplyExact(amount, factor);
+  }
+
+  /**
+   * Share of an amount in basis points (1/100 of a percent), e.g. a 0.25% fee is fraction(amount, 25).
+   * Rounded half to even to the minor unit, like BigDecimal with RoundingMode.HALF_EVEN.
+   */
+  public static long fraction(long amount, long basisPoints) {
+    long product = Math.multiplyExact(amount, basisPoints);
+    long quotient = product / BASIS_POINTS;
+    long remainder = Math.abs(product % BASIS_POINTS);
+    if (remainder * 2 > BASIS_POINTS || remainder * 2 == BASIS_POINTS && (quotient & 1) != 0) {
+      quotient += product < 0 ? -1 : 1;
+    }
+    return quotient;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the amount of a transfer, deposit or withdrawal is negative
+   */
+  public static long checkAmount(long amount) {
+    if (amount < 0) {
+      throw new IllegalArgumentException("amount must not be negative: " + amount);
+    }
+    return amount;
+  }
+
+  /**
+   * @return whole units of the currency (dollars) in minor units (cents)
+   */
+  public static long ofMajor(long major, Currency currency) {
+    return Math.multiplyExact(major, POWERS_OF_TEN[fractionDigits(currency)]);
+  }
+
+  /**
+   * "12.34" USD is 1234. More fraction digits than the currency has are an error, not rounded away.
+   */
+  public static long parse(String amount, Currency currency) {
+    return new BigDecimal(amount).movePointRight(fractionDigits(currency)).longValueExact();
+  }
+
+  /**
+   * 1234 USD is "12.34".
+   */
+  public static String format(long minorUnits, Currency currency) {
+    return BigDecimal.valueOf(minorUnits, fractionDigits(currency)).toPlainString();
+  }
+
+  private static int fractionDigits(Currency currency) {
+    //pseudo-currencies like XAU report -1, count them in whole units
+    return Math.max(0, currency.getDefaultFractionDigits());
+  }
+}
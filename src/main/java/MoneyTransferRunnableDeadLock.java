@@ -2,21 +2,20 @@
 public class MoneyTransferRunnableDeadLock implements Runnable{
   private BankAccount fromAccount;
   private BankAccount toAccount;
-  private int amount;
+  private long amount;
+  private static final TransferEventLog eventLog = TransferEventLog.shared();
 
 
-  public MoneyTransferRunnableDeadLock(BankAccount fromAccount, BankAccount toAccount, int amount) {
+  public MoneyTransferRunnableDeadLock(BankAccount fromAccount, BankAccount toAccount, long amount) {
     this.fromAccount = fromAccount;
     this.toAccount = toAccount;
     this.amount = amount;
   }
 
   public void run(){
-    String threadName = Thread.currentThread().getName();
-
     synchronized (fromAccount) {
 
-      System.out.println(threadName+" acquired lock " +fromAccount.getName());
+      eventLog.acquiredLock(fromAccount);
       try {  //sleep to catch deadlock
         Thread.sleep(100L);
       } catch (InterruptedException e) {
@@ -24,7 +23,7 @@ public class MoneyTransferRunnableDeadLock implements Runnable{
       }
 
       synchronized (toAccount) {
-        System.out.println(threadName+" acquired lock " +toAccount.getName());
+        eventLog.acquiredLock(toAccount);
         if (fromAccount.getBalance() < amount) {
           throw new InsufficientFundsException();
         } else {
@@ -0,0 +1,31 @@
+public class MoneyTransferRunnableDeadLockRecovery implements Runnable {
+  private DeadlockRecoveringTransferEngine engine;
+  private BankAccount fromAccount;
+  private BankAccount toAccount;
+  private long amount;
+
+  public MoneyTransferRunnableDeadLockRecovery(DeadlockRecoveringTransferEngine engine, BankAccount fromAccount, BankAccount toAccount, long amount) {
+    this.engine = engine;
+    this.fromAccount = fromAccount;
+    this.toAccount = toAccount;
+    this.amount = amount;
+  }
+
+  public void run() {
+    String threadName = Thread.currentThread().getName();
+
+    try {
+      //same lock order as MoneyTransferRunnableDeadLock, including the sleep to catch deadlock
+      engine.transfer(fromAccount, toAccount, amount, () -> {
+        try {
+          Thread.sleep(100L);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      System.out.println(threadName + " transferred " + amount + " from " + fromAccount.getName() + " to " + toAccount.getName());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
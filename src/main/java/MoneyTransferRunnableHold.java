@@ -0,0 +1,42 @@
+/**
+ * MoneyTransferRunnableMutex with the processing time outside the lock: the amount is reserved in a short
+ * critical section, the 200 ms run with no lock held, and only then is the hold committed to the target.
+ * Transfers from the same account run their processing in parallel and can't overdraw it.
+ */
+public class MoneyTransferRunnableHold implements Runnable {
+  private static final TransferEventLog eventLog = TransferEventLog.shared();
+
+  private HoldTransferEngine engine;
+  private BankAccount fromAccount;
+  private BankAccount toAccount;
+  private long amount;
+
+  public MoneyTransferRunnableHold(HoldTransferEngine engine, BankAccount fromAccount, BankAccount toAccount, long amount) {
+    this.engine = engine;
+    this.fromAccount = fromAccount;
+    this.toAccount = toAccount;
+    this.amount = amount;
+  }
+
+  public void run() {
+    Hold hold;
+    try {
+      hold = engine.reserve(fromAccount, amount);
+    } catch (InsufficientFundsException e) {
+      eventLog.insufficientFunds(fromAccount, amount);
+      return;
+    }
+    eventLog.withdrew(fromAccount, amount);
+    // Simulate some processing time
+    try {
+      Thread.sleep(200);
+    } catch (InterruptedException e) {
+      engine.release(hold);
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    engine.commit(hold, toAccount);
+    eventLog.deposited(toAccount, amount);
+  }
+}
@@ -0,0 +1,24 @@
+public class MoneyTransferRunnableLockFree implements Runnable {
+  private static final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+
+  private AtomicBankAccount fromAccount;
+  private AtomicBankAccount toAccount;
+  private long amount;
+
+  public MoneyTransferRunnableLockFree(AtomicBankAccount fromAccount, AtomicBankAccount toAccount, long amount) {
+    this.fromAccount = fromAccount;
+    this.toAccount = toAccount;
+    this.amount = amount;
+  }
+
+  public void run() {
+    String threadName = Thread.currentThread().getName();
+
+    try {
+      engine.transfer(fromAccount, toAccount, amount);
+      System.out.println(threadName + " transferred " + amount + " from " + fromAccount.getName() + " to " + toAccount.getName());
+    } catch (InsufficientFundsException e) {
+      System.out.println(threadName + " does nothing cause it's less then " + amount + "$ on " + fromAccount.getName());
+    }
+  }
+}
@@ -3,22 +3,21 @@ import java.util.concurrent.locks.ReentrantLock;
 public class MoneyTransferRunnableMutex  implements Runnable{
   private BankAccount fromAccount;
   private BankAccount toAccount;
-  private int amount;
+  private long amount;
   private static final ReentrantLock lock = new ReentrantLock();
+  private static final TransferEventLog eventLog = TransferEventLog.shared();
 
-  public MoneyTransferRunnableMutex(BankAccount fromAccount, BankAccount toAccount, int amount) {
+  public MoneyTransferRunnableMutex(BankAccount fromAccount, BankAccount toAccount, long amount) {
     this.fromAccount = fromAccount;
     this.toAccount = toAccount;
     this.amount = amount;
   }
 
   public void run() {
-    String threadName = Thread.currentThread().getName();
-
     lock.lock();
     try {
       fromAccount.withdraw(amount);
-      System.out.println(threadName + " withdrew " + amount + " from " + fromAccount.getName() + " (" + fromAccount.getBalance() + "$)");
+      eventLog.withdrew(fromAccount, amount);
 
 
       try {
@@ -28,7 +27,7 @@ public class MoneyTransferRunnableMutex  implements Runnable{
       }
 
       toAccount.deposit(amount);
-      System.out.println(threadName + " deposited " + amount + " to " + toAccount.getName() + " (" + toAccount.getBalance() + "$)");
+      eventLog.deposited(toAccount, amount);
     } finally {
       lock.unlock();
     }
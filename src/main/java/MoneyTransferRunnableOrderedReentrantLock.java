@@ -0,0 +1,63 @@
+import java.util.concurrent.locks.Lock;
+
+/**
+ * MoneyTransferRunnableWithIdentityHashCode with ReentrantLocks instead of synchronized.
+ * A virtual thread blocked in synchronized stays pinned to its carrier thread, while one waiting for
+ * a ReentrantLock unmounts and lets the carrier run other virtual threads.
+ * Locks are per account id, so ordering by id is total: two accounts with the same id share one lock
+ * and no tie-breaking lock is needed.
+ * The locks come from AccountLocks, so with new AccountLocks(SpinThenParkLock::new) the same ordering runs
+ * on locks that spin before they park.
+ */
+public class MoneyTransferRunnableOrderedReentrantLock implements Runnable {
+  private static final AccountLocks sharedLocks = new AccountLocks();
+  private static final TransferMetrics metrics = TransferMetrics.forStrategy("MoneyTransferRunnableOrderedReentrantLock");
+
+  private AccountLocks locks;
+  private BankAccount fromAccount;
+  private BankAccount toAccount;
+  private long amount;
+
+  public MoneyTransferRunnableOrderedReentrantLock(BankAccount fromAccount, BankAccount toAccount, long amount) {
+    this(sharedLocks, fromAccount, toAccount, amount);
+  }
+
+  public MoneyTransferRunnableOrderedReentrantLock(AccountLocks locks, BankAccount fromAccount, BankAccount toAccount, long amount) {
+    this.locks = locks;
+    this.fromAccount = fromAccount;
+    this.toAccount = toAccount;
+    this.amount = Money.checkAmount(amount);
+  }
+
+  public void transfer() throws InsufficientFundsException {
+    if (fromAccount.getBalance() < amount) {
+      metrics.recordInsufficientFunds();
+      throw new InsufficientFundsException();
+    } else {
+      toAccount.deposit(amount);
+      fromAccount.withdraw(amount);
+    }
+  }
+
+  public void run() {
+    boolean fromFirst = fromAccount.getId() <= toAccount.getId();
+    Lock first = locks.lockFor(fromFirst ? fromAccount : toAccount);
+    Lock second = locks.lockFor(fromFirst ? toAccount : fromAccount);
+
+    long start = metrics.start();
+    long locked = 0;
+    first.lock();
+    try {
+      second.lock();
+      locked = metrics.now(start);
+      try {
+        transfer();
+      } finally {
+        second.unlock();
+      }
+    } finally {
+      first.unlock();
+      metrics.recordLocked(start, locked);
+    }
+  }
+}
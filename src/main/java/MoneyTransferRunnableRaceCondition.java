@@ -1,9 +1,9 @@
 public class MoneyTransferRunnableRaceCondition implements Runnable {
   private BankAccount fromAccount;
   private BankAccount toAccount;
-  private int amount;
+  private long amount;
 
-  public MoneyTransferRunnableRaceCondition(BankAccount fromAccount, BankAccount toAccount, int amount) {
+  public MoneyTransferRunnableRaceCondition(BankAccount fromAccount, BankAccount toAccount, long amount) {
     this.fromAccount = fromAccount;
     this.toAccount = toAccount;
     this.amount = amount;
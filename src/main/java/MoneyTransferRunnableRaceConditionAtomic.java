@@ -1,9 +1,9 @@
 public class MoneyTransferRunnableRaceConditionAtomic implements Runnable {
   private AtomicBankAccount fromAccount;
   private AtomicBankAccount toAccount;
-  private int amount;
+  private long amount;
 
-  public MoneyTransferRunnableRaceConditionAtomic(AtomicBankAccount fromAccount, AtomicBankAccount toAccount, int amount) {
+  public MoneyTransferRunnableRaceConditionAtomic(AtomicBankAccount fromAccount, AtomicBankAccount toAccount, long amount) {
     this.fromAccount = fromAccount;
     this.toAccount = toAccount;
     this.amount = amount;
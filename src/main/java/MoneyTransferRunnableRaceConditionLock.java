@@ -1,22 +1,21 @@
 public class MoneyTransferRunnableRaceConditionLock implements Runnable{
   private BankAccount fromAccount;
   private BankAccount toAccount;
-  private int amount;
+  private long amount;
   //TODO:
   private static final Object lock = new Object();
+  private static final TransferEventLog eventLog = TransferEventLog.shared();
 
-  public MoneyTransferRunnableRaceConditionLock(BankAccount fromAccount, BankAccount toAccount, int amount) {
+  public MoneyTransferRunnableRaceConditionLock(BankAccount fromAccount, BankAccount toAccount, long amount) {
     this.fromAccount = fromAccount;
     this.toAccount = toAccount;
     this.amount = amount;
   }
 
   public void run() { //don't implement synchronised to method because it will not solve race condition
-    String threadName = Thread.currentThread().getName();
-
     synchronized (lock) {
       fromAccount.withdraw(amount);
-      System.out.println(threadName + " withdrew " + amount + " from " + fromAccount.getName() + " (" + fromAccount.getBalance() + "$)");
+      eventLog.withdrew(fromAccount, amount);
       // Simulate some processing time
       try {
         Thread.sleep(200);
@@ -25,7 +24,7 @@ public class MoneyTransferRunnableRaceConditionLock implements Runnable{
       }
 
       toAccount.deposit(amount);
-      System.out.println(threadName + " deposited " + amount + " to " + toAccount.getName() + " (" + toAccount.getBalance() + "$)");
+      eventLog.deposited(toAccount, amount);
     }
   }
 }
@@ -0,0 +1,27 @@
+public class MoneyTransferRunnableStripedLock implements Runnable {
+  private static final StripedLockTransferEngine sharedEngine = new StripedLockTransferEngine();
+
+  private StripedLockTransferEngine engine;
+  private BankAccount fromAccount;
+  private BankAccount toAccount;
+  private long amount;
+
+  public MoneyTransferRunnableStripedLock(BankAccount fromAccount, BankAccount toAccount, long amount) {
+    this(sharedEngine, fromAccount, toAccount, amount);
+  }
+
+  public MoneyTransferRunnableStripedLock(StripedLockTransferEngine engine, BankAccount fromAccount, BankAccount toAccount, long amount) {
+    this.engine = engine;
+    this.fromAccount = fromAccount;
+    this.toAccount = toAccount;
+    this.amount = amount;
+  }
+
+  public void run() {
+    String threadName = Thread.currentThread().getName();
+
+    engine.transfer(fromAccount, toAccount, amount);
+    //printing happens after the stripes are released, so it doesn't stretch the critical section
+    System.out.println(threadName + " transferred " + amount + " from " + fromAccount.getName() + " to " + toAccount.getName());
+  }
+}
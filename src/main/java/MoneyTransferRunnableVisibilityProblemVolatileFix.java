@@ -1,9 +1,9 @@
 public class MoneyTransferRunnableVisibilityProblemVolatileFix implements Runnable{
   private volatile BankAccount fromAccount;
   private volatile BankAccount toAccount;
-  private int amount;
+  private long amount;
 
-  public MoneyTransferRunnableVisibilityProblemVolatileFix(BankAccount fromAccount, BankAccount toAccount, int amount) {
+  public MoneyTransferRunnableVisibilityProblemVolatileFix(BankAccount fromAccount, BankAccount toAccount, long amount) {
     this.fromAccount = fromAccount;
     this.toAccount = toAccount;
     this.amount = amount;
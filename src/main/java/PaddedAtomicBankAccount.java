@@ -0,0 +1,84 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * AtomicBankAccount whose balance has a cache line to itself.
+ * Accounts created one after another, as in the tests, sit next to each other on the heap, and so do their
+ * AtomicLongs: two threads transferring between unrelated accounts can still be writing to the same cache line.
+ * Here the balance is the middle element of an AtomicLongArray with the rest of the slot's longs before and
+ * after it as padding (the JVM may reorder the fields of an object, but not the elements of an array),
+ * so whatever is allocated next to the account is at least a slot away from the balance.
+ * With BalanceLayout.PACKED the array holds just the balance, for comparison.
+ */
+public class PaddedAtomicBankAccount {
+  private final AtomicLongArray slot;
+  private final int index;
+  private final String name;
+
+  public PaddedAtomicBankAccount(long initialBalance, String name) {
+    this(initialBalance, name, BalanceLayout.PADDED);
+  }
+
+  public PaddedAtomicBankAccount(long initialBalance, String name, BalanceLayout layout) {
+    int longs = layout.getLongsPerSlot();
+    //padding of longs - 1 on both sides
+    this.slot = new AtomicLongArray(2 * longs - 1);
+    this.index = longs - 1;
+    this.name = name;
+    slot.set(index, initialBalance);
+  }
+
+  public long getBalance() {
+    return slot.get(index);
+  }
+
+  /**
+   * @throws ArithmeticException if the balance would overflow, the balance is left unchanged
+   */
+  public void deposit(long amount) {
+    long current;
+    do {
+      current = slot.get(index);
+    } while (!slot.compareAndSet(index, current, Money.add(current, amount)));
+  }
+
+  public void withdraw(long amount) {
+    long current;
+    do {
+      current = slot.get(index);
+    } while (!slot.compareAndSet(index, current, Money.subtract(current, amount)));
+  }
+
+  /**
+   * Same conditional CAS as AtomicBankAccount.tryWithdraw.
+   */
+  public boolean tryWithdraw(long amount) {
+    long current;
+    do {
+      current = slot.get(index);
+      if (current < amount) {
+        return false;
+      }
+    } while (!slot.compareAndSet(index, current, current - amount));
+    return true;
+  }
+
+  /**
+   * Deposit that reports an overflow of the balance with false instead of an exception.
+   */
+  public boolean tryDeposit(long amount) {
+    long current;
+    long updated;
+    do {
+      current = slot.get(index);
+      updated = current + amount;
+      if (((current ^ updated) & (amount ^ updated)) < 0) {
+        return false;
+      }
+    } while (!slot.compareAndSet(index, current, updated));
+    return true;
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,21 @@
+public class PayRunnableSingleWriter implements Runnable {
+  private ShardedLedger ledger;
+  private BankAccount fromAccount;
+  private long amount;
+
+  public PayRunnableSingleWriter(ShardedLedger ledger, BankAccount fromAccount, long amount) {
+    this.ledger = ledger;
+    this.fromAccount = fromAccount;
+    this.amount = amount;
+  }
+
+  public void run() {
+    String threadName = Thread.currentThread().getName();
+    //check and withdraw both run on the shard thread that owns the account, no lock needed
+    if (ledger.pay(fromAccount, amount).join()) {
+      System.out.println(threadName + " withdrew " + amount + " from " + fromAccount.getName());
+    } else {
+      System.out.println(threadName + " does nothing cause it's less then " + amount + "$ on" + fromAccount.getName());
+    }
+  }
+}
@@ -1,20 +1,20 @@
 public class PayRunnableVisibilityProblemVolatileFix implements Runnable {
   private  volatile BankAccount fromAccount;
-  private int amount;
+  private long amount;
+  private static final TransferEventLog eventLog = TransferEventLog.shared();
 
-  public PayRunnableVisibilityProblemVolatileFix(BankAccount fromAccount, int amount) {
+  public PayRunnableVisibilityProblemVolatileFix(BankAccount fromAccount, long amount) {
     this.fromAccount = fromAccount;
     this.amount = amount;
   }
 
   public void run() {
-    String threadName = Thread.currentThread().getName();
     if (fromAccount.getBalance() < amount) {
-      System.out.println(threadName + " does nothing cause it's less then "+amount+"$ on" + fromAccount.getName());
+      eventLog.insufficientFunds(fromAccount, amount);
 
     } else {
       fromAccount.withdraw(amount);
-      System.out.println(threadName + " withdrew " + amount + " from " + fromAccount.getName() + " (" + fromAccount.getBalance() + "$)");
+      eventLog.withdrew(fromAccount, amount);
 
     }
   }
@@ -0,0 +1,165 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accounts without an object per account: balances live in one long[] indexed by a dense account id,
+ * names in a separate table of distinct strings referenced by an int code.
+ * Ten million accounts are one 80 MB primitive array the GC never has to trace, instead of
+ * ten million BankAccount objects plus their AtomicIntegers to mark and copy.
+ * Access goes through an array VarHandle: getVolatile/compareAndSet/getAndAdd for the lock-free
+ * strategies, plain get/set for strategies that guard balances with their own locks.
+ * Balances are packed by default; a store updated by many threads at once can space them out instead
+ * (BalanceLayout.PADDED), so transfers between neighbouring ids don't invalidate each other's cache lines,
+ * at 8 or 16 times the memory for balances.
+ */
+public class PrimitiveAccountStore {
+  private static final VarHandle BALANCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final long[] balances;
+  private final BalanceLayout layout;
+  //balance of account id is at (id << slotShift) + slotOffset
+  private final int slotShift;
+  private final int slotOffset;
+  private final int[] nameCodes;
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final Map<String, Integer> nameCodeByName = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  public PrimitiveAccountStore(int capacity) {
+    this(capacity, BalanceLayout.PACKED);
+  }
+
+  public PrimitiveAccountStore(int capacity, BalanceLayout layout) {
+    this.layout = layout;
+    slotShift = layout.shift();
+    //spaced layouts leave one spare slot in front, so the first balance isn't next to the array header
+    slotOffset = layout == BalanceLayout.PACKED ? 0 : layout.getLongsPerSlot();
+    balances = new long[Math.multiplyExact(capacity + (slotOffset == 0 ? 0 : 1), layout.getLongsPerSlot())];
+    nameCodes = new int[capacity];
+  }
+
+  public int getCapacity() {
+    return nameCodes.length;
+  }
+
+  public BalanceLayout getLayout() {
+    return layout;
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * @return id of the new account, ids are dense and start at 0
+   */
+  public int create(long initialBalance, String name) {
+    int id = size.getAndIncrement();
+    if (id >= nameCodes.length) {
+      size.decrementAndGet();
+      throw new IllegalStateException("store is full: " + nameCodes.length + " accounts");
+    }
+    nameCodes[id] = internName(name);
+    //volatile write publishes the name code together with the balance
+    BALANCE.setVolatile(balances, slot(id), initialBalance);
+    return id;
+  }
+
+  private synchronized int internName(String name) {
+    Integer code = nameCodeByName.get(name);
+    if (code == null) {
+      code = names.size();
+      names.add(name);
+      nameCodeByName.put(name, code);
+    }
+    return code;
+  }
+
+  public synchronized String getName(int id) {
+    return names.get(nameCodes[checkId(id)]);
+  }
+
+  public long getBalance(int id) {
+    return (long) BALANCE.getVolatile(balances, slot(checkId(id)));
+  }
+
+  public void deposit(int id, long amount) {
+    BALANCE.getAndAdd(balances, slot(checkId(id)), amount);
+  }
+
+  /**
+   * Same overflow check as AtomicBankAccount.tryDeposit.
+   */
+  public boolean tryDeposit(int id, long amount) {
+    int slot = slot(checkId(id));
+    long current;
+    long updated;
+    do {
+      current = (long) BALANCE.getVolatile(balances, slot);
+      updated = current + amount;
+      if (((current ^ updated) & (amount ^ updated)) < 0) {
+        return false;
+      }
+    } while (!BALANCE.compareAndSet(balances, slot, current, updated));
+    return true;
+  }
+
+  public void withdraw(int id, long amount) {
+    BALANCE.getAndAdd(balances, slot(checkId(id)), -amount);
+  }
+
+  /**
+   * Same conditional CAS loop as AtomicBankAccount.tryWithdraw.
+   */
+  public boolean tryWithdraw(int id, long amount) {
+    int slot = slot(checkId(id));
+    long current;
+    do {
+      current = (long) BALANCE.getVolatile(balances, slot);
+      if (current < amount) {
+        return false;
+      }
+    } while (!BALANCE.compareAndSet(balances, slot, current, current - amount));
+    return true;
+  }
+
+  /**
+   * Plain read, only for callers that hold a lock guarding this account.
+   */
+  public long getBalancePlain(int id) {
+    return balances[slot(checkId(id))];
+  }
+
+  /**
+   * Plain write, only for callers that hold a lock guarding this account.
+   */
+  public void setBalancePlain(int id, long balance) {
+    balances[slot(checkId(id))] = balance;
+  }
+
+  public long totalBalance() {
+    long total = 0;
+    int count = size.get();
+    for (int id = 0; id < count; id++) {
+      total += (long) BALANCE.getVolatile(balances, slot(id));
+    }
+    return total;
+  }
+
+  private int slot(int id) {
+    return (id << slotShift) + slotOffset;
+  }
+
+  private int checkId(int id) {
+    if (id < 0 || id >= size.get()) {
+      throw new IllegalArgumentException("unknown account id " + id);
+    }
+    return id;
+  }
+}
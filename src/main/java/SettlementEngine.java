@@ -0,0 +1,259 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-of-day settlement of a large batch of transfers by netting. Replaying the batch one transfer at a time
+ * locks and writes two accounts per transfer, although most of it cancels out: A pays B, B pays A, A pays B again.
+ * Here the batch is reduced to one delta per account and only those are applied:
+ * 1. the transfers are split into one chunk per worker, each chunk sums into its own long[] of deltas, no sharing
+ * 2. the per-chunk deltas are added up per account, in parallel over account ranges, checking every account
+ *    whose net delta is negative against its balance
+ * 3. if every account can cover its net outflow, each changed balance is written once
+ * The insufficient-funds rule applies to the netted result: a transfer may spend money that arrives later in the
+ * same batch, and the batch is accepted or rejected as a whole (a rejected batch changes nothing).
+ *
+ * The store must not be changed by anything else while settle() runs, it reads and writes balances plainly
+ * like TransferJournal replay does.
+ */
+public class SettlementEngine {
+  //below this a chunk or an account range isn't worth another task
+  private static final int MIN_TRANSFERS_PER_CHUNK = 1 << 14;
+  private static final int MIN_ACCOUNTS_PER_RANGE = 1 << 12;
+
+  private final ForkJoinPool pool;
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("SettlementEngine");
+
+  public SettlementEngine() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public SettlementEngine(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Outcome of one settle() call.
+   */
+  public static class Result {
+    private final boolean applied;
+    private final int transfers;
+    private final int changedAccounts;
+    private final int shortAccounts;
+    private final int firstShortAccount;
+
+    Result(boolean applied, int transfers, int changedAccounts, int shortAccounts, int firstShortAccount) {
+      this.applied = applied;
+      this.transfers = transfers;
+      this.changedAccounts = changedAccounts;
+      this.shortAccounts = shortAccounts;
+      this.firstShortAccount = firstShortAccount;
+    }
+
+    /**
+     * @return false if some account couldn't cover its net outflow and nothing was applied
+     */
+    public boolean isApplied() {
+      return applied;
+    }
+
+    public int getTransfers() {
+      return transfers;
+    }
+
+    /**
+     * Accounts whose net delta isn't zero, i.e. the balance writes settlement needed instead of two per transfer.
+     */
+    public int getChangedAccounts() {
+      return changedAccounts;
+    }
+
+    public int getShortAccounts() {
+      return shortAccounts;
+    }
+
+    /**
+     * @return lowest id of an account that couldn't cover its net outflow, -1 if none
+     */
+    public int getFirstShortAccount() {
+      return firstShortAccount;
+    }
+
+    @Override
+    public String toString() {
+      return (applied ? "Settled " : "Rejected ") + transfers + " transfers, " + changedAccounts + " accounts changed, "
+          + shortAccounts + " short" + (firstShortAccount >= 0 ? " (first: " + firstShortAccount + ")" : "");
+    }
+  }
+
+  /**
+   * Settles the transfers fromIds[i] -> toIds[i] of amounts[i] against store.
+   * @throws IllegalArgumentException if the arrays differ in length, an id is unknown or an amount is negative;
+   *                                  nothing is applied then
+   * @throws ArithmeticException if a net delta or a resulting balance overflows, nothing is applied then
+   */
+  public Result settle(PrimitiveAccountStore store, int[] fromIds, int[] toIds, long[] amounts) {
+    if (fromIds.length != toIds.length || fromIds.length != amounts.length) {
+      throw new IllegalArgumentException("fromIds, toIds and amounts must have the same length");
+    }
+    long start = metrics.start();
+    int accountCount = store.size();
+    int transferCount = fromIds.length;
+    int chunks = Math.max(1, Math.min(pool.getParallelism(), transferCount / MIN_TRANSFERS_PER_CHUNK));
+    long[][] chunkDeltas = new long[chunks][];
+    pool.invoke(new NetChunks(fromIds, toIds, amounts, accountCount, chunkDeltas, 0, chunks));
+
+    Check check = new Check();
+    pool.invoke(new MergeAndCheck(store, chunkDeltas, check, 0, accountCount));
+    if (check.shortAccounts.get() > 0) {
+      metrics.recordInsufficientFunds();
+      metrics.recordTransfers(start, transferCount);
+      return new Result(false, transferCount, check.changedAccounts.get(), check.shortAccounts.get(), check.firstShortAccount.get());
+    }
+    //MergeAndCheck left the net deltas in chunkDeltas[0]
+    pool.invoke(new Apply(store, chunkDeltas[0], 0, accountCount));
+    metrics.recordTransfers(start, transferCount);
+    return new Result(true, transferCount, check.changedAccounts.get(), 0, -1);
+  }
+
+  /**
+   * Step 1: splits the chunk range until one chunk is left, which nets its share of the transfers.
+   */
+  private static class NetChunks extends RecursiveAction {
+    private final int[] fromIds;
+    private final int[] toIds;
+    private final long[] amounts;
+    private final int accountCount;
+    private final long[][] chunkDeltas;
+    private final int firstChunk;
+    private final int endChunk;
+
+    NetChunks(int[] fromIds, int[] toIds, long[] amounts, int accountCount, long[][] chunkDeltas, int firstChunk, int endChunk) {
+      this.fromIds = fromIds;
+      this.toIds = toIds;
+      this.amounts = amounts;
+      this.accountCount = accountCount;
+      this.chunkDeltas = chunkDeltas;
+      this.firstChunk = firstChunk;
+      this.endChunk = endChunk;
+    }
+
+    @Override
+    protected void compute() {
+      if (endChunk - firstChunk > 1) {
+        int middle = (firstChunk + endChunk) >>> 1;
+        invokeAll(new NetChunks(fromIds, toIds, amounts, accountCount, chunkDeltas, firstChunk, middle),
+            new NetChunks(fromIds, toIds, amounts, accountCount, chunkDeltas, middle, endChunk));
+        return;
+      }
+      int chunks = chunkDeltas.length;
+      int from = (int) ((long) fromIds.length * firstChunk / chunks);
+      int to = (int) ((long) fromIds.length * endChunk / chunks);
+      long[] deltas = new long[accountCount];
+      for (int i = from; i < to; i++) {
+        int fromId = fromIds[i];
+        int toId = toIds[i];
+        long amount = amounts[i];
+        if (fromId < 0 || fromId >= accountCount || toId < 0 || toId >= accountCount) {
+          throw new IllegalArgumentException("unknown account id in transfer " + i);
+        }
+        Money.checkAmount(amount);
+        deltas[fromId] = Money.subtract(deltas[fromId], amount);
+        deltas[toId] = Money.add(deltas[toId], amount);
+      }
+      chunkDeltas[firstChunk] = deltas;
+    }
+  }
+
+  private static class Check {
+    final AtomicInteger changedAccounts = new AtomicInteger();
+    final AtomicInteger shortAccounts = new AtomicInteger();
+    final AtomicInteger firstShortAccount = new AtomicInteger(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Step 2: adds the chunk deltas of an account range into chunkDeltas[0] and checks the netted balances.
+   */
+  private static class MergeAndCheck extends RecursiveAction {
+    private final PrimitiveAccountStore store;
+    private final long[][] chunkDeltas;
+    private final Check check;
+    private final int from;
+    private final int to;
+
+    MergeAndCheck(PrimitiveAccountStore store, long[][] chunkDeltas, Check check, int from, int to) {
+      this.store = store;
+      this.chunkDeltas = chunkDeltas;
+      this.check = check;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > MIN_ACCOUNTS_PER_RANGE) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new MergeAndCheck(store, chunkDeltas, check, from, middle), new MergeAndCheck(store, chunkDeltas, check, middle, to));
+        return;
+      }
+      long[] net = chunkDeltas[0];
+      int changed = 0;
+      int shortCount = 0;
+      int firstShort = Integer.MAX_VALUE;
+      for (int id = from; id < to; id++) {
+        long delta = net[id];
+        for (int chunk = 1; chunk < chunkDeltas.length; chunk++) {
+          delta = Money.add(delta, chunkDeltas[chunk][id]);
+        }
+        net[id] = delta;
+        if (delta != 0) {
+          changed++;
+          long balance = store.getBalancePlain(id);
+          if (delta < 0 && balance + delta < 0) {
+            shortCount++;
+            firstShort = Math.min(firstShort, id);
+          } else {
+            //throws on overflow before anything is applied
+            Money.add(balance, delta);
+          }
+        }
+      }
+      check.changedAccounts.addAndGet(changed);
+      if (shortCount > 0) {
+        check.shortAccounts.addAndGet(shortCount);
+        check.firstShortAccount.accumulateAndGet(firstShort, Math::min);
+      }
+    }
+  }
+
+  /**
+   * Step 3: one write per changed account.
+   */
+  private static class Apply extends RecursiveAction {
+    private final PrimitiveAccountStore store;
+    private final long[] net;
+    private final int from;
+    private final int to;
+
+    Apply(PrimitiveAccountStore store, long[] net, int from, int to) {
+      this.store = store;
+      this.net = net;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > MIN_ACCOUNTS_PER_RANGE) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new Apply(store, net, from, middle), new Apply(store, net, middle, to));
+        return;
+      }
+      for (int id = from; id < to; id++) {
+        if (net[id] != 0) {
+          store.setBalancePlain(id, store.getBalancePlain(id) + net[id]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,190 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer ledger: accounts are partitioned across shards by id and every shard is owned by one thread
+ * that executes operations from its queue one at a time.
+ * An account is only ever read and written by its shard thread, so check-then-act (like in
+ * PayRunnableVisibilityProblem) needs no locks and can't see stale values: there is nothing to race with.
+ * Once an account is used through the ledger it must not be touched directly any more.
+ *
+ * A transfer between two shards is a message exchange:
+ * 1. reserve - the source shard checks the balance and moves the amount into a hold (or fails with InsufficientFundsException)
+ * 2. credit  - the target shard deposits the amount
+ * 3. commit  - the source shard drops the hold; if the credit failed it aborts instead and returns the amount to the account
+ * Between the steps the money is in a hold on the source shard, never in two places and never lost.
+ */
+public class ShardedLedger implements AutoCloseable {
+  private static final TransferMetrics metrics = TransferMetrics.forStrategy("ShardedLedger");
+
+  private final Shard[] shards;
+
+  public ShardedLedger(int shardCount) {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+    }
+    shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard("ledger-shard-" + i);
+    }
+  }
+
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  Shard shardFor(BankAccount account) {
+    return shards[(int) Math.floorMod(account.getId(), (long) shards.length)];
+  }
+
+  public CompletableFuture<Long> getBalance(BankAccount account) {
+    return shardFor(account).call(account::getBalance);
+  }
+
+  public CompletableFuture<Void> deposit(BankAccount account, long amount) {
+    Money.checkAmount(amount);
+    return shardFor(account).call(() -> {
+      account.deposit(amount);
+      return null;
+    });
+  }
+
+  /**
+   * Withdraws only if the balance covers the amount.
+   * @return future completed with false if funds were insufficient
+   */
+  public CompletableFuture<Boolean> pay(BankAccount account, long amount) {
+    Money.checkAmount(amount);
+    return shardFor(account).call(() -> {
+      if (account.getBalance() < amount) {
+        return false;
+      }
+      account.withdraw(amount);
+      return true;
+    });
+  }
+
+  /**
+   * @return future completed exceptionally with InsufficientFundsException if fromAccount can't cover the amount
+   */
+  public CompletableFuture<Void> transfer(BankAccount fromAccount, BankAccount toAccount, long amount) {
+    Money.checkAmount(amount);
+    Shard fromShard = shardFor(fromAccount);
+    Shard toShard = shardFor(toAccount);
+    long start = metrics.start();
+
+    if (fromShard == toShard) {
+      //no locks: "lock wait" is the time in the shard's queue, "hold" the time the shard thread spends on it
+      return fromShard.call(() -> {
+        long running = metrics.now(start);
+        try {
+          if (fromAccount.getBalance() < amount) {
+            metrics.recordInsufficientFunds();
+            throw new InsufficientFundsException();
+          }
+          toAccount.deposit(amount);
+          fromAccount.withdraw(amount);
+          return null;
+        } finally {
+          metrics.recordLocked(start, running);
+        }
+      });
+    }
+
+    return fromShard.call(() -> {
+      try {
+        return fromShard.reserve(fromAccount, amount);
+      } catch (InsufficientFundsException e) {
+        metrics.recordInsufficientFunds();
+        metrics.recordTransfer(start);
+        throw e;
+      }
+    })
+        .thenCompose(holdId -> toShard.call(() -> {
+              toAccount.deposit(amount);
+              return null;
+            })
+            .handle((ignored, failure) -> failure)
+            .thenCompose(failure -> fromShard.call(() -> {
+              metrics.recordTransfer(start);
+              if (failure == null) {
+                fromShard.commit(holdId);
+                return null;
+              }
+              fromShard.abort(holdId, fromAccount);
+              throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+            })));
+  }
+
+  /**
+   * Sum of the holds of all shards, i.e. money reserved by cross-shard transfers that haven't committed yet.
+   */
+  public CompletableFuture<Long> getReservedTotal() {
+    CompletableFuture<Long> total = CompletableFuture.completedFuture(0L);
+    for (Shard shard : shards) {
+      total = total.thenCombine(shard.call(shard::reservedTotal), Long::sum);
+    }
+    return total;
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    for (Shard shard : shards) {
+      shard.executor.shutdown();
+    }
+    for (Shard shard : shards) {
+      shard.executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  static class Shard {
+    private final ExecutorService executor;
+    //touched only by the shard thread
+    private final Map<Long, Long> holds = new HashMap<>();
+    private long nextHoldId;
+
+    Shard(String name) {
+      executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    <T> CompletableFuture<T> call(Supplier<T> operation) {
+      return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    long reserve(BankAccount account, long amount) {
+      if (account.getBalance() < amount) {
+        throw new InsufficientFundsException();
+      }
+      account.withdraw(amount);
+      long holdId = nextHoldId++;
+      holds.put(holdId, amount);
+      return holdId;
+    }
+
+    void commit(long holdId) {
+      holds.remove(holdId);
+    }
+
+    void abort(long holdId, BankAccount account) {
+      account.deposit(holds.remove(holdId));
+    }
+
+    long reservedTotal() {
+      long total = 0;
+      for (long amount : holds.values()) {
+        total += amount;
+      }
+      return total;
+    }
+  }
+}
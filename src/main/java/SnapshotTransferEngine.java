@@ -0,0 +1,133 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Striped-lock transfers that can be cut at a consistent point in time while they keep running,
+ * for total-money checks and end-of-day reports.
+ *
+ * Every transfer runs in the current epoch. A snapshot starts a new epoch and waits only for the
+ * transfers still running in the old one, so no transfer is half in and half out of the snapshot.
+ * The first transfer of the new epoch that touches an account saves the account's old balance
+ * (copy-on-write, one saved version per account), and old-epoch transfers still finishing after that apply
+ * their change to the saved balance as well. The snapshot then walks the accounts one at a time,
+ * taking the saved balance if the account was written in the new epoch and the current one otherwise.
+ * Transfers never wait for the snapshot, except a few nanoseconds on one stripe while it reads an account.
+ * One snapshot runs at a time.
+ */
+public class SnapshotTransferEngine {
+  private final StripedLockTransferEngine locks;
+  private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+  private final AtomicLong epoch = new AtomicLong(1);
+  //transfers running in an epoch, indexed by epoch parity: only the current and the previous epoch can have any.
+  //Not LongAdder: its sum() is not atomic and can read zero while a transfer is still inside
+  private final AtomicLong[] active = {new AtomicLong(), new AtomicLong()};
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("SnapshotTransferEngine");
+
+  private static class Slot {
+    final BankAccount account;
+    //guarded by the account's stripe lock
+    long savedEpoch;
+    long savedBalance;
+
+    Slot(BankAccount account) {
+      this.account = account;
+    }
+  }
+
+  public SnapshotTransferEngine() {
+    this(StripedLockTransferEngine.DEFAULT_STRIPES);
+  }
+
+  public SnapshotTransferEngine(int stripeCount) {
+    locks = new StripedLockTransferEngine(stripeCount);
+  }
+
+  public void register(BankAccount account) {
+    slots.putIfAbsent(account.getId(), new Slot(account));
+  }
+
+  public void transfer(BankAccount fromAccount, BankAccount toAccount, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    Slot from = slotFor(fromAccount);
+    Slot to = slotFor(toAccount);
+    long transferEpoch = enter();
+    try {
+      int fromStripe = locks.stripeFor(fromAccount);
+      int toStripe = locks.stripeFor(toAccount);
+      long start = metrics.start();
+      locks.lockInOrder(fromStripe, toStripe);
+      long locked = metrics.now(start);
+      try {
+        if (fromAccount.getBalance() < amount) {
+          metrics.recordInsufficientFunds();
+          throw new InsufficientFundsException();
+        }
+        //throws on overflow before the snapshot bookkeeping records a balance that is never committed
+        Money.add(toAccount.getBalance(), amount);
+        beforeWrite(from, transferEpoch, -amount);
+        beforeWrite(to, transferEpoch, amount);
+        toAccount.deposit(amount);
+        fromAccount.withdraw(amount);
+      } finally {
+        locks.unlock(fromStripe, toStripe);
+        metrics.recordLocked(start, locked);
+      }
+    } finally {
+      active[(int) (transferEpoch & 1)].decrementAndGet();
+    }
+  }
+
+  private Slot slotFor(BankAccount account) {
+    Slot slot = slots.get(account.getId());
+    if (slot == null || slot.account != account) {
+      throw new IllegalArgumentException(account.getName() + " is not registered");
+    }
+    return slot;
+  }
+
+  private long enter() {
+    while (true) {
+      long current = epoch.get();
+      AtomicLong counter = active[(int) (current & 1)];
+      counter.incrementAndGet();
+      //a snapshot that moved the epoch on before it saw our increment won't wait for us, so move with it
+      if (epoch.get() == current) {
+        return current;
+      }
+      counter.decrementAndGet();
+    }
+  }
+
+  private static void beforeWrite(Slot slot, long transferEpoch, long delta) {
+    if (slot.savedEpoch < transferEpoch) {
+      slot.savedEpoch = transferEpoch;
+      slot.savedBalance = slot.account.getBalance();
+    } else if (slot.savedEpoch > transferEpoch) {
+      //a transfer of the old epoch finishing after one of the new epoch already saved this account:
+      //it belongs to the snapshot, so the saved balance has to include it
+      slot.savedBalance += delta;
+    }
+  }
+
+  public synchronized BalanceSnapshot snapshot() {
+    long cutEpoch = epoch.incrementAndGet();
+    AtomicLong previous = active[(int) ((cutEpoch - 1) & 1)];
+    while (previous.get() != 0) {
+      Thread.onSpinWait();
+    }
+
+    Map<Long, Long> balances = new HashMap<>();
+    for (Slot slot : slots.values()) {
+      int stripe = locks.stripeFor(slot.account);
+      locks.lockInOrder(stripe, stripe);
+      try {
+        balances.put(slot.account.getId(), slot.savedEpoch == cutEpoch ? slot.savedBalance : slot.account.getBalance());
+      } finally {
+        locks.unlock(stripe, stripe);
+      }
+    }
+    return new BalanceSnapshot(cutEpoch, balances);
+  }
+}
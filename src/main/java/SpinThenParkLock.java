@@ -0,0 +1,199 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Reentrant lock for critical sections of a few field updates, like the one of a transfer.
+ * A ReentrantLock or a monitor that finds the lock taken parks the thread soon, and parking and being unparked
+ * through the OS costs microseconds, far more than the transfer the thread was waiting for.
+ * This lock first spins with Thread.onSpinWait() and only parks when spinning didn't get it.
+ *
+ * How long to spin is learned from the lock itself: the owner measures how long it holds the lock (one acquisition
+ * in SAMPLE_PERIOD, System.nanoTime() isn't free) and keeps a moving average. A waiter spins for twice that average,
+ * but at least MIN_SPIN_NANOS so a few waiters queued behind each other still get through, which is enough to outlast
+ * the current owner most of the time. If the average gets above MAX_SPIN_NANOS / 2, e.g. because
+ * someone does I/O under the lock, waiters park right away, and start spinning again once the holds are short again.
+ * On a single CPU there's no spinning at all: the owner can't make progress while we spin.
+ *
+ * Parking is done by AbstractQueuedSynchronizer like for ReentrantLock, so waiting is interruptible, tryLock with
+ * a timeout works and the JVM sees the owner (ThreadMXBean.findDeadlockedThreads and thread dumps include it).
+ * Like a non-fair ReentrantLock, a spinning thread may get the lock before threads that are already parked.
+ */
+public class SpinThenParkLock implements Lock {
+  //about the cost of a park and unpark, spinning longer than that doesn't pay
+  public static final long MAX_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+  public static final long MIN_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+  private static final long INITIAL_HOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+  private static final int SAMPLE_PERIOD = 16;
+  //spins between two reads of the clock
+  private static final int SPINS_PER_CHECK = 32;
+  private static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+
+  private static final class Sync extends AbstractQueuedSynchronizer {
+    //written by the owner only, read by the waiters deciding how long to spin
+    volatile long averageHoldNanos = INITIAL_HOLD_NANOS;
+    //guarded by the lock: written by the owner, published to the next one by the state write in tryRelease
+    private int acquisitions;
+    private long heldSince;
+
+    @Override
+    protected boolean tryAcquire(int acquires) {
+      Thread current = Thread.currentThread();
+      int c = getState();
+      if (c == 0) {
+        if (compareAndSetState(0, acquires)) {
+          setExclusiveOwnerThread(current);
+          if (++acquisitions % SAMPLE_PERIOD == 0) {
+            heldSince = System.nanoTime();
+          }
+          return true;
+        }
+      } else if (current == getExclusiveOwnerThread()) {
+        int next = c + acquires;
+        if (next < 0) {
+          throw new Error("Maximum lock count exceeded");
+        }
+        setState(next);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    protected boolean tryRelease(int releases) {
+      if (Thread.currentThread() != getExclusiveOwnerThread()) {
+        throw new IllegalMonitorStateException();
+      }
+      int c = getState() - releases;
+      boolean free = c == 0;
+      if (free) {
+        if (heldSince != 0) {
+          long hold = System.nanoTime() - heldSince;
+          heldSince = 0;
+          long average = averageHoldNanos;
+          //1/8 weight for the newest sample: one long hold doesn't stop the spinning, a run of them does
+          averageHoldNanos = average + ((hold - average) >> 3);
+        }
+        setExclusiveOwnerThread(null);
+      }
+      setState(c);
+      return free;
+    }
+
+    @Override
+    protected boolean isHeldExclusively() {
+      return getExclusiveOwnerThread() == Thread.currentThread();
+    }
+
+    boolean isLocked() {
+      return getState() != 0;
+    }
+
+    Condition newCondition() {
+      return new ConditionObject();
+    }
+  }
+
+  private final Sync sync = new Sync();
+
+  @Override
+  public void lock() {
+    if (!sync.tryAcquire(1) && !spin(Long.MAX_VALUE)) {
+      sync.acquire(1);
+    }
+  }
+
+  @Override
+  public void lockInterruptibly() throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    if (!sync.tryAcquire(1) && !spin(Long.MAX_VALUE)) {
+      sync.acquireInterruptibly(1);
+    }
+  }
+
+  /**
+   * Takes the lock only if it's free now, without spinning.
+   */
+  @Override
+  public boolean tryLock() {
+    return sync.tryAcquire(1);
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    if (sync.tryAcquire(1)) {
+      return true;
+    }
+    long timeoutNanos = unit.toNanos(time);
+    long start = System.nanoTime();
+    return spin(timeoutNanos) || sync.tryAcquireNanos(1, timeoutNanos - (System.nanoTime() - start));
+  }
+
+  @Override
+  public void unlock() {
+    sync.release(1);
+  }
+
+  @Override
+  public Condition newCondition() {
+    return sync.newCondition();
+  }
+
+  public boolean isLocked() {
+    return sync.isLocked();
+  }
+
+  public boolean isHeldByCurrentThread() {
+    return sync.isHeldExclusively();
+  }
+
+  /**
+   * Moving average of the sampled hold times.
+   */
+  public long getAverageHoldNanos() {
+    return sync.averageHoldNanos;
+  }
+
+  /**
+   * @return how long a thread finding the lock taken spins now before it parks, 0 if it parks right away
+   */
+  public long getSpinNanos() {
+    if (!MULTIPROCESSOR) {
+      return 0;
+    }
+    long spin = sync.averageHoldNanos * 2;
+    return spin <= MAX_SPIN_NANOS ? Math.max(spin, MIN_SPIN_NANOS) : 0;
+  }
+
+  /**
+   * @return true if the lock was taken within the spin budget, cut to maxNanos
+   */
+  private boolean spin(long maxNanos) {
+    long budget = Math.min(getSpinNanos(), maxNanos);
+    if (budget <= 0) {
+      return false;
+    }
+    long start = System.nanoTime();
+    for (int spins = 1; ; spins++) {
+      //read before the CAS, so spinners don't keep invalidating the owner's cache line
+      if (!sync.isLocked() && sync.tryAcquire(1)) {
+        return true;
+      }
+      Thread.onSpinWait();
+      if (spins % SPINS_PER_CHECK == 0 && System.nanoTime() - start >= budget) {
+        return false;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + (isLocked() ? "[Locked]" : "[Unlocked]") + " average hold " + getAverageHoldNanos() + " ns";
+  }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Account for read-heavy traffic: balance checks use StampedLock optimistic reads, which don't write
+ * to shared memory at all, so any number of readers run in parallel and don't slow writers down.
+ * A reader takes a stamp, reads the plain field and validates that no writer got in between;
+ * only when one did it retries under a real read lock.
+ * Unlike BankAccount.getBalance() the value is never stale, and unlike locking the account for every
+ * read, readers don't queue behind each other.
+ */
+public class StampedBankAccount implements Account {
+  private static final AtomicLong nextId = new AtomicLong();
+  private static final Comparator<StampedBankAccount> lockOrder = Comparator.comparingLong(StampedBankAccount::getId);
+  private static final int OPTIMISTIC_ATTEMPTS = 3;
+  private static final TransferMetrics metrics = TransferMetrics.forStrategy("StampedBankAccount");
+
+  private final long id;
+  private final StampedLock lock = new StampedLock();
+  private long balance;
+  private String name;
+
+  public StampedBankAccount(long initialBalance, String name) {
+    this.id = nextId.incrementAndGet();
+    this.balance = initialBalance;
+    this.name = name;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getBalance() {
+    long stamp = lock.tryOptimisticRead();
+    long current = balance;
+    if (lock.validate(stamp)) {
+      return current;
+    }
+    stamp = lock.readLock();
+    try {
+      return balance;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public void deposit(long amount) {
+    long stamp = lock.writeLock();
+    try {
+      balance = Money.add(balance, amount);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public void withdraw(long amount) {
+    long stamp = lock.writeLock();
+    try {
+      balance = Money.subtract(balance, amount);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Check-then-act under one write stamp.
+   */
+  public boolean tryWithdraw(long amount) {
+    Money.checkAmount(amount);
+    long stamp = lock.writeLock();
+    try {
+      if (balance < amount) {
+        return false;
+      }
+      balance = Money.subtract(balance, amount);
+      return true;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Both write stamps are taken in id order, so the two balances change together for every reader
+   * and opposite transfers can't deadlock.
+   */
+  public static void transfer(StampedBankAccount fromAccount, StampedBankAccount toAccount, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    if (fromAccount == toAccount) {
+      if (fromAccount.getBalance() < amount) {
+        throw new InsufficientFundsException();
+      }
+      return;
+    }
+    StampedBankAccount first = fromAccount.id < toAccount.id ? fromAccount : toAccount;
+    StampedBankAccount second = first == fromAccount ? toAccount : fromAccount;
+    long start = metrics.start();
+    long locked = 0;
+    long firstStamp = first.lock.writeLock();
+    try {
+      long secondStamp = second.lock.writeLock();
+      locked = metrics.now(start);
+      try {
+        if (fromAccount.balance < amount) {
+          metrics.recordInsufficientFunds();
+          throw new InsufficientFundsException();
+        }
+        //the overflow check before the first write, so a failing transfer leaves both balances as they were
+        long credited = Money.add(toAccount.balance, amount);
+        fromAccount.balance = Money.subtract(fromAccount.balance, amount);
+        toAccount.balance = credited;
+      } finally {
+        second.lock.unlockWrite(secondStamp);
+      }
+    } finally {
+      first.lock.unlockWrite(firstStamp);
+      metrics.recordLocked(start, locked);
+    }
+  }
+
+  /**
+   * Balances of all accounts at one moment, e.g. for a total-money check while transfers keep running.
+   * All stamps are taken before the first read and validated after the last one, so if they all validate
+   * no account was written during a window common to all reads. If a writer keeps getting in the way,
+   * read locks are taken on all accounts in id order.
+   */
+  public static long[] snapshot(StampedBankAccount... accounts) {
+    long[] balances = new long[accounts.length];
+    long[] stamps = new long[accounts.length];
+    for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+      for (int i = 0; i < accounts.length; i++) {
+        stamps[i] = accounts[i].lock.tryOptimisticRead();
+      }
+      for (int i = 0; i < accounts.length; i++) {
+        balances[i] = accounts[i].balance;
+      }
+      if (allValid(accounts, stamps)) {
+        return balances;
+      }
+    }
+
+    StampedBankAccount[] ordered = accounts.clone();
+    Arrays.sort(ordered, lockOrder);
+    long[] readStamps = new long[ordered.length];
+    int locked = 0;
+    try {
+      for (; locked < ordered.length; locked++) {
+        //the same account passed twice is locked once
+        if (locked == 0 || ordered[locked] != ordered[locked - 1]) {
+          readStamps[locked] = ordered[locked].lock.readLock();
+        }
+      }
+      for (int i = 0; i < accounts.length; i++) {
+        balances[i] = accounts[i].balance;
+      }
+      return balances;
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        if (readStamps[i] != 0) {
+          ordered[i].lock.unlockRead(readStamps[i]);
+        }
+      }
+    }
+  }
+
+  private static boolean allValid(StampedBankAccount[] accounts, long[] stamps) {
+    for (int i = 0; i < accounts.length; i++) {
+      if (stamps[i] == 0 || !accounts[i].lock.validate(stamps[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
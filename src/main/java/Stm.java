@@ -0,0 +1,89 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Software transactional memory for balances in TxRef: any number of accounts change together
+ * without choosing locks, lock order or a tie lock like the runnables do by hand.
+ *
+ * Stm.atomically(tx -> {
+ *   tx.withdraw(payer, 500);
+ *   tx.deposit(payee1, 300);
+ *   tx.deposit(payee2, 200);
+ * });
+ *
+ * The block runs optimistically and is run again when another transaction committed a conflicting
+ * write in the meantime, so it must not have side effects other than on TxRefs (no printing, no I/O),
+ * and must not catch RuntimeException around tx calls, a conflict is signalled with one.
+ * An exception thrown by the block (e.g. InsufficientFundsException) discards its writes and is rethrown.
+ */
+public final class Stm {
+  static final AtomicLong clock = new AtomicLong();
+  static final RuntimeException CONFLICT = new RuntimeException("conflict", null, false, false) {
+  };
+
+  private static final LongAdder commits = new LongAdder();
+  private static final LongAdder retries = new LongAdder();
+
+  private Stm() {
+  }
+
+  public static void atomically(Consumer<Transaction> block) {
+    atomicallyGet(tx -> {
+      block.accept(tx);
+      return null;
+    });
+  }
+
+  public static <T> T atomicallyGet(Function<Transaction, T> block) {
+    return atomicallyGet(block, null);
+  }
+
+  /**
+   * @param metrics also gets the retries of this block, may be null
+   */
+  static <T> T atomicallyGet(Function<Transaction, T> block, TransferMetrics metrics) {
+    for (int attempt = 0; ; attempt++) {
+      Transaction tx = new Transaction(clock.get());
+      try {
+        T result = block.apply(tx);
+        if (tx.commit()) {
+          commits.increment();
+          return result;
+        }
+      } catch (RuntimeException e) {
+        if (e != CONFLICT) {
+          throw e;
+        }
+      }
+      retries.increment();
+      if (metrics != null) {
+        metrics.recordRetry();
+      }
+      backoff(attempt);
+    }
+  }
+
+  private static void backoff(int attempt) {
+    if (attempt < 4) {
+      Thread.onSpinWait();
+    } else {
+      //the same transactions would keep colliding, spread them out in time
+      LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(1, 1000L << Math.min(attempt - 4, 10)));
+    }
+  }
+
+  public static long getCommits() {
+    return commits.sum();
+  }
+
+  /**
+   * @return attempts run again because of a conflict
+   */
+  public static long getRetries() {
+    return retries.sum();
+  }
+}
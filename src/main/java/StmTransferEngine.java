@@ -0,0 +1,64 @@
+import java.util.function.Consumer;
+
+/**
+ * Transfers on TxRef balances through Stm: the two-account transfer and the split payment
+ * are the same few lines, no matter how many accounts are involved.
+ */
+public class StmTransferEngine {
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("StmTransferEngine");
+
+  public void transfer(TxRef fromAccount, TxRef toAccount, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    atomically(tx -> {
+      withdraw(tx, fromAccount, amount);
+      tx.deposit(toAccount, amount);
+    });
+  }
+
+  /**
+   * Pays amounts[i] to payees[i] from fromAccount, all or nothing.
+   */
+  public void split(TxRef fromAccount, TxRef[] payees, long[] amounts) throws InsufficientFundsException {
+    if (payees.length != amounts.length) {
+      throw new IllegalArgumentException(payees.length + " payees but " + amounts.length + " amounts");
+    }
+    long total = total(amounts);
+    atomically(tx -> {
+      withdraw(tx, fromAccount, total);
+      for (int i = 0; i < payees.length; i++) {
+        tx.deposit(payees[i], amounts[i]);
+      }
+    });
+  }
+
+  private static long total(long[] amounts) {
+    long total = 0;
+    for (long amount : amounts) {
+      Money.checkAmount(amount);
+      total = Money.add(total, amount);
+    }
+    return total;
+  }
+
+  private void atomically(Consumer<Transaction> block) {
+    long start = metrics.start();
+    try {
+      Stm.atomicallyGet(tx -> {
+        block.accept(tx);
+        return null;
+      }, metrics);
+    } finally {
+      metrics.recordTransfer(start);
+    }
+  }
+
+  private void withdraw(Transaction tx, TxRef account, long amount) {
+    try {
+      tx.withdraw(account, amount);
+    } catch (InsufficientFundsException e) {
+      //only the attempt that ends the transfer throws it, a conflict would have been thrown before
+      metrics.recordInsufficientFunds();
+      throw e;
+    }
+  }
+}
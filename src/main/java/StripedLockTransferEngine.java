@@ -0,0 +1,132 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transfers guarded by a fixed array of lock stripes instead of one global lock.
+ * Every account maps to a stripe by its id, so transfers between accounts on different
+ * stripes never wait for each other.
+ * Stripe indices give a total order that does not depend on identity hash codes:
+ * two stripes are always locked lower index first, and when both accounts fall into the same
+ * stripe only that one lock is taken, so no tie-breaking lock is needed.
+ */
+public class StripedLockTransferEngine {
+  public static final int DEFAULT_STRIPES = 256;
+
+  private final ReentrantLock[] stripes;
+  private final int mask;
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("StripedLockTransferEngine");
+
+  public StripedLockTransferEngine() {
+    this(DEFAULT_STRIPES);
+  }
+
+  public StripedLockTransferEngine(int stripeCount) {
+    if (stripeCount <= 0) {
+      throw new IllegalArgumentException("stripeCount must be positive: " + stripeCount);
+    }
+    int size = 1;
+    while (size < stripeCount) {
+      size <<= 1;
+    }
+    stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    mask = size - 1;
+  }
+
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  public int stripeFor(BankAccount account) {
+    return stripeFor(account.getId());
+  }
+
+  public int stripeFor(long id) {
+    return (int) (id ^ (id >>> 32)) & mask;
+  }
+
+  public void transfer(BankAccount fromAccount, BankAccount toAccount, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    int fromStripe = stripeFor(fromAccount);
+    int toStripe = stripeFor(toAccount);
+
+    long start = metrics.start();
+    lockInOrder(fromStripe, toStripe);
+    long locked = metrics.now(start);
+    try {
+      if (fromAccount.getBalance() < amount) {
+        metrics.recordInsufficientFunds();
+        throw new InsufficientFundsException();
+      }
+      //deposit first: only it can fail (balance overflow), and then nothing has changed yet
+      toAccount.deposit(amount);
+      fromAccount.withdraw(amount);
+    } finally {
+      unlock(fromStripe, toStripe);
+      metrics.recordLocked(start, locked);
+    }
+  }
+
+  /**
+   * Transfer between accounts addressed by id.
+   * @throws IllegalArgumentException if either id isn't in the registry
+   */
+  public void transfer(AccountRegistry registry, long fromId, long toId, long amount) throws InsufficientFundsException {
+    transfer(registry.require(fromId), registry.require(toId), amount);
+  }
+
+  /**
+   * Same transfer for accounts kept in a PrimitiveAccountStore, the stripe locks guard plain reads and writes.
+   */
+  public void transfer(PrimitiveAccountStore store, int fromId, int toId, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    int fromStripe = stripeFor(fromId);
+    int toStripe = stripeFor(toId);
+
+    long start = metrics.start();
+    lockInOrder(fromStripe, toStripe);
+    long locked = metrics.now(start);
+    try {
+      long fromBalance = store.getBalancePlain(fromId);
+      if (fromBalance < amount) {
+        metrics.recordInsufficientFunds();
+        throw new InsufficientFundsException();
+      }
+      //throws on overflow before anything is written
+      Money.add(store.getBalancePlain(toId), amount);
+      store.setBalancePlain(fromId, fromBalance - amount);
+      store.setBalancePlain(toId, store.getBalancePlain(toId) + amount);
+    } finally {
+      unlock(fromStripe, toStripe);
+      metrics.recordLocked(start, locked);
+    }
+  }
+
+  void lockInOrder(int stripe1, int stripe2) {
+    stripes[Math.min(stripe1, stripe2)].lock();
+    if (stripe1 != stripe2) {
+      stripes[Math.max(stripe1, stripe2)].lock();
+    }
+  }
+
+  void unlock(int stripe1, int stripe2) {
+    if (stripe1 != stripe2) {
+      stripes[Math.max(stripe1, stripe2)].unlock();
+    }
+    stripes[Math.min(stripe1, stripe2)].unlock();
+  }
+
+  /**
+   * Reads a balance under its stripe lock, so the value is never older than the last transfer.
+   */
+  public long getBalance(BankAccount account) {
+    ReentrantLock lock = stripes[stripeFor(account)];
+    lock.lock();
+    try {
+      return account.getBalance();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
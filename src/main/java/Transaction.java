@@ -0,0 +1,98 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One attempt of a Stm.atomically() block. Reads see the refs as they were at the global clock value
+ * the attempt started with, writes are buffered and reach the refs only at commit.
+ * So the block always sees a consistent state, and an attempt that is thrown away leaves nothing behind.
+ */
+public class Transaction {
+  private static final Comparator<TxRef> lockOrder = Comparator.comparingLong(ref -> ref.id);
+
+  private final long readVersion;
+  private final List<TxRef> reads = new ArrayList<>();
+  private final Map<TxRef, Long> writes = new IdentityHashMap<>();
+
+  Transaction(long readVersion) {
+    this.readVersion = readVersion;
+  }
+
+  public long get(TxRef ref) {
+    Long written = writes.get(ref);
+    if (written != null) {
+      return written;
+    }
+    long value = ref.read(readVersion);
+    reads.add(ref);
+    return value;
+  }
+
+  public void set(TxRef ref, long value) {
+    writes.put(ref, value);
+  }
+
+  public void deposit(TxRef ref, long amount) {
+    set(ref, Money.add(get(ref), amount));
+  }
+
+  /**
+   * Check-then-act: safe here, because the commit fails if the balance changed after it was read.
+   */
+  public void withdraw(TxRef ref, long amount) throws InsufficientFundsException {
+    long balance = get(ref);
+    if (balance < amount) {
+      throw new InsufficientFundsException();
+    }
+    set(ref, balance - amount);
+  }
+
+  /**
+   * Commit in the TL2 style: lock the written refs (in id order, with tryLock, so commits never wait for
+   * each other and can't deadlock), take a new clock value, check that nothing read has been written since
+   * readVersion, then write and unlock. Read-only attempts are already consistent and commit without any of it.
+   * @return false if another commit got in the way and the block has to run again
+   */
+  boolean commit() {
+    if (writes.isEmpty()) {
+      return true;
+    }
+    TxRef[] locked = writes.keySet().toArray(new TxRef[0]);
+    Arrays.sort(locked, lockOrder);
+    int lockCount = 0;
+    try {
+      for (; lockCount < locked.length; lockCount++) {
+        if (!locked[lockCount].tryLock()) {
+          return false;
+        }
+      }
+      long writeVersion = Stm.clock.incrementAndGet();
+      if (writeVersion != readVersion + 1 && !readsStillValid()) {
+        return false;
+      }
+      for (TxRef ref : locked) {
+        ref.commit(writes.get(ref), writeVersion);
+      }
+      lockCount = 0;
+      return true;
+    } finally {
+      for (int i = 0; i < lockCount; i++) {
+        locked[i].unlock();
+      }
+    }
+  }
+
+  private boolean readsStillValid() {
+    for (TxRef ref : reads) {
+      long versionLock = ref.versionLock.get();
+      boolean lockedByOther = (versionLock & 1) != 0 && !writes.containsKey(ref);
+      if (lockedByOther || versionLock >>> 1 > readVersion) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
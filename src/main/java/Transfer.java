@@ -0,0 +1,28 @@
+public class Transfer {
+  private final Account fromAccount;
+  private final Account toAccount;
+  private final long amount;
+
+  public Transfer(Account fromAccount, Account toAccount, long amount) {
+    this.fromAccount = fromAccount;
+    this.toAccount = toAccount;
+    this.amount = amount;
+  }
+
+  public Account getFromAccount() {
+    return fromAccount;
+  }
+
+  public Account getToAccount() {
+    return toAccount;
+  }
+
+  public long getAmount() {
+    return amount;
+  }
+
+  @Override
+  public String toString() {
+    return amount + " from " + fromAccount.getName() + " to " + toAccount.getName();
+  }
+}
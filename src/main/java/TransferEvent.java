@@ -0,0 +1,86 @@
+/**
+ * View of one event read from TransferEventLog.
+ * The consumer reuses a single instance for every event, so handlers must copy out
+ * whatever they want to keep after onEvent returns.
+ */
+public class TransferEvent {
+  public static final int WITHDREW = 1;
+  public static final int DEPOSITED = 2;
+  public static final int ACQUIRED_LOCK = 3;
+  public static final int INSUFFICIENT_FUNDS = 4;
+
+  int type;
+  long sequence;
+  long timestamp;
+  long threadId;
+  String threadName;
+  long accountId;
+  String accountName;
+  long amount;
+  long balance;
+
+  public int getType() {
+    return type;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return System.currentTimeMillis() at the moment the event was recorded
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public long getThreadId() {
+    return threadId;
+  }
+
+  public String getThreadName() {
+    return threadName;
+  }
+
+  public long getAccountId() {
+    return accountId;
+  }
+
+  public String getAccountName() {
+    return accountName;
+  }
+
+  public long getAmount() {
+    return amount;
+  }
+
+  /**
+   * @return account balance right after the event
+   */
+  public long getBalance() {
+    return balance;
+  }
+
+  /**
+   * Appends the same text the runnables used to print directly.
+   */
+  public void appendTo(StringBuilder out) {
+    out.append(threadName);
+    switch (type) {
+      case WITHDREW:
+        out.append(" withdrew ").append(amount).append(" from ").append(accountName).append(" (").append(balance).append("$)");
+        break;
+      case DEPOSITED:
+        out.append(" deposited ").append(amount).append(" to ").append(accountName).append(" (").append(balance).append("$)");
+        break;
+      case ACQUIRED_LOCK:
+        out.append(" acquired lock ").append(accountName);
+        break;
+      case INSUFFICIENT_FUNDS:
+        out.append(" does nothing cause it's less then ").append(amount).append("$ on").append(accountName);
+        break;
+      default:
+        out.append(" unknown event ").append(type);
+    }
+  }
+}
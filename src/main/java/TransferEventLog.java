@@ -0,0 +1,160 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous replacement for System.out.println inside transfers.
+ * System.out is a synchronized PrintStream, so printing under an account lock makes every transfer
+ * wait for the console and for every other printing thread. Here a transferring thread only copies
+ * a few primitives (and references to strings that already exist) into a preallocated ring buffer slot:
+ * no string concatenation, no allocation and no I/O. A background thread drains the buffer in sequence
+ * order and hands each event to a handler, by default one that formats it to System.out.
+ *
+ * Producers claim slots with one getAndIncrement. When the buffer is full they wait for the consumer
+ * instead of dropping events, so the stream can be used for auditing.
+ */
+public class TransferEventLog implements AutoCloseable {
+  public static final int DEFAULT_CAPACITY = 1 << 14;
+
+  //-Dtransfer.eventLog.print=false drops the events instead, for runs that execute millions of transfers (stress)
+  private static final TransferEventLog shared = new TransferEventLog(DEFAULT_CAPACITY,
+      Boolean.parseBoolean(System.getProperty("transfer.eventLog.print", "true")) ? printingHandler(System.out) : event -> { });
+
+  public interface Handler {
+    void onEvent(TransferEvent event);
+  }
+
+  private final int mask;
+  private final int[] types;
+  private final long[] timestamps;
+  private final long[] threadIds;
+  private final String[] threadNames;
+  private final long[] accountIds;
+  private final String[] accountNames;
+  private final long[] amounts;
+  private final long[] balances;
+  //published.get(i) == sequence means slot i holds the event with that sequence
+  private final AtomicLongArray published;
+
+  private final AtomicLong claimed = new AtomicLong();
+  private final AtomicLong consumed = new AtomicLong();
+  private final Handler handler;
+  private final Thread consumer;
+  private volatile boolean running = true;
+
+  public TransferEventLog(int capacity, Handler handler) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+    }
+    mask = capacity - 1;
+    types = new int[capacity];
+    timestamps = new long[capacity];
+    threadIds = new long[capacity];
+    threadNames = new String[capacity];
+    accountIds = new long[capacity];
+    accountNames = new String[capacity];
+    amounts = new long[capacity];
+    balances = new long[capacity];
+    published = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      published.set(i, -1);
+    }
+    this.handler = handler;
+    consumer = new Thread(this::drain, "transfer-event-log");
+    consumer.setDaemon(true);
+    consumer.start();
+  }
+
+  public static TransferEventLog shared() {
+    return shared;
+  }
+
+  public static Handler printingHandler(PrintStream out) {
+    StringBuilder line = new StringBuilder();
+    return event -> {
+      line.setLength(0);
+      event.appendTo(line);
+      out.println(line);
+    };
+  }
+
+  public void withdrew(BankAccount account, long amount) {
+    record(TransferEvent.WITHDREW, account, amount);
+  }
+
+  public void deposited(BankAccount account, long amount) {
+    record(TransferEvent.DEPOSITED, account, amount);
+  }
+
+  public void acquiredLock(BankAccount account) {
+    record(TransferEvent.ACQUIRED_LOCK, account, 0);
+  }
+
+  public void insufficientFunds(BankAccount account, long amount) {
+    record(TransferEvent.INSUFFICIENT_FUNDS, account, amount);
+  }
+
+  private void record(int type, BankAccount account, long amount) {
+    long sequence = claimed.getAndIncrement();
+    while (sequence - consumed.get() > mask) {
+      Thread.yield();
+    }
+    Thread thread = Thread.currentThread();
+    int i = (int) sequence & mask;
+    types[i] = type;
+    timestamps[i] = System.currentTimeMillis();
+    threadIds[i] = thread.getId();
+    threadNames[i] = thread.getName();
+    accountIds[i] = account.getId();
+    accountNames[i] = account.getName();
+    amounts[i] = amount;
+    balances[i] = account.getBalance();
+    published.lazySet(i, sequence);
+  }
+
+  private void drain() {
+    TransferEvent event = new TransferEvent();
+    long next = 0;
+    while (running || next < claimed.get()) {
+      int i = (int) next & mask;
+      if (published.get(i) != next) {
+        LockSupport.parkNanos(100_000L);
+        continue;
+      }
+      event.type = types[i];
+      event.sequence = next;
+      event.timestamp = timestamps[i];
+      event.threadId = threadIds[i];
+      event.threadName = threadNames[i];
+      event.accountId = accountIds[i];
+      event.accountName = accountNames[i];
+      event.amount = amounts[i];
+      event.balance = balances[i];
+      threadNames[i] = null;
+      accountNames[i] = null;
+      try {
+        handler.onEvent(event);
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+      consumed.lazySet(++next);
+    }
+  }
+
+  /**
+   * Waits until every event recorded before this call has been handled.
+   */
+  public void flush() {
+    long target = claimed.get();
+    while (consumed.get() < target) {
+      LockSupport.parkNanos(100_000L);
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    running = false;
+    consumer.join();
+  }
+}
@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of account creations and transfers, in memory-mapped segment files of fixed-size
+ * binary records. A transfer is one record, so after a crash it is replayed completely or not at all:
+ * the money can't disappear between the withdraw and the deposit like in MoneyTransferRunnableRaceCondition.
+ *
+ * Appending only copies 32 bytes into the mapping under a short lock. Making records durable is group commit:
+ * the first thread that needs durability becomes the leader and forces the segment to disk once for every
+ * record appended so far, the threads that arrive meanwhile wait and are released by that same force
+ * (or lead the next one). Under load one fsync covers many transfers.
+ *
+ * Record layout: sequence (long, starts at 1), type (int), from id (int), to id (int), CRC32 of the other
+ * fields (int), amount (long). Recovery stops at the first record with a zero sequence, a sequence out of
+ * order or a bad checksum, which is where the writes before the crash ended. Before appending again, it zeroes
+ * the segment from there on and deletes the segments after it, otherwise a stale record from before the crash
+ * could carry exactly the sequence the next append gets to, and be replayed after a second crash.
+ *
+ * Account names aren't journaled, only ids and balances: replay names the accounts "Account " + id.
+ */
+public class TransferJournal implements AutoCloseable {
+  public static final int RECORD_SIZE = 32;
+  public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+  static final int CREATE = 1;
+  static final int TRANSFER = 2;
+
+  private final Path directory;
+  private final int segmentSize;
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private final ReentrantLock commitLock = new ReentrantLock();
+  private final Condition committed = commitLock.newCondition();
+
+  //guarded by appendLock
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+  private int segmentIndex;
+  private int position;
+  private long lastAppended;
+
+  //guarded by commitLock
+  private long durable;
+  private boolean flushing;
+
+  private TransferJournal(Path directory, int segmentSize) {
+    this.directory = directory;
+    this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+  }
+
+  public static TransferJournal open(Path directory, PrimitiveAccountStore store) throws IOException {
+    return open(directory, DEFAULT_SEGMENT_SIZE, store);
+  }
+
+  /**
+   * Replays everything already in the journal into store (which should be empty) and positions the journal
+   * for appending after the last complete record.
+   */
+  public static TransferJournal open(Path directory, int segmentSize, PrimitiveAccountStore store) throws IOException {
+    Files.createDirectories(directory);
+    TransferJournal journal = new TransferJournal(directory, segmentSize);
+    journal.recover(store);
+    return journal;
+  }
+
+  private void recover(PrimitiveAccountStore store) throws IOException {
+    List<Path> segments = listSegments();
+    long expected = 1;
+    int index = 0;
+    int end = 0;
+    for (Path path : segments) {
+      index = segmentIndexOf(path);
+      end = 0;
+      try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+        MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(readChannel.size(), segmentSize));
+        while (end + RECORD_SIZE <= buffer.limit() && isValid(buffer, end, expected)) {
+          apply(buffer, end, store);
+          expected++;
+          end += RECORD_SIZE;
+        }
+      }
+      if (end + RECORD_SIZE <= segmentSize) {
+        //this segment wasn't full, so nothing after it was ever acknowledged
+        break;
+      }
+    }
+    lastAppended = expected - 1;
+    durable = lastAppended;
+    if (end + RECORD_SIZE > segmentSize) {
+      index++;
+      end = 0;
+    }
+    for (Path path : segments) {
+      if (segmentIndexOf(path) > index) {
+        Files.delete(path);
+      }
+    }
+    mapSegment(index);
+    for (int offset = end; offset < segmentSize; offset += Long.BYTES) {
+      segment.putLong(offset, 0);
+    }
+    segment.force();
+    position = end;
+  }
+
+  private static boolean isValid(ByteBuffer buffer, int offset, long expectedSequence) {
+    long sequence = buffer.getLong(offset);
+    return sequence == expectedSequence && buffer.getInt(offset + 20) == checksum(buffer, offset);
+  }
+
+  private static void apply(ByteBuffer buffer, int offset, PrimitiveAccountStore store) {
+    int type = buffer.getInt(offset + 8);
+    int fromId = buffer.getInt(offset + 12);
+    int toId = buffer.getInt(offset + 16);
+    long amount = buffer.getLong(offset + 24);
+    if (type == CREATE) {
+      //names aren't in the record
+      int id = store.create(amount, "Account " + fromId);
+      if (id != fromId) {
+        throw new IllegalStateException("journal created account " + fromId + " but the store assigned " + id);
+      }
+    } else if (type == TRANSFER) {
+      //balances were checked when the transfer was journaled, replay only repeats its effect
+      store.withdraw(fromId, amount);
+      store.deposit(toId, amount);
+    } else {
+      throw new IllegalStateException("unknown record type " + type);
+    }
+  }
+
+  private static int checksum(ByteBuffer buffer, int offset) {
+    CRC32 crc = new CRC32();
+    for (int i = 0; i < RECORD_SIZE; i++) {
+      if (i < 20 || i >= 24) {
+        crc.update(buffer.get(offset + i));
+      }
+    }
+    return (int) crc.getValue();
+  }
+
+  private List<Path> listSegments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.getFileName().toString().matches("journal-\\d{6}\\.seg"))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static int segmentIndexOf(Path path) {
+    String name = path.getFileName().toString();
+    return Integer.parseInt(name.substring("journal-".length(), name.length() - ".seg".length()));
+  }
+
+  private void mapSegment(int index) throws IOException {
+    Path path = directory.resolve(String.format("journal-%06d.seg", index));
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    segmentIndex = index;
+  }
+
+  /**
+   * @return sequence of the record, pass it to awaitDurable
+   */
+  public long appendCreate(int id, long initialBalance) {
+    return append(CREATE, id, 0, initialBalance);
+  }
+
+  /**
+   * @return sequence of the record, pass it to awaitDurable
+   */
+  public long appendTransfer(int fromId, int toId, long amount) {
+    return append(TRANSFER, fromId, toId, amount);
+  }
+
+  private long append(int type, int fromId, int toId, long amount) {
+    appendLock.lock();
+    try {
+      if (position + RECORD_SIZE > segmentSize) {
+        rollSegment();
+      }
+      long sequence = lastAppended + 1;
+      segment.putLong(position, sequence);
+      segment.putInt(position + 8, type);
+      segment.putInt(position + 12, fromId);
+      segment.putInt(position + 16, toId);
+      segment.putLong(position + 24, amount);
+      segment.putInt(position + 20, checksum(segment, position));
+      position += RECORD_SIZE;
+      lastAppended = sequence;
+      return sequence;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  private void rollSegment() {
+    try {
+      //everything in the old segment must be on disk before anything in the new one can count as durable
+      segment.force();
+      channel.close();
+      mapSegment(segmentIndex + 1);
+      position = 0;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns once the record with this sequence and all before it are on disk.
+   */
+  public void awaitDurable(long sequence) {
+    commitLock.lock();
+    try {
+      while (durable < sequence) {
+        if (flushing) {
+          committed.awaitUninterruptibly();
+          continue;
+        }
+        flushing = true;
+        commitLock.unlock();
+        long target = -1;
+        try {
+          target = force();
+        } finally {
+          commitLock.lock();
+          flushing = false;
+          durable = Math.max(durable, target);
+          committed.signalAll();
+        }
+      }
+    } finally {
+      commitLock.unlock();
+    }
+  }
+
+  private long force() {
+    MappedByteBuffer current;
+    long target;
+    appendLock.lock();
+    try {
+      current = segment;
+      target = lastAppended;
+    } finally {
+      appendLock.unlock();
+    }
+    current.force();
+    return target;
+  }
+
+  public long getLastSequence() {
+    appendLock.lock();
+    try {
+      return lastAppended;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    appendLock.lock();
+    try {
+      segment.force();
+      channel.close();
+    } finally {
+      appendLock.unlock();
+    }
+  }
+}
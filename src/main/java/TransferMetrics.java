@@ -0,0 +1,307 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency and lock contention of one transfer strategy, shared by all its instances.
+ * Instead of printing "acquired lock" from inside the transfer, the strategy takes start() before locking
+ * and now() once locked, and records after unlocking; time waiting for the locks and time holding them go
+ * to separate histograms.
+ *
+ * Counters count every transfer. Timing is sampled: System.nanoTime() costs 20-40 ns, more than
+ * a whole lock-free transfer, so only one transfer in SAMPLE_EVERY (-Dtransfer.metrics.sampleEvery,
+ * a power of two, 1 times all) is timed. The histograms are of the sampled transfers, total wait and hold
+ * times are estimated from them.
+ *
+ * Recording allocates nothing and doesn't block: histograms are HdrHistogram Recorders (wait-free
+ * recording, the reader swaps the active histogram), counters are LongAdders. A single Recorder per histogram
+ * would become the hottest cache line of all, every recordValue() increments a counter shared by all writers,
+ * so like LongAdder there is one Recorder per stripe, picked by thread, merged when a snapshot is taken.
+ * What's left on an untimed transfer is a random number and one LongAdder increment, cheap enough to leave on.
+ */
+public class TransferMetrics implements TransferMetricsMXBean {
+  public static final String JMX_DOMAIN = "ConcurrencyProblemsAndFixes";
+  //longer waits are recorded as a minute, they are broken anyway
+  static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private static final int SIGNIFICANT_DIGITS = 2;
+  public static final int SAMPLE_EVERY = Integer.highestOneBit(Math.max(1, Integer.getInteger("transfer.metrics.sampleEvery", 16)));
+
+  private static final Map<String, TransferMetrics> byStrategy = new ConcurrentHashMap<>();
+
+  private final String strategy;
+  private final StripedRecorder latency = new StripedRecorder();
+  private final StripedRecorder lockWait = new StripedRecorder();
+  private final StripedRecorder lockHold = new StripedRecorder();
+  private final LongAdder transfers = new LongAdder();
+  private final LongAdder insufficientFunds = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder aborts = new LongAdder();
+  private final LongAdder callbackFailures = new LongAdder();
+  private final LongAdder lockWaitNanos = new LongAdder();
+  private final LongAdder lockHoldNanos = new LongAdder();
+
+  //guarded by this: the last interval and the counters at its end
+  private TransferMetricsSnapshot last;
+  private final long[] reported = new long[6];
+
+  private TransferMetrics(String strategy) {
+    this.strategy = strategy;
+    long now = System.currentTimeMillis();
+    this.last = new TransferMetricsSnapshot(strategy, now, now, new long[6], newHistogram(), newHistogram(), newHistogram());
+  }
+
+  /**
+   * Metrics of the strategy with this name, registered as an MBean the first time it is asked for.
+   */
+  public static TransferMetrics forStrategy(String strategy) {
+    return byStrategy.computeIfAbsent(strategy, name -> {
+      TransferMetrics metrics = new TransferMetrics(name);
+      try {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName(name));
+      } catch (JMException e) {
+        throw new IllegalStateException("Can't register metrics of " + name, e);
+      }
+      return metrics;
+    });
+  }
+
+  public static List<TransferMetrics> all() {
+    return new ArrayList<>(byStrategy.values());
+  }
+
+  public static ObjectName objectName(String strategy) throws JMException {
+    return new ObjectName(JMX_DOMAIN + ":type=TransferMetrics,strategy=" + ObjectName.quote(strategy));
+  }
+
+  static Histogram newHistogram() {
+    return new Histogram(1, HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+  }
+
+  /**
+   * Start of a transfer: System.nanoTime() if this transfer is timed, 0 if it is only counted.
+   * Pass the result to now() and the record methods.
+   */
+  public long start() {
+    if ((ThreadLocalRandom.current().nextInt() & (SAMPLE_EVERY - 1)) != 0) {
+      return 0;
+    }
+    return System.nanoTime();
+  }
+
+  /**
+   * @return System.nanoTime() if the transfer that started at startNanos is timed, otherwise 0
+   */
+  public long now(long startNanos) {
+    return startNanos == 0 ? 0 : System.nanoTime();
+  }
+
+  /**
+   * End of a transfer that took no locks, e.g. a CAS based one.
+   */
+  public void recordTransfer(long startNanos) {
+    recordTransfers(startNanos, 1);
+  }
+
+  /**
+   * End of count transfers that were applied together (BatchTransferEngine).
+   */
+  public void recordTransfers(long startNanos, int count) {
+    transfers.add(count);
+    if (startNanos != 0) {
+      latency.recordValueWithCount(clamp(System.nanoTime() - startNanos), count);
+    }
+  }
+
+  /**
+   * End of a transfer that waited for its locks from startNanos and got the last of them at lockedNanos
+   * (0 if it never got them, e.g. interrupted). Call it after releasing the locks.
+   */
+  public void recordLocked(long startNanos, long lockedNanos) {
+    recordLocks(startNanos, lockedNanos);
+    recordTransfer(startNanos);
+  }
+
+  /**
+   * Lock wait and hold only, for strategies that lock once for several transfers or do more after unlocking.
+   */
+  public void recordLocks(long startNanos, long lockedNanos) {
+    if (startNanos != 0 && lockedNanos != 0) {
+      long wait = lockedNanos - startNanos;
+      long hold = System.nanoTime() - lockedNanos;
+      lockWaitNanos.add(wait * SAMPLE_EVERY);
+      lockHoldNanos.add(hold * SAMPLE_EVERY);
+      lockWait.recordValue(clamp(wait));
+      lockHold.recordValue(clamp(hold));
+    }
+  }
+
+  public void recordInsufficientFunds() {
+    insufficientFunds.increment();
+  }
+
+  /**
+   * An attempt given up and started again: lock timeout, failed validation, deadlock victim.
+   */
+  public void recordRetry() {
+    retries.increment();
+  }
+
+  /**
+   * An attempt that was aborted from outside, e.g. by DeadlockWatchdog.
+   */
+  public void recordAbort() {
+    aborts.increment();
+  }
+
+  /**
+   * A completion callback that threw, e.g. in TransferPipeline. The transfer itself stands.
+   */
+  public void recordCallbackFailure() {
+    callbackFailures.increment();
+  }
+
+  /**
+   * Recorders picked by thread id, so threads on different cores rarely share one.
+   */
+  private static class StripedRecorder {
+    private static final int STRIPES = Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final Recorder[] stripes = new Recorder[STRIPES];
+    //swapped out of the recorders by the previous interval, reused by the next one
+    private final Histogram[] recycled = new Histogram[STRIPES];
+
+    StripedRecorder() {
+      for (int i = 0; i < STRIPES; i++) {
+        stripes[i] = new Recorder(1, HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+      }
+    }
+
+    void recordValue(long value) {
+      recordValueWithCount(value, 1);
+    }
+
+    void recordValueWithCount(long value, long count) {
+      long id = Thread.currentThread().getId();
+      stripes[(int) (id * 0x9E3779B97F4A7C15L >>> 32) & (STRIPES - 1)].recordValueWithCount(value, count);
+    }
+
+    /**
+     * Called under the TransferMetrics lock only.
+     */
+    Histogram getIntervalHistogram() {
+      Histogram interval = newHistogram();
+      for (int i = 0; i < STRIPES; i++) {
+        recycled[i] = stripes[i].getIntervalHistogram(recycled[i]);
+        interval.add(recycled[i]);
+      }
+      return interval;
+    }
+  }
+
+  private static long clamp(long nanos) {
+    return Math.max(1, Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+  }
+
+  /**
+   * What happened since the previous call. Histograms of the interval are taken from the recorders,
+   * so there should be one caller taking snapshots, normally TransferMetricsReporter.
+   */
+  public synchronized TransferMetricsSnapshot snapshot() {
+    //histograms first: a transfer recorded after them is counted in the next interval, not only half in this one
+    Histogram latencyInterval = latency.getIntervalHistogram();
+    Histogram lockWaitInterval = lockWait.getIntervalHistogram();
+    Histogram lockHoldInterval = lockHold.getIntervalHistogram();
+    long[] totals = {transfers.sum(), insufficientFunds.sum(), retries.sum(), aborts.sum(), lockWaitNanos.sum(), lockHoldNanos.sum()};
+    long[] interval = new long[totals.length];
+    for (int i = 0; i < totals.length; i++) {
+      interval[i] = totals[i] - reported[i];
+      reported[i] = totals[i];
+    }
+    last = new TransferMetricsSnapshot(strategy, last.getEndMillis(), System.currentTimeMillis(), interval,
+        latencyInterval, lockWaitInterval, lockHoldInterval);
+    return last;
+  }
+
+  private synchronized TransferMetricsSnapshot last() {
+    return last;
+  }
+
+  @Override
+  public String getStrategy() {
+    return strategy;
+  }
+
+  @Override
+  public long getTransfers() {
+    return transfers.sum();
+  }
+
+  @Override
+  public long getInsufficientFunds() {
+    return insufficientFunds.sum();
+  }
+
+  @Override
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  @Override
+  public long getAborts() {
+    return aborts.sum();
+  }
+
+  @Override
+  public long getCallbackFailures() {
+    return callbackFailures.sum();
+  }
+
+  @Override
+  public long getLockWaitTotalNanos() {
+    return lockWaitNanos.sum();
+  }
+
+  @Override
+  public long getLockHoldTotalNanos() {
+    return lockHoldNanos.sum();
+  }
+
+  @Override
+  public long getLatencyP50Nanos() {
+    return last().getLatency().getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getLatencyP99Nanos() {
+    return last().getLatency().getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getLatencyP999Nanos() {
+    return last().getLatency().getValueAtPercentile(99.9);
+  }
+
+  @Override
+  public long getLatencyMaxNanos() {
+    return last().getLatency().getMaxValue();
+  }
+
+  @Override
+  public long getLockWaitP99Nanos() {
+    return last().getLockWait().getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getLockHoldP99Nanos() {
+    return last().getLockHold().getValueAtPercentile(99);
+  }
+}
@@ -0,0 +1,35 @@
+/**
+ * JMX view of TransferMetrics, one MBean per strategy under ConcurrencyProblemsAndFixes:type=TransferMetrics.
+ * Counters and total times are since start (total times estimated from the timed sample); percentiles are
+ * of the interval last taken by TransferMetricsReporter (0 until it runs).
+ */
+public interface TransferMetricsMXBean {
+
+  String getStrategy();
+
+  long getTransfers();
+
+  long getInsufficientFunds();
+
+  long getRetries();
+
+  long getAborts();
+
+  long getCallbackFailures();
+
+  long getLockWaitTotalNanos();
+
+  long getLockHoldTotalNanos();
+
+  long getLatencyP50Nanos();
+
+  long getLatencyP99Nanos();
+
+  long getLatencyP999Nanos();
+
+  long getLatencyMaxNanos();
+
+  long getLockWaitP99Nanos();
+
+  long getLockHoldP99Nanos();
+}
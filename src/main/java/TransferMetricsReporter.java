@@ -0,0 +1,41 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Takes a snapshot of every strategy's TransferMetrics periodically and hands it to a listener
+ * (e.g. System.out::println, or a metrics system). The MBeans show percentiles of the last of these intervals.
+ */
+public class TransferMetricsReporter implements AutoCloseable {
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "transfer-metrics-reporter");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Consumer<TransferMetricsSnapshot> listener;
+
+  public TransferMetricsReporter(long period, TimeUnit unit, Consumer<TransferMetricsSnapshot> listener) {
+    this.listener = listener;
+    scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+  }
+
+  /**
+   * Also called by close(), so the last partial interval is not lost.
+   */
+  public void report() {
+    for (TransferMetrics metrics : TransferMetrics.all()) {
+      TransferMetricsSnapshot snapshot = metrics.snapshot();
+      if (snapshot.getTransfers() > 0) {
+        listener.accept(snapshot);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    scheduler.shutdown();
+    scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    report();
+  }
+}
@@ -0,0 +1,103 @@
+import org.HdrHistogram.Histogram;
+
+/**
+ * What one strategy did between two TransferMetrics.snapshot() calls. Times are in nanoseconds.
+ * Counters are exact, histograms hold only the timed sample (see TransferMetrics.SAMPLE_EVERY).
+ */
+public class TransferMetricsSnapshot {
+  private final String strategy;
+  private final long startMillis;
+  private final long endMillis;
+  private final long transfers;
+  private final long insufficientFunds;
+  private final long retries;
+  private final long aborts;
+  private final long lockWaitNanos;
+  private final long lockHoldNanos;
+  private final Histogram latency;
+  private final Histogram lockWait;
+  private final Histogram lockHold;
+
+  /**
+   * @param counts transfers, insufficient funds, retries, aborts, lock wait and lock hold nanos of the interval
+   */
+  TransferMetricsSnapshot(String strategy, long startMillis, long endMillis, long[] counts,
+                          Histogram latency, Histogram lockWait, Histogram lockHold) {
+    this.strategy = strategy;
+    this.startMillis = startMillis;
+    this.endMillis = endMillis;
+    this.transfers = counts[0];
+    this.insufficientFunds = counts[1];
+    this.retries = counts[2];
+    this.aborts = counts[3];
+    this.lockWaitNanos = counts[4];
+    this.lockHoldNanos = counts[5];
+    this.latency = latency;
+    this.lockWait = lockWait;
+    this.lockHold = lockHold;
+  }
+
+  public String getStrategy() {
+    return strategy;
+  }
+
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  public long getEndMillis() {
+    return endMillis;
+  }
+
+  /**
+   * @return transfers finished in the interval, including rejected ones
+   */
+  public long getTransfers() {
+    return transfers;
+  }
+
+  public long getInsufficientFunds() {
+    return insufficientFunds;
+  }
+
+  public long getRetries() {
+    return retries;
+  }
+
+  public long getAborts() {
+    return aborts;
+  }
+
+  /**
+   * @return estimated from the timed sample, like getLockHoldNanos()
+   */
+  public long getLockWaitNanos() {
+    return lockWaitNanos;
+  }
+
+  public long getLockHoldNanos() {
+    return lockHoldNanos;
+  }
+
+  public Histogram getLatency() {
+    return latency;
+  }
+
+  public Histogram getLockWait() {
+    return lockWait;
+  }
+
+  public Histogram getLockHold() {
+    return lockHold;
+  }
+
+  @Override
+  public String toString() {
+    return strategy + ": " + transfers + " transfers in " + (endMillis - startMillis) + " ms"
+        + ", insufficient funds: " + insufficientFunds
+        + ", retries: " + retries
+        + ", aborts: " + aborts
+        + ", latency p50/p99/max: " + latency.getValueAtPercentile(50) + "/" + latency.getValueAtPercentile(99) + "/" + latency.getMaxValue() + " ns"
+        + ", lock wait/hold: " + lockWaitNanos / 1_000 + "/" + lockHoldNanos / 1_000 + " us";
+  }
+}
@@ -0,0 +1,304 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Transfers as messages instead of threads: a test that does new Thread(runnable).start() and join() per transfer
+ * pays for creating and scheduling a thread for a few nanoseconds of arithmetic. Here producers publish
+ * transfer requests into a preallocated ring buffer (parallel primitive arrays, like TransferEventLog) and a fixed
+ * set of consumer threads applies them.
+ *
+ * Accounts of the PrimitiveAccountStore are partitioned by id and every partition is owned by one consumer,
+ * the only thread that ever writes those balances, so transfers are applied with plain reads and writes and no locks.
+ * Every consumer walks the whole ring in sequence order and skips requests that don't touch its accounts:
+ * - the owner of the source checks the balance and withdraws, or marks the request rejected
+ * - the owner of the target waits until the owner of the source is past the request, then deposits (unless rejected)
+ *   and runs the completion callback
+ * Both owners see the requests in the same order, so the outcome is exactly the one of applying them one by one
+ * in sequence order, with no spurious insufficient funds because a deposit happened to run late.
+ * The exception is a deposit that would overflow the target balance: the source was already debited, so the target
+ * owner rejects the transfer and hands the amount back to the source owner, which credits it before its next batch.
+ * A consumer takes the requests published so far (up to MAX_BATCH) as one batch and publishes its cursor once per batch.
+ *
+ * Backpressure: a slot is reused only after every consumer has passed it, submit() waits for that when the ring
+ * is full, trySubmit() returns false instead. Callbacks and flush() replace join().
+ *
+ * The claim counter and the consumer cursors are each on their own 128 bytes (like the AdaptiveBankAccount cells),
+ * so a consumer publishing progress doesn't invalidate the line producers are claiming on.
+ * Balances must not be changed outside the pipeline while it runs; read them after flush().
+ */
+public class TransferPipeline implements AutoCloseable {
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+  //longs per sequence, 128 bytes
+  private static final int STRIDE = 16;
+  //requests a consumer applies before it publishes its cursor, so target owners waiting for it don't wait for the whole ring
+  private static final int MAX_BATCH = 256;
+  private static final int SPINS = 100;
+  private static final int YIELDS = 100;
+
+  /**
+   * Runs on the consumer thread that owns the target account, keep it short: the partition waits for it.
+   * An exception it throws doesn't stop the partition, it is counted in TransferMetrics.getCallbackFailures().
+   */
+  public interface Callback {
+    void onComplete(int fromId, int toId, long amount, boolean transferred);
+  }
+
+  private final PrimitiveAccountStore store;
+  private final int mask;
+  private final int partitions;
+  private final int[] fromIds;
+  private final int[] toIds;
+  private final long[] amounts;
+  private final long[] startTimes;
+  private final Callback[] callbacks;
+  //written by the owner of the source before it moves its cursor past the request
+  private final boolean[] rejected;
+  //published.get(i) == sequence means slot i holds the request with that sequence
+  private final AtomicLongArray published;
+  //claim counter at sequenceIndex(0), cursor of partition p at sequenceIndex(p + 1): next sequence it will look at
+  private final AtomicLongArray sequences;
+  private final Thread[] consumers;
+  //amounts of overflowing transfers to credit back, one queue per partition of the source
+  private final Queue<Refund>[] refunds;
+  private final AtomicInteger pendingRefunds = new AtomicInteger();
+  private final TransferMetrics metrics = TransferMetrics.forStrategy("TransferPipeline");
+  private volatile boolean running = true;
+
+  public TransferPipeline(PrimitiveAccountStore store, int partitions) {
+    this(store, partitions, DEFAULT_CAPACITY);
+  }
+
+  public TransferPipeline(PrimitiveAccountStore store, int partitions, int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+    }
+    if (partitions <= 0) {
+      throw new IllegalArgumentException("partitions must be positive: " + partitions);
+    }
+    this.store = store;
+    this.mask = capacity - 1;
+    this.partitions = partitions;
+    fromIds = new int[capacity];
+    toIds = new int[capacity];
+    amounts = new long[capacity];
+    startTimes = new long[capacity];
+    callbacks = new Callback[capacity];
+    rejected = new boolean[capacity];
+    published = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      published.set(i, -1);
+    }
+    //one spare stride before the first and after the last sequence, away from the array header and its neighbours
+    sequences = new AtomicLongArray((partitions + 3) * STRIDE);
+    @SuppressWarnings("unchecked")
+    Queue<Refund>[] queues = new Queue[partitions];
+    for (int p = 0; p < partitions; p++) {
+      queues[p] = new ConcurrentLinkedQueue<>();
+    }
+    refunds = queues;
+    consumers = new Thread[partitions];
+    for (int p = 0; p < partitions; p++) {
+      int partition = p;
+      consumers[p] = new Thread(() -> consume(partition), "transfer-pipeline-" + p);
+      consumers[p].setDaemon(true);
+      consumers[p].start();
+    }
+  }
+
+  private static final class Refund {
+    final int accountId;
+    final long amount;
+
+    Refund(int accountId, long amount) {
+      this.accountId = accountId;
+      this.amount = amount;
+    }
+  }
+
+  private static int sequenceIndex(int i) {
+    return (i + 1) * STRIDE;
+  }
+
+  public int getPartitions() {
+    return partitions;
+  }
+
+  int partitionOf(int id) {
+    return id % partitions;
+  }
+
+  /**
+   * Publishes the transfer, waiting while the ring is full.
+   * @param callback may be null
+   */
+  public void submit(int fromId, int toId, long amount, Callback callback) {
+    checkRequest(fromId, toId, amount);
+    long sequence = sequences.getAndIncrement(sequenceIndex(0));
+    for (int idle = 0; sequence - minCursor() > mask; idle++) {
+      idle(idle);
+    }
+    publish(sequence, fromId, toId, amount, callback);
+  }
+
+  /**
+   * @return false without publishing if the ring is full
+   */
+  public boolean trySubmit(int fromId, int toId, long amount, Callback callback) {
+    checkRequest(fromId, toId, amount);
+    long sequence;
+    do {
+      sequence = sequences.get(sequenceIndex(0));
+      if (sequence - minCursor() > mask) {
+        return false;
+      }
+    } while (!sequences.compareAndSet(sequenceIndex(0), sequence, sequence + 1));
+    publish(sequence, fromId, toId, amount, callback);
+    return true;
+  }
+
+  private void checkRequest(int fromId, int toId, long amount) {
+    Money.checkAmount(amount);
+    if (fromId < 0 || fromId >= store.size() || toId < 0 || toId >= store.size()) {
+      throw new IllegalArgumentException("unknown account id " + (fromId < 0 || fromId >= store.size() ? fromId : toId));
+    }
+  }
+
+  private void publish(long sequence, int fromId, int toId, long amount, Callback callback) {
+    int i = (int) sequence & mask;
+    fromIds[i] = fromId;
+    toIds[i] = toId;
+    amounts[i] = amount;
+    startTimes[i] = metrics.start();
+    callbacks[i] = callback;
+    rejected[i] = false;
+    published.lazySet(i, sequence);
+  }
+
+  private long minCursor() {
+    long min = Long.MAX_VALUE;
+    for (int p = 0; p < partitions; p++) {
+      min = Math.min(min, sequences.get(sequenceIndex(p + 1)));
+    }
+    return min;
+  }
+
+  private void consume(int partition) {
+    int cursorIndex = sequenceIndex(partition + 1);
+    long next = 0;
+    int idle = 0;
+    while (running || next < sequences.get(sequenceIndex(0))) {
+      applyRefunds(partition);
+      long batchStart = next;
+      while (next - batchStart < MAX_BATCH && published.get((int) next & mask) == next) {
+        int i = (int) next & mask;
+        int fromId = fromIds[i];
+        int toId = toIds[i];
+        boolean ownsFrom = partitionOf(fromId) == partition;
+        boolean ownsTo = partitionOf(toId) == partition;
+        if (ownsFrom) {
+          long balance = store.getBalancePlain(fromId);
+          if (balance < amounts[i]) {
+            rejected[i] = true;
+          } else if (fromId != toId) {
+            store.setBalancePlain(fromId, balance - amounts[i]);
+          }
+        } else if (ownsTo) {
+          int source = sequenceIndex(partitionOf(fromId) + 1);
+          if (sequences.get(source) <= next) {
+            //the source owner may be waiting for us further back, let it see how far we got
+            sequences.lazySet(cursorIndex, next);
+            for (int wait = 0; sequences.get(source) <= next; wait++) {
+              idle(wait);
+            }
+          }
+        }
+        if (ownsTo) {
+          complete(i, fromId, toId);
+        }
+        next++;
+      }
+      if (next != batchStart) {
+        sequences.lazySet(cursorIndex, next);
+        idle = 0;
+      } else {
+        idle(idle);
+        idle = Math.min(idle + 1, SPINS + YIELDS);
+      }
+    }
+  }
+
+  private void complete(int i, int fromId, int toId) {
+    long amount = amounts[i];
+    boolean transferred = !rejected[i];
+    if (transferred) {
+      if (fromId != toId) {
+        long balance = store.getBalancePlain(toId);
+        if (balance > Long.MAX_VALUE - amount) {
+          //the source was already debited, and only its owner may write that balance
+          pendingRefunds.incrementAndGet();
+          refunds[partitionOf(fromId)].add(new Refund(fromId, amount));
+          transferred = false;
+        } else {
+          store.setBalancePlain(toId, balance + amount);
+        }
+      }
+    } else {
+      metrics.recordInsufficientFunds();
+    }
+    metrics.recordTransfer(startTimes[i]);
+    Callback callback = callbacks[i];
+    callbacks[i] = null;
+    if (callback != null) {
+      try {
+        callback.onComplete(fromId, toId, amount, transferred);
+      } catch (RuntimeException e) {
+        metrics.recordCallbackFailure();
+      }
+    }
+  }
+
+  private void applyRefunds(int partition) {
+    Refund refund;
+    while ((refund = refunds[partition].poll()) != null) {
+      //fits: the amount was taken out of this balance
+      store.setBalancePlain(refund.accountId, store.getBalancePlain(refund.accountId) + refund.amount);
+      pendingRefunds.decrementAndGet();
+    }
+  }
+
+  private static void idle(int attempt) {
+    if (attempt < SPINS) {
+      Thread.onSpinWait();
+    } else if (attempt < SPINS + YIELDS) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(50_000L);
+    }
+  }
+
+  /**
+   * Waits until every transfer submitted before this call has been applied and its callback has run.
+   * Balances read afterwards include them.
+   */
+  public void flush() {
+    long target = sequences.get(sequenceIndex(0));
+    for (int idle = 0; minCursor() < target || pendingRefunds.get() > 0; idle++) {
+      idle(idle);
+    }
+  }
+
+  /**
+   * Applies what was submitted before and stops the consumers.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    flush();
+    running = false;
+    for (Thread consumer : consumers) {
+      consumer.join();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+public class TransferResult {
+  private final Transfer transfer;
+  private final RuntimeException failure;
+
+  private TransferResult(Transfer transfer, RuntimeException failure) {
+    this.transfer = transfer;
+    this.failure = failure;
+  }
+
+  public static TransferResult success(Transfer transfer) {
+    return new TransferResult(transfer, null);
+  }
+
+  public static TransferResult failure(Transfer transfer, RuntimeException failure) {
+    return new TransferResult(transfer, failure);
+  }
+
+  public Transfer getTransfer() {
+    return transfer;
+  }
+
+  public boolean isSuccess() {
+    return failure == null;
+  }
+
+  /**
+   * @return why the transfer wasn't applied (usually InsufficientFundsException), or null on success
+   */
+  public RuntimeException getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    return transfer + (isSuccess() ? " done" : " failed: " + failure.getClass().getSimpleName());
+  }
+}
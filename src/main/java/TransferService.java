@@ -0,0 +1,119 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The one entry point for moving money, whichever strategy does it. Callers open accounts and transfer between
+ * them through the service and never see BankAccount, AtomicBankAccount or the locks, so switching strategies is
+ * a configuration change: -Dtransfer.strategy=lockFree (see TransferStrategies for the names). Two services on
+ * different strategies can run side by side for an A/B comparison under the same load.
+ *
+ * Every service records its transfers as the metrics strategy "TransferService:<name>", so next to the metrics
+ * of the engines underneath, each implementation has its own throughput, latency and insufficient funds counters
+ * on JMX and in TransferMetricsReporter, live.
+ */
+public class TransferService {
+  public static final String STRATEGY_PROPERTY = "transfer.strategy";
+
+  private final TransferStrategy strategy;
+  private final Executor executor;
+  private final TransferMetrics metrics;
+
+  /**
+   * Async transfers run on the common ForkJoinPool.
+   */
+  public TransferService(TransferStrategy strategy) {
+    this(strategy, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param executor runs transferAsync(), e.g. VirtualThreadTransferExecutor's for strategies that may block
+   */
+  public TransferService(TransferStrategy strategy, Executor executor) {
+    this.strategy = strategy;
+    this.executor = executor;
+    this.metrics = TransferMetrics.forStrategy("TransferService:" + strategy.getName());
+  }
+
+  /**
+   * @throws IllegalArgumentException if no strategy has this name
+   */
+  public static TransferService create(String strategyName) {
+    return new TransferService(TransferStrategies.create(strategyName));
+  }
+
+  /**
+   * Service on the strategy named by -Dtransfer.strategy, TransferStrategies.DEFAULT if it isn't set.
+   */
+  public static TransferService fromSystemProperties() {
+    return create(System.getProperty(STRATEGY_PROPERTY, TransferStrategies.DEFAULT));
+  }
+
+  public String getStrategyName() {
+    return strategy.getName();
+  }
+
+  public TransferMetrics getMetrics() {
+    return metrics;
+  }
+
+  public Account openAccount(long initialBalance, String name) {
+    Money.checkAmount(initialBalance);
+    return strategy.open(initialBalance, name);
+  }
+
+  public long getBalance(Account account) {
+    return strategy.getBalance(account);
+  }
+
+  /**
+   * @throws InsufficientFundsException if fromAccount can't cover the amount, nothing changes then
+   * @throws ArithmeticException if toAccount's balance would overflow, nothing changes then
+   * @throws IllegalArgumentException if the amount is negative or an account wasn't opened by this service
+   */
+  public void transfer(Account fromAccount, Account toAccount, long amount) throws InsufficientFundsException {
+    Money.checkAmount(amount);
+    long start = metrics.start();
+    try {
+      strategy.transfer(fromAccount, toAccount, amount);
+    } catch (InsufficientFundsException e) {
+      metrics.recordInsufficientFunds();
+      throw e;
+    } finally {
+      metrics.recordTransfer(start);
+    }
+  }
+
+  /**
+   * transfer() on the executor. The future completes exceptionally with what transfer() would have thrown.
+   */
+  public CompletableFuture<Void> transferAsync(Account fromAccount, Account toAccount, long amount) {
+    return CompletableFuture.runAsync(() -> transfer(fromAccount, toAccount, amount), executor);
+  }
+
+  /**
+   * Applies the transfers in input order as far as they touch the same accounts, possibly in fewer lock
+   * acquisitions than one by one (monitors groups them with BatchTransferEngine).
+   * @return one result per transfer, failed ones carry the InsufficientFundsException or ArithmeticException
+   */
+  public List<TransferResult> transferAll(List<Transfer> transfers) {
+    for (Transfer transfer : transfers) {
+      Money.checkAmount(transfer.getAmount());
+    }
+    long start = metrics.start();
+    List<TransferResult> results = strategy.transferAll(transfers);
+    for (TransferResult result : results) {
+      if (result.getFailure() instanceof InsufficientFundsException) {
+        metrics.recordInsufficientFunds();
+      }
+    }
+    metrics.recordTransfers(start, transfers.size());
+    return results;
+  }
+
+  @Override
+  public String toString() {
+    return "TransferService[" + strategy.getName() + "]";
+  }
+}
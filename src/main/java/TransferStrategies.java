@@ -0,0 +1,269 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the transfer strategies TransferService can run on, by name:
+ * - monitors: account monitors in System.identityHashCode order (MoneyTransferRunnableWithIdentityHashCode),
+ *   batches grouped by BatchTransferEngine
+ * - orderedLock: a ReentrantLock per account, taken in id order (MoneyTransferRunnableOrderedReentrantLock)
+ * - spinThenParkLock: the same with SpinThenParkLocks
+ * - stripedLock: StripedLockTransferEngine
+ * - lockFree: AtomicBankAccounts and LockFreeTransferEngine
+ * - stampedLock: StampedBankAccount, optimistic balance reads
+ * The demonstrations of what goes wrong (MoneyTransferRunnableRaceCondition and the like) are not registered.
+ * More can be added with register(), e.g. by a module that has a faster one.
+ */
+public final class TransferStrategies {
+  public static final String DEFAULT = "stripedLock";
+
+  private static final Map<String, Supplier<? extends TransferStrategy>> factories = new ConcurrentHashMap<>();
+
+  static {
+    register("monitors", MonitorStrategy::new);
+    register("orderedLock", () -> new OrderedLockStrategy("orderedLock", new AccountLocks()));
+    register("spinThenParkLock", () -> new OrderedLockStrategy("spinThenParkLock", new AccountLocks(SpinThenParkLock::new)));
+    register("stripedLock", StripedLockStrategy::new);
+    register("lockFree", LockFreeStrategy::new);
+    register("stampedLock", StampedLockStrategy::new);
+  }
+
+  private TransferStrategies() {
+  }
+
+  /**
+   * @param factory creates a new strategy with its own accounts and locks on every call
+   * @throws IllegalArgumentException if the name is taken
+   */
+  public static void register(String name, Supplier<? extends TransferStrategy> factory) {
+    if (factories.putIfAbsent(name, factory) != null) {
+      throw new IllegalArgumentException("transfer strategy " + name + " is already registered");
+    }
+  }
+
+  public static Set<String> names() {
+    return Collections.unmodifiableSet(new TreeSet<>(factories.keySet()));
+  }
+
+  /**
+   * @throws IllegalArgumentException if no strategy has this name
+   */
+  public static TransferStrategy create(String name) {
+    Supplier<? extends TransferStrategy> factory = factories.get(name);
+    if (factory == null) {
+      throw new IllegalArgumentException("unknown transfer strategy " + name + ", known: " + names());
+    }
+    return factory.get();
+  }
+
+  /**
+   * Remembers the accounts its open() returned, by identity: another instance of the same strategy, or another
+   * strategy on the same account class, opens accounts of the right type that its locks don't guard.
+   * The accounts stay referenced as long as the strategy.
+   */
+  private abstract static class OwningStrategy<A extends Account> implements TransferStrategy {
+    private final Class<A> type;
+    private final Set<Account> opened = ConcurrentHashMap.newKeySet();
+
+    OwningStrategy(Class<A> type) {
+      this.type = type;
+    }
+
+    abstract A newAccount(long initialBalance, String name);
+
+    public final Account open(long initialBalance, String name) {
+      A account = newAccount(initialBalance, name);
+      opened.add(account);
+      return account;
+    }
+
+    final A own(Account account) {
+      //none of the account classes overrides equals, so the set compares identities
+      if (!opened.contains(account)) {
+        throw new IllegalArgumentException(account.getName() + " wasn't opened by this " + getName() + " strategy");
+      }
+      return type.cast(account);
+    }
+  }
+
+  private static class MonitorStrategy extends OwningStrategy<BankAccount> {
+    private final BatchTransferEngine batches = new BatchTransferEngine();
+
+    MonitorStrategy() {
+      super(BankAccount.class);
+    }
+
+    public String getName() {
+      return "monitors";
+    }
+
+    BankAccount newAccount(long initialBalance, String name) {
+      return new BankAccount(initialBalance, name);
+    }
+
+    /**
+     * Locks the two monitors directly, a batch of one would allocate its grouping on every transfer.
+     * Same order and tie lock as MoneyTransferRunnableWithIdentityHashCode and BatchTransferEngine.
+     */
+    public void transfer(Account fromAccount, Account toAccount, long amount) {
+      BankAccount from = own(fromAccount);
+      BankAccount to = own(toAccount);
+      int fromHash = System.identityHashCode(from);
+      int toHash = System.identityHashCode(to);
+      if (fromHash < toHash || from == to) {
+        synchronized (from) {
+          synchronized (to) {
+            apply(from, to, amount);
+          }
+        }
+      } else if (fromHash > toHash) {
+        synchronized (to) {
+          synchronized (from) {
+            apply(from, to, amount);
+          }
+        }
+      } else {
+        synchronized (MoneyTransferRunnableWithIdentityHashCode.tieLock) {
+          synchronized (from) {
+            synchronized (to) {
+              apply(from, to, amount);
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Under both monitors. The deposit first: if it overflows, nothing has been withdrawn yet.
+     */
+    private static void apply(BankAccount from, BankAccount to, long amount) {
+      if (from.getBalance() < amount) {
+        throw new InsufficientFundsException();
+      }
+      to.deposit(amount);
+      from.withdraw(amount);
+    }
+
+    @Override
+    public long getBalance(Account account) {
+      BankAccount bankAccount = own(account);
+      synchronized (bankAccount) {
+        return bankAccount.getBalance();
+      }
+    }
+
+    @Override
+    public List<TransferResult> transferAll(List<Transfer> transfers) {
+      //all checked first, like BatchTransferEngine does: nothing is applied if one account is foreign
+      for (Transfer transfer : transfers) {
+        own(transfer.getFromAccount());
+        own(transfer.getToAccount());
+      }
+      return batches.transferAll(transfers);
+    }
+  }
+
+  private static class OrderedLockStrategy extends OwningStrategy<BankAccount> {
+    private final String name;
+    private final AccountLocks locks;
+
+    OrderedLockStrategy(String name, AccountLocks locks) {
+      super(BankAccount.class);
+      this.name = name;
+      this.locks = locks;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    BankAccount newAccount(long initialBalance, String name) {
+      return new BankAccount(initialBalance, name);
+    }
+
+    public void transfer(Account fromAccount, Account toAccount, long amount) {
+      new MoneyTransferRunnableOrderedReentrantLock(locks, own(fromAccount), own(toAccount), amount).run();
+    }
+
+    @Override
+    public long getBalance(Account account) {
+      BankAccount bankAccount = own(account);
+      Lock lock = locks.lockFor(bankAccount);
+      lock.lock();
+      try {
+        return bankAccount.getBalance();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private static class StripedLockStrategy extends OwningStrategy<BankAccount> {
+    private final StripedLockTransferEngine engine = new StripedLockTransferEngine();
+
+    StripedLockStrategy() {
+      super(BankAccount.class);
+    }
+
+    public String getName() {
+      return "stripedLock";
+    }
+
+    BankAccount newAccount(long initialBalance, String name) {
+      return new BankAccount(initialBalance, name);
+    }
+
+    public void transfer(Account fromAccount, Account toAccount, long amount) {
+      engine.transfer(own(fromAccount), own(toAccount), amount);
+    }
+
+    @Override
+    public long getBalance(Account account) {
+      return engine.getBalance(own(account));
+    }
+  }
+
+  private static class LockFreeStrategy extends OwningStrategy<AtomicBankAccount> {
+    private final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+
+    LockFreeStrategy() {
+      super(AtomicBankAccount.class);
+    }
+
+    public String getName() {
+      return "lockFree";
+    }
+
+    AtomicBankAccount newAccount(long initialBalance, String name) {
+      return new AtomicBankAccount(initialBalance, name);
+    }
+
+    public void transfer(Account fromAccount, Account toAccount, long amount) {
+      engine.transfer(own(fromAccount), own(toAccount), amount);
+    }
+  }
+
+  private static class StampedLockStrategy extends OwningStrategy<StampedBankAccount> {
+
+    StampedLockStrategy() {
+      super(StampedBankAccount.class);
+    }
+
+    public String getName() {
+      return "stampedLock";
+    }
+
+    StampedBankAccount newAccount(long initialBalance, String name) {
+      return new StampedBankAccount(initialBalance, name);
+    }
+
+    public void transfer(Account fromAccount, Account toAccount, long amount) {
+      StampedBankAccount.transfer(own(fromAccount), own(toAccount), amount);
+    }
+  }
+}
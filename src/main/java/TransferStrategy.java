@@ -0,0 +1,44 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One way of doing transfers behind TransferService: it opens accounts of the kind it works on and moves money
+ * between them. Implementations are registered by name in TransferStrategies.
+ * Accounts must come from open() of the same strategy instance; its locks, stripes or CAS protocol only guard
+ * the accounts it knows about.
+ */
+public interface TransferStrategy {
+
+  String getName();
+
+  Account open(long initialBalance, String name);
+
+  /**
+   * @throws InsufficientFundsException if fromAccount can't cover the amount, nothing changes then
+   * @throws IllegalArgumentException if an account wasn't opened by this strategy
+   */
+  void transfer(Account fromAccount, Account toAccount, long amount) throws InsufficientFundsException;
+
+  /**
+   * Reads the balance so that it's never older than the last completed transfer on the account.
+   */
+  default long getBalance(Account account) {
+    return account.getBalance();
+  }
+
+  /**
+   * One result per transfer, in input order. One by one by default, strategies that can do better override it.
+   */
+  default List<TransferResult> transferAll(List<Transfer> transfers) {
+    List<TransferResult> results = new ArrayList<>(transfers.size());
+    for (Transfer transfer : transfers) {
+      try {
+        transfer(transfer.getFromAccount(), transfer.getToAccount(), transfer.getAmount());
+        results.add(TransferResult.success(transfer));
+      } catch (InsufficientFundsException | ArithmeticException e) {
+        results.add(TransferResult.failure(transfer, e));
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,61 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balance managed by Stm: read and written only inside Stm.atomically(), except for single reads.
+ * Next to the value it keeps a version lock: the global clock value of the last commit that wrote it,
+ * shifted left by one, with the lowest bit set while a commit is writing it.
+ */
+public class TxRef {
+  private static final AtomicLong nextId = new AtomicLong();
+
+  final long id = nextId.incrementAndGet();
+  final AtomicLong versionLock = new AtomicLong();
+  //written only by the commit holding versionLock, volatile so readers can check versionLock around it
+  volatile long value;
+  private final String name;
+
+  public TxRef(long initialValue, String name) {
+    this.value = initialValue;
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Committed value, the same as reading it in a transaction of its own.
+   */
+  public long get() {
+    return Stm.atomicallyGet(tx -> tx.get(this));
+  }
+
+  /**
+   * @return value as of readVersion, or throws Stm.CONFLICT if a later commit wrote it or one is writing it now
+   */
+  long read(long readVersion) {
+    long before = versionLock.get();
+    if ((before & 1) != 0 || before >>> 1 > readVersion) {
+      throw Stm.CONFLICT;
+    }
+    long current = value;
+    if (versionLock.get() != before) {
+      throw Stm.CONFLICT;
+    }
+    return current;
+  }
+
+  boolean tryLock() {
+    long current = versionLock.get();
+    return (current & 1) == 0 && versionLock.compareAndSet(current, current | 1);
+  }
+
+  void unlock() {
+    versionLock.getAndDecrement();
+  }
+
+  void commit(long newValue, long writeVersion) {
+    value = newValue;
+    versionLock.set(writeVersion << 1);
+  }
+}
@@ -0,0 +1,78 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every transfer runnable on its own virtual thread, so a transfer that blocks (Thread.sleep in the
+ * runnables, I/O in a real system) costs a parked continuation instead of a platform thread.
+ * The number of carrier threads is the JDK's virtual thread scheduler parallelism (number of cores by default,
+ * -Djdk.virtualThreadScheduler.parallelism to change it), no matter how many transfers are in flight.
+ *
+ * Runnables must not block inside synchronized: a virtual thread waiting for a monitor, or sleeping while
+ * holding one, pins its carrier. Use the ReentrantLock based ones (MoneyTransferRunnableMutex,
+ * MoneyTransferRunnableOrderedReentrantLock, StripedLockTransferEngine) instead of
+ * MoneyTransferRunnableRaceConditionLock and MoneyTransferRunnableWithIdentityHashCode.
+ *
+ * The build targets Java 11, so virtual threads are looked up at runtime. On a JDK without them
+ * (before 21) this falls back to a fixed pool of platform threads, see isVirtual().
+ */
+public class VirtualThreadTransferExecutor implements AutoCloseable {
+  public static final int DEFAULT_FALLBACK_THREADS = 200;
+
+  private final ExecutorService executor;
+  private final boolean virtual;
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+
+  /**
+   * @param maxInFlight transfers accepted at the same time, submit() waits when that many are running
+   */
+  public VirtualThreadTransferExecutor(int maxInFlight) {
+    ExecutorService virtualExecutor = newVirtualThreadPerTaskExecutor();
+    this.virtual = virtualExecutor != null;
+    this.executor = virtual ? virtualExecutor : Executors.newFixedThreadPool(DEFAULT_FALLBACK_THREADS);
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return false if this JDK has no virtual threads and transfers run on a platform thread pool
+   */
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  public int getInFlight() {
+    return maxInFlight - inFlight.availablePermits();
+  }
+
+  /**
+   * Replaces new Thread(transfer).start() and join(): the future completes when the runnable returns,
+   * exceptionally if it throws (e.g. InsufficientFundsException).
+   */
+  public CompletableFuture<Void> submit(Runnable transfer) throws InterruptedException {
+    inFlight.acquire();
+    try {
+      return CompletableFuture.runAsync(transfer, executor).whenComplete((ignored, failure) -> inFlight.release());
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+  }
+}
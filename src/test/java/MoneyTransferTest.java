@@ -1,5 +1,29 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 public class MoneyTransferTest {
 /**
  * Deadlock may appear as if all the threads acquire their locks not in the same order
@@ -27,6 +51,75 @@ public class MoneyTransferTest {
     System.out.println("Final balance of Account 2: " + accountUlises.getBalance());
   }
 
+  /**
+   * When the lock order can't be controlled, deadlock can be detected and broken instead.
+   * Locks are taken with tryLock and a timeout, and a watchdog looks for deadlocked threads with
+   * ThreadMXBean.findDeadlockedThreads. It interrupts one of them, that transfer releases its lock,
+   * backs off for a random time and retries after the other one has finished.
+   * The timeout here is long on purpose, so it's the watchdog that breaks the deadlock.
+   **/
+  @Test
+  public void testDeadlockRecovery() throws InterruptedException {
+    BankAccount accountMariia = new BankAccount(1000, "Mariia's account");
+    BankAccount accountUlises = new BankAccount(500, "Ulises's account");
+    DeadlockRecoveringTransferEngine engine = new DeadlockRecoveringTransferEngine(10, 20, TimeUnit.SECONDS);
+
+    try (DeadlockWatchdog watchdog = new DeadlockWatchdog(engine, 50, TimeUnit.MILLISECONDS)) {
+      Thread transferThread1 = new Thread(new MoneyTransferRunnableDeadLockRecovery(engine, accountMariia, accountUlises, 200));
+      Thread transferThread2 = new Thread(new MoneyTransferRunnableDeadLockRecovery(engine, accountUlises, accountMariia, 300));
+
+      transferThread1.start();
+      transferThread2.start();
+      transferThread1.join();
+      transferThread2.join();
+
+      System.out.println("Final balance of Account 1: " + accountMariia.getBalance());
+      System.out.println("Final balance of Account 2: " + accountUlises.getBalance());
+      System.out.println(watchdog.getStats());
+      assertEquals(1100, accountMariia.getBalance());
+      assertEquals(400, accountUlises.getBalance());
+      assertTrue(watchdog.getStats().getDetectedDeadlocks() >= 1);
+      assertTrue(watchdog.getStats().getRetries() >= 1);
+    }
+
+    //two separate cycles at once: a single check must break both of them
+    DeadlockWatchdog manualWatchdog = new DeadlockWatchdog(engine, 1, TimeUnit.HOURS);
+    BankAccount[] accounts = new BankAccount[4];
+    for (int i = 0; i < accounts.length; i++) {
+      accounts[i] = new BankAccount(1000, "Account " + i);
+    }
+    Thread[] transferThreads = {
+        new Thread(new MoneyTransferRunnableDeadLockRecovery(engine, accounts[0], accounts[1], 100)),
+        new Thread(new MoneyTransferRunnableDeadLockRecovery(engine, accounts[1], accounts[0], 100)),
+        new Thread(new MoneyTransferRunnableDeadLockRecovery(engine, accounts[2], accounts[3], 100)),
+        new Thread(new MoneyTransferRunnableDeadLockRecovery(engine, accounts[3], accounts[2], 100))};
+    for (Thread transferThread : transferThreads) {
+      transferThread.start();
+    }
+    long[] deadlocked;
+    do {
+      Thread.sleep(10);
+      deadlocked = ManagementFactory.getThreadMXBean().findDeadlockedThreads();
+    } while (deadlocked == null || deadlocked.length < 4);
+    long detected = manualWatchdog.getStats().getDetectedDeadlocks();
+    manualWatchdog.check();
+    assertEquals(detected + 2, manualWatchdog.getStats().getDetectedDeadlocks());
+    //a victim may barge back into its first lock before the other thread wakes up and deadlock again, like it would
+    //with the scheduled checks; well below the 10 s lock timeout, so it's the checks that let them finish
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    for (Thread transferThread : transferThreads) {
+      while (transferThread.isAlive() && System.nanoTime() < deadline) {
+        transferThread.join(50);
+        manualWatchdog.check();
+      }
+      assertFalse(transferThread.isAlive());
+    }
+    manualWatchdog.close();
+    for (BankAccount account : accounts) {
+      assertEquals(1000, account.getBalance());
+    }
+  }
+
   /**
    * One way to induce an ordering on objects is to use System.identityHashCode,
    * which returns the value that would be returned by Object.hashCode.
@@ -49,6 +142,107 @@ public class MoneyTransferTest {
     System.out.println("Final balance of Account 2: " + accountUlises.getBalance());
   }
 
+  /**
+   * Batch transfer takes the monitors of all accounts a group of transfers touches once,
+   * in the same identityHashCode order as above, and then applies the whole group.
+   * Failed transfers don't stop the batch, they are reported in the result.
+   **/
+  @Test
+  public void testBatchTransfer() {
+    BankAccount accountMariia = new BankAccount(1000, "Mariia's account");
+    BankAccount accountUlises = new BankAccount(500, "Ulises's account");
+    BankAccount account3 = new BankAccount(100, "Account 3");
+    BankAccount account4 = new BankAccount(0, "Account 4");
+
+    List<Transfer> transfers = Arrays.asList(
+        new Transfer(accountMariia, accountUlises, 200),
+        new Transfer(accountUlises, accountMariia, 300),
+        new Transfer(account3, account4, 100),
+        new Transfer(account3, account4, 100),
+        new Transfer(accountUlises, account3, 400));
+
+    List<TransferResult> results = new BatchTransferEngine().transferAll(transfers);
+    results.forEach(System.out::println);
+
+    assertTrue(results.get(0).isSuccess());
+    assertTrue(results.get(1).isSuccess());
+    assertTrue(results.get(2).isSuccess());
+    assertTrue(results.get(3).getFailure() instanceof InsufficientFundsException);
+    assertTrue(results.get(4).isSuccess());
+    assertEquals(1100, accountMariia.getBalance());
+    assertEquals(0, accountUlises.getBalance());
+    assertEquals(400, account3.getBalance());
+    assertEquals(100, account4.getBalance());
+  }
+
+  /**
+   * Balances exist only in memory, so a crash between withdraw and deposit loses the money.
+   * With a write-ahead journal every transfer is one record on disk before it is acknowledged,
+   * and after a restart the journal is replayed: each transfer comes back completely or not at all.
+   * Threads waiting for the disk at the same time share one force of the memory-mapped segment.
+   **/
+  @Test
+  public void testTransferJournalRecovery() throws IOException, InterruptedException {
+    Path directory = Files.createTempDirectory("journal");
+    int account1;
+    int account2;
+
+    try (DurableTransferEngine engine = DurableTransferEngine.open(directory, 16, 4096)) {
+      account1 = engine.createAccount(1000, "Account 1");
+      account2 = engine.createAccount(500, "Account 2");
+      Thread[] transferThreads = new Thread[4];
+      for (int t = 0; t < transferThreads.length; t++) {
+        boolean forward = t % 2 == 0;
+        transferThreads[t] = new Thread(() -> {
+          for (int i = 0; i < 100; i++) {
+            engine.transfer(forward ? account1 : account2, forward ? account2 : account1, forward ? 2 : 1);
+          }
+        });
+        transferThreads[t].start();
+      }
+      for (Thread transferThread : transferThreads) {
+        transferThread.join();
+      }
+    }
+
+    //"restart": a new store is rebuilt from the journal only, spanning several 4 KB segments
+    try (DurableTransferEngine engine = DurableTransferEngine.open(directory, 16, 4096)) {
+      System.out.println("Recovered balance of Account 1: " + engine.getBalance(account1));
+      System.out.println("Recovered balance of Account 2: " + engine.getBalance(account2));
+      assertEquals(800, engine.getBalance(account1));
+      assertEquals(700, engine.getBalance(account2));
+
+      engine.transfer(account1, account2, 300);
+    }
+    try (DurableTransferEngine engine = DurableTransferEngine.open(directory, 16, 4096)) {
+      assertEquals(500, engine.getBalance(account1));
+      assertEquals(1000, engine.getBalance(account2));
+    }
+
+    //a torn write: records 1 to 5 are on disk but 4 is corrupt, so recovery stops after 3 and 4 is appended again,
+    //the stale 5 behind it must not come back after the next restart
+    Path tornDirectory = Files.createTempDirectory("journal");
+    try (DurableTransferEngine engine = DurableTransferEngine.open(tornDirectory, 16, 4096)) {
+      engine.createAccount(1000, "Account 1");
+      engine.createAccount(500, "Account 2");
+      engine.transfer(0, 1, 100);
+      engine.transfer(0, 1, 200);
+      engine.transfer(0, 1, 300);
+    }
+    Path segment = tornDirectory.resolve("journal-000000.seg");
+    byte[] bytes = Files.readAllBytes(segment);
+    bytes[3 * TransferJournal.RECORD_SIZE + 20] ^= 1;
+    Files.write(segment, bytes);
+    try (DurableTransferEngine engine = DurableTransferEngine.open(tornDirectory, 16, 4096)) {
+      assertEquals(900, engine.getBalance(0));
+      engine.transfer(1, 0, 50);
+    }
+    try (DurableTransferEngine engine = DurableTransferEngine.open(tornDirectory, 16, 4096)) {
+      assertEquals(950, engine.getBalance(0));
+      assertEquals(550, engine.getBalance(1));
+    }
+  }
+
   /** Race condition: A race condition occurs when the behavior of a program depends on the relative timing
    or interleaving of multiple threads. It can lead to inconsistent and incorrect results when threads access
    and modify shared data simultaneously. To avoid race conditions, there must be a way to prevent other
@@ -106,6 +300,781 @@ public class MoneyTransferTest {
     System.out.println("Final balance of Account 2: " + account2.getBalance());
   }
 
+  /**
+   * Atomic fix above still withdraws blindly, so two transfers can take the balance below zero.
+   * Lock-free transfer does check-then-act as a single compareAndSet: the balance is written only
+   * if it still covers the amount, otherwise the CAS loop gives up with InsufficientFundsException.
+   * Here only one of the two transfers fits, whichever thread wins.
+   **/
+  @Test
+  public void testOverdraftFixWithLockFreeTransfer() throws InterruptedException {
+    AtomicBankAccount account1 = new AtomicBankAccount(1000, "Account 1");
+    AtomicBankAccount account2 = new AtomicBankAccount(500, "Account 2");
+
+    Thread transferThread1 = new Thread(new MoneyTransferRunnableLockFree(account1, account2, 600));
+    Thread transferThread2 = new Thread(new MoneyTransferRunnableLockFree(account1, account2, 700));
+
+    transferThread1.start();
+    transferThread2.start();
+    transferThread1.join();
+    transferThread2.join();
+
+    System.out.println("Final balance of Account 1: " + account1.getBalance());
+    System.out.println("Final balance of Account 2: " + account2.getBalance());
+    assertEquals(1500, account1.getBalance() + account2.getBalance());
+    assertTrue(account1.getBalance() == 400 || account1.getBalance() == 300);
+  }
+
+  /**
+   * Lock-free transfers to one hot account: every deposit is a CAS on the same field, and most of them fail.
+   * AdaptiveBankAccount notices the failed CASes and spreads the deposits over cells, withdrawals still
+   * see all the money and are rejected only when the cells together can't cover them.
+   **/
+  @Test
+  public void testHotAccountDeposits() throws InterruptedException {
+    //starts hot: on a machine with few cores the CASes may not fail often enough to promote it
+    AdaptiveBankAccount merchant = new AdaptiveBankAccount(0, "Merchant", 0);
+    assertTrue(merchant.isHot());
+    LockFreeTransferEngine engine = new LockFreeTransferEngine();
+    AdaptiveBankAccount[] customers = new AdaptiveBankAccount[8];
+    Thread[] transferThreads = new Thread[customers.length];
+    for (int t = 0; t < customers.length; t++) {
+      AdaptiveBankAccount customer = new AdaptiveBankAccount(10_000, "Customer " + t);
+      customers[t] = customer;
+      transferThreads[t] = new Thread(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          engine.transfer(customer, merchant, 1);
+        }
+      });
+      transferThreads[t].start();
+    }
+    for (Thread transferThread : transferThreads) {
+      transferThread.join();
+    }
+
+    System.out.println("Merchant is hot: " + merchant.isHot() + ", balance: " + merchant.getBalance());
+    assertEquals(80_000, merchant.getBalance());
+    assertTrue(!merchant.tryWithdraw(80_001));
+    //the base got none of the deposits, only draining the cells can cover this
+    assertTrue(merchant.tryWithdraw(80_000));
+    assertEquals(0, merchant.getBalance());
+    for (AdaptiveBankAccount customer : customers) {
+      assertEquals(0, customer.getBalance());
+    }
+
+    //a cold account turns hot by itself once deposits keep losing their CAS, without losing any of them
+    AdaptiveBankAccount cold = new AdaptiveBankAccount(0, "Cold merchant", 1);
+    assertFalse(cold.isHot());
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    long[] deposited = new long[4];
+    Thread[] depositThreads = new Thread[deposited.length];
+    for (int t = 0; t < depositThreads.length; t++) {
+      int thread = t;
+      depositThreads[t] = new Thread(() -> {
+        //chunks of deposits until one of the failed CASes promoted the account
+        while (!cold.isHot() && System.nanoTime() < deadline) {
+          for (int i = 0; i < 10_000; i++) {
+            cold.deposit(1);
+            deposited[thread]++;
+          }
+        }
+      });
+      depositThreads[t].start();
+    }
+    long expected = 0;
+    for (int t = 0; t < depositThreads.length; t++) {
+      depositThreads[t].join();
+      expected += deposited[t];
+    }
+    System.out.println("Promoted after " + expected + " deposits");
+    assertTrue(cold.isHot());
+    assertEquals(expected, cold.getBalance());
+  }
+
+  /**
+   * Each fix above locks exactly two accounts in an order chosen by hand. A payment split across several payees
+   * needs all of them at once, and the ordering code gets harder with every account.
+   * With STM the block just withdraws and deposits; it is run again if another commit touched the same accounts,
+   * and the whole split either happens or, on InsufficientFundsException, doesn't.
+   **/
+  @Test
+  public void testSplitPaymentWithStm() throws InterruptedException {
+    TxRef[] accounts = new TxRef[5];
+    for (int i = 0; i < accounts.length; i++) {
+      accounts[i] = new TxRef(1000, "Account " + (i + 1));
+    }
+    StmTransferEngine engine = new StmTransferEngine();
+
+    Thread[] transferThreads = new Thread[accounts.length];
+    for (int t = 0; t < transferThreads.length; t++) {
+      TxRef payer = accounts[t];
+      TxRef[] payees = new TxRef[accounts.length - 1];
+      for (int i = 0, j = 0; i < accounts.length; i++) {
+        if (i != t) {
+          payees[j++] = accounts[i];
+        }
+      }
+      transferThreads[t] = new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          try {
+            engine.split(payer, payees, new long[] {1, 2, 3, 4});
+          } catch (InsufficientFundsException e) {
+            //nothing was paid to any payee
+          }
+        }
+      });
+      transferThreads[t].start();
+    }
+    for (Thread transferThread : transferThreads) {
+      transferThread.join();
+    }
+
+    long total = Stm.atomicallyGet(tx -> {
+      long sum = 0;
+      for (TxRef account : accounts) {
+        assertTrue(tx.get(account) >= 0);
+        sum += tx.get(account);
+      }
+      return sum;
+    });
+    System.out.println("STM commits: " + Stm.getCommits() + ", retries: " + Stm.getRetries());
+    assertEquals(5000, total);
+
+    //a split that would overflow one payee's balance pays none of them
+    //(a payer of its own: the random splits above may have left any of the accounts empty)
+    TxRef payer = new TxRef(100, "Payer");
+    TxRef payee = new TxRef(0, "Payee");
+    TxRef fullAccount = new TxRef(Long.MAX_VALUE, "Full account");
+    try {
+      engine.split(payer, new TxRef[] {payee, fullAccount}, new long[] {1, 1});
+      throw new AssertionError("overflow was not detected");
+    } catch (ArithmeticException e) {
+      System.out.println("Split rejected: " + e.getMessage());
+    }
+    assertEquals(100, (long) Stm.atomicallyGet(tx -> tx.get(payer)));
+    assertEquals(0, (long) Stm.atomicallyGet(tx -> tx.get(payee)));
+  }
+
+  /**
+   * Instead of printing "acquired lock" from the transfer, every strategy records how long it waited for its locks,
+   * how long it held them and the whole transfer latency into histograms, plus rejections and retries.
+   * A snapshot shows one interval, the MBean the same numbers over JMX.
+   **/
+  @Test
+  public void testTransferMetrics() throws Exception {
+    TransferMetrics metrics = TransferMetrics.forStrategy("StripedLockTransferEngine");
+    StripedLockTransferEngine engine = new StripedLockTransferEngine();
+    BankAccount account1 = new BankAccount(1000, "Account 1");
+    BankAccount account2 = new BankAccount(500, "Account 2");
+    metrics.snapshot();
+
+    Thread[] transferThreads = new Thread[4];
+    for (int t = 0; t < transferThreads.length; t++) {
+      transferThreads[t] = new Thread(() -> {
+        for (int i = 0; i < 100; i++) {
+          try {
+            engine.transfer(account1, account2, 5);
+          } catch (InsufficientFundsException e) {
+            //counted by the engine
+          }
+        }
+      });
+      transferThreads[t].start();
+    }
+    for (Thread transferThread : transferThreads) {
+      transferThread.join();
+    }
+
+    TransferMetricsSnapshot snapshot = metrics.snapshot();
+    System.out.println(snapshot);
+    assertEquals(400, snapshot.getTransfers());
+    assertEquals(200, snapshot.getInsufficientFunds());
+    //only a sample of the transfers is timed
+    assertTrue(snapshot.getLatency().getTotalCount() > 0 && snapshot.getLatency().getTotalCount() <= 400);
+    assertEquals(snapshot.getLatency().getTotalCount(), snapshot.getLockHold().getTotalCount());
+    assertEquals(0, account1.getBalance());
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = TransferMetrics.objectName("StripedLockTransferEngine");
+    assertEquals(metrics.getTransfers(), server.getAttribute(name, "Transfers"));
+    assertTrue((Long) server.getAttribute(name, "LatencyP99Nanos") > 0);
+  }
+
+  /**
+   * The overdraft race of testRaceCondition through TransferService, once per registered strategy:
+   * the same calls, only the strategy name changes, and every strategy lets exactly one of the two transfers through.
+   **/
+  @Test
+  public void testTransferServiceStrategies() {
+    for (String name : TransferStrategies.names()) {
+      TransferService service = TransferService.create(name);
+      Account account1 = service.openAccount(1000, "Account 1");
+      Account account2 = service.openAccount(500, "Account 2");
+
+      CompletableFuture<Void> transfer1 = service.transferAsync(account1, account2, 600);
+      CompletableFuture<Void> transfer2 = service.transferAsync(account1, account2, 600);
+      int failed = 0;
+      for (CompletableFuture<Void> transfer : Arrays.asList(transfer1, transfer2)) {
+        try {
+          transfer.join();
+        } catch (CompletionException e) {
+          assertTrue(e.getCause() instanceof InsufficientFundsException);
+          failed++;
+        }
+      }
+      assertEquals(1, failed);
+      assertEquals(400, service.getBalance(account1));
+      assertEquals(1100, service.getBalance(account2));
+
+      List<TransferResult> results = service.transferAll(Arrays.asList(
+          new Transfer(account2, account1, 1100), new Transfer(account2, account1, 1), new Transfer(account1, account2, 500)));
+      assertTrue(results.get(0).isSuccess());
+      assertFalse(results.get(1).isSuccess());
+      assertTrue(results.get(2).isSuccess());
+      assertEquals(1000, service.getBalance(account1));
+      assertEquals(500, service.getBalance(account2));
+
+      TransferMetrics metrics = service.getMetrics();
+      System.out.println(service + ": " + metrics.getTransfers() + " transfers, " + metrics.getInsufficientFunds() + " insufficient funds");
+      assertTrue(metrics.getTransfers() >= 5);
+    }
+    //an account is only guarded by the locks of the strategy instance that opened it, even if the type fits another
+    Account foreign = TransferService.create("stripedLock").openAccount(100, "Account 3");
+    for (String name : Arrays.asList("lockFree", "stripedLock", "monitors")) {
+      TransferService other = TransferService.create(name);
+      Account own = other.openAccount(100, "Account 4");
+      try {
+        other.transfer(own, foreign, 10);
+        throw new AssertionError("transferred to an account of another strategy instance");
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage());
+      }
+      try {
+        other.transferAll(Arrays.asList(new Transfer(foreign, own, 10)));
+        throw new AssertionError("transferred from an account of another strategy instance");
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage());
+      }
+      assertEquals(100, foreign.getBalance());
+      assertEquals(100, own.getBalance());
+    }
+  }
+
+  /**
+   * The ordered-locking transfer on SpinThenParkLocks instead of ReentrantLocks: same ordering, same results.
+   * The lock learns from hold times: after a run of long holds waiters stop spinning and park right away.
+   **/
+  @Test
+  public void testTransferWithSpinThenParkLock() throws InterruptedException {
+    AccountLocks locks = new AccountLocks(SpinThenParkLock::new);
+    BankAccount[] accounts = new BankAccount[4];
+    for (int i = 0; i < accounts.length; i++) {
+      accounts[i] = new BankAccount(100_000, "Account " + i);
+    }
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      int seed = t;
+      threads[t] = new Thread(() -> {
+        Random random = new Random(seed);
+        for (int i = 0; i < 20_000; i++) {
+          new MoneyTransferRunnableOrderedReentrantLock(locks,
+              accounts[random.nextInt(accounts.length)], accounts[random.nextInt(accounts.length)], 1).run();
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long total = 0;
+    for (BankAccount account : accounts) {
+      total += account.getBalance();
+    }
+    assertEquals(400_000, total);
+
+    SpinThenParkLock lock = new SpinThenParkLock();
+    lock.lock();
+    lock.lock();
+    //an assert in the other thread would only kill that thread, the result is checked here
+    AtomicBoolean acquiredByOther = new AtomicBoolean(true);
+    Thread other = new Thread(() -> acquiredByOther.set(lock.tryLock()));
+    other.start();
+    other.join();
+    assertFalse(acquiredByOther.get());
+    lock.unlock();
+    assertTrue(lock.isHeldByCurrentThread());
+    lock.unlock();
+    assertFalse(lock.isLocked());
+    try {
+      lock.unlock();
+      throw new AssertionError("unlocked a lock it didn't hold");
+    } catch (IllegalMonitorStateException e) {
+      System.out.println("Only the owner can unlock");
+    }
+
+    for (int i = 0; i < 32; i++) {
+      lock.lock();
+      try {
+        Thread.sleep(1);
+      } finally {
+        lock.unlock();
+      }
+    }
+    System.out.println(lock);
+    assertTrue(lock.getAverageHoldNanos() > SpinThenParkLock.MAX_SPIN_NANOS / 2);
+    assertEquals(0, lock.getSpinNanos());
+  }
+
+  /**
+   * Settlement nets a whole batch into one delta per account in parallel and writes each changed balance once.
+   * Funds are checked against the netted result: an account may pay out money it receives later in the batch,
+   * and a batch that leaves any account negative is rejected as a whole.
+   **/
+  @Test
+  public void testSettlementNetting() {
+    int accountCount = 100;
+    int transferCount = 200_000;
+    PrimitiveAccountStore store = new PrimitiveAccountStore(accountCount);
+    long[] expected = new long[accountCount];
+    for (int id = 0; id < accountCount; id++) {
+      expected[id] = id == 0 ? 0 : 1_000_000;
+      store.create(expected[id], "Account " + id);
+    }
+    int[] fromIds = new int[transferCount];
+    int[] toIds = new int[transferCount];
+    long[] amounts = new long[transferCount];
+    Random random = new Random(23);
+    for (int i = 0; i < transferCount; i++) {
+      fromIds[i] = 1 + random.nextInt(accountCount - 1);
+      toIds[i] = 1 + random.nextInt(accountCount - 1);
+      amounts[i] = 1 + random.nextInt(50);
+    }
+    //account 0 starts empty and pays first, only what it receives at the end of the batch covers it
+    fromIds[0] = 0;
+    toIds[0] = 1;
+    toIds[transferCount - 1] = 0;
+    amounts[transferCount - 1] = amounts[0];
+    for (int i = 0; i < transferCount; i++) {
+      expected[fromIds[i]] -= amounts[i];
+      expected[toIds[i]] += amounts[i];
+    }
+    //four workers even on a small machine, so the batch is netted in several chunks
+    SettlementEngine engine = new SettlementEngine(new ForkJoinPool(4));
+
+    SettlementEngine.Result result = engine.settle(store, fromIds, toIds, amounts);
+    System.out.println(result);
+    assertTrue(result.isApplied());
+    for (int id = 0; id < accountCount; id++) {
+      assertEquals(expected[id], store.getBalance(id));
+    }
+    assertEquals(99L * 1_000_000, store.totalBalance());
+
+    //one account short: nothing is applied
+    long[] before = new long[accountCount];
+    for (int id = 0; id < accountCount; id++) {
+      before[id] = store.getBalance(id);
+    }
+    SettlementEngine.Result rejected = engine.settle(store, new int[] {2, 3}, new int[] {3, 4}, new long[] {before[2] + 1, 5});
+    System.out.println(rejected);
+    assertFalse(rejected.isApplied());
+    assertEquals(2, rejected.getFirstShortAccount());
+    for (int id = 0; id < accountCount; id++) {
+      assertEquals(before[id], store.getBalance(id));
+    }
+  }
+
+  /**
+   * Same two transfers as testRaceConditionFixWithMutex, but the 200 ms of processing run outside the lock:
+   * the amount is reserved in a hold first and committed afterwards, so the two transfers overlap instead of
+   * queueing behind one lock. A hold nobody commits expires and the money returns to the account.
+   **/
+  @Test
+  public void testTransferWithHold() throws InterruptedException {
+    BankAccount account1 = new BankAccount(1000, "Account 1");
+    BankAccount account2 = new BankAccount(500, "Account 2");
+
+    try (HoldTransferEngine engine = new HoldTransferEngine()) {
+      Thread transferThread1 = new Thread(new MoneyTransferRunnableHold(engine, account1, account2, 200));
+      Thread transferThread2 = new Thread(new MoneyTransferRunnableHold(engine, account1, account2, 300));
+
+      long start = System.nanoTime();
+      transferThread1.start();
+      transferThread2.start();
+      transferThread1.join();
+      transferThread2.join();
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      System.out.println("Both transfers took " + elapsedMillis + " ms");
+      assertTrue(elapsedMillis < 390);
+      assertEquals(500, account1.getBalance());
+      assertEquals(1000, account2.getBalance());
+      assertEquals(0, engine.getHeldTotal());
+
+      Hold hold = engine.reserve(account1, 400, 50, TimeUnit.MILLISECONDS);
+      assertEquals(100, account1.getBalance());
+      try {
+        engine.reserve(account1, 200);
+        throw new AssertionError("the held money was spent twice");
+      } catch (InsufficientFundsException e) {
+        System.out.println("Held money can't be spent again");
+      }
+      Thread.sleep(200);
+      assertEquals(Hold.State.EXPIRED, hold.getState());
+      assertEquals(500, account1.getBalance());
+      try {
+        engine.commit(hold, account2);
+        throw new AssertionError("an expired hold was committed");
+      } catch (HoldExpiredException e) {
+        System.out.println(hold);
+      }
+      assertEquals(1000, account2.getBalance());
+
+      //a commit that fails gives the money back instead of leaving it held until the hold expires
+      BankAccount full = new BankAccount(Long.MAX_VALUE - 10, "Full");
+      try {
+        engine.transfer(account1, full, 50, () -> {
+        });
+        throw new AssertionError("overflow was not detected");
+      } catch (ArithmeticException e) {
+        System.out.println("Transfer rejected: " + e.getMessage());
+      }
+      assertEquals(500, account1.getBalance());
+      assertEquals(Long.MAX_VALUE - 10, full.getBalance());
+      assertEquals(0, engine.getHeldTotal());
+
+      //no timer could expire a hold reserved now, so none is taken
+      engine.close();
+      try {
+        engine.reserve(account1, 100);
+        throw new AssertionError("a hold was reserved after close");
+      } catch (IllegalStateException e) {
+        System.out.println("Reserve rejected: " + e.getMessage());
+      }
+      assertEquals(500, account1.getBalance());
+      assertEquals(0, engine.getHeldTotal());
+    }
+  }
+
+  /**
+   * The front end only knows account ids. AccountRegistry resolves them without boxing and creates accounts
+   * on first use: threads racing to open the same account all get one and the same object.
+   **/
+  @Test
+  public void testAccountRegistry() throws InterruptedException {
+    AccountRegistry registry = new AccountRegistry(16);
+    StripedLockTransferEngine engine = new StripedLockTransferEngine();
+    AtomicInteger created = new AtomicInteger();
+    int accountCount = 1000;
+
+    Thread[] transferThreads = new Thread[4];
+    for (int t = 0; t < transferThreads.length; t++) {
+      transferThreads[t] = new Thread(() -> {
+        //every thread opens all accounts, ids far apart so they don't fill the table in order
+        for (long i = 0; i < accountCount; i++) {
+          registry.computeIfAbsent(i * 1_000_003L, id -> {
+            created.incrementAndGet();
+            return new BankAccount(id, 100, "Account " + id);
+          });
+        }
+        for (long i = 0; i < accountCount; i++) {
+          try {
+            engine.transfer(registry, i * 1_000_003L, (i + 1) % accountCount * 1_000_003L, 10);
+          } catch (InsufficientFundsException e) {
+            //balances checked in total below
+          }
+        }
+      });
+      transferThreads[t].start();
+    }
+    for (Thread transferThread : transferThreads) {
+      transferThread.join();
+    }
+
+    assertEquals(accountCount, created.get());
+    assertEquals(accountCount, registry.size());
+    long total = 0;
+    for (long i = 0; i < accountCount; i++) {
+      BankAccount account = registry.require(i * 1_000_003L);
+      assertEquals(i * 1_000_003L, account.getId());
+      total += account.getBalance();
+    }
+    assertEquals(100L * accountCount, total);
+    assertNull(registry.get(7));
+  }
+
+  /**
+   * A thread per transfer costs far more than the transfer itself. TransferPipeline keeps a few consumer threads,
+   * each owning a partition of the accounts, and producers only publish requests into a preallocated ring.
+   * Requests are applied as if one by one in the order they were published, so replaying them sequentially
+   * must give the same balances, and the callbacks replace join().
+   **/
+  @Test
+  public void testTransferPipeline() throws InterruptedException {
+    int accountCount = 64;
+    PrimitiveAccountStore store = new PrimitiveAccountStore(accountCount);
+    long[] expected = new long[accountCount];
+    for (int id = 0; id < accountCount; id++) {
+      store.create(1000, "Account " + id);
+      expected[id] = 1000;
+    }
+    AtomicInteger completed = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    Random random = new Random(17);
+    int expectedRejected = 0;
+
+    //a small ring so producers hit backpressure
+    try (TransferPipeline pipeline = new TransferPipeline(store, 4, 64)) {
+      for (int i = 0; i < 100_000; i++) {
+        int fromId = random.nextInt(accountCount);
+        int toId = random.nextInt(accountCount);
+        long amount = random.nextInt(300);
+        if (expected[fromId] < amount) {
+          expectedRejected++;
+        } else {
+          expected[fromId] -= amount;
+          expected[toId] += amount;
+        }
+        pipeline.submit(fromId, toId, amount, (from, to, transferAmount, transferred) -> {
+          completed.incrementAndGet();
+          if (!transferred) {
+            rejected.incrementAndGet();
+          }
+        });
+      }
+      pipeline.flush();
+      assertEquals(100_000, completed.get());
+
+      //a failing callback is counted, the consumer that ran it goes on with the next request
+      TransferMetrics metrics = TransferMetrics.forStrategy("TransferPipeline");
+      long callbackFailures = metrics.getCallbackFailures();
+      pipeline.submit(0, 1, 0, (from, to, transferAmount, transferred) -> {
+        throw new IllegalStateException("callback failed");
+      });
+      pipeline.submit(0, 1, 0, (from, to, transferAmount, transferred) -> completed.incrementAndGet());
+      pipeline.flush();
+      assertEquals(callbackFailures + 1, metrics.getCallbackFailures());
+      assertEquals(100_001, completed.get());
+    }
+
+    System.out.println("Rejected for insufficient funds: " + rejected.get());
+    assertEquals(expectedRejected, rejected.get());
+    for (int id = 0; id < accountCount; id++) {
+      assertEquals(expected[id], store.getBalance(id));
+    }
+    assertEquals(1000L * accountCount, store.totalBalance());
+  }
+
+  /**
+   * With int balances 2.1 billion cents was the limit and going past it wrapped around to negative money.
+   * Balances are now long minor units and every deposit is checked like Math.addExact: a transfer that would
+   * overflow the target is rejected with ArithmeticException before any balance changes.
+   **/
+  @Test
+  public void testBalanceOverflowRejected() throws Exception {
+    Currency usd = Currency.getInstance("USD");
+    BankAccount account1 = new BankAccount(Money.parse("3000000000.00", usd), "Account 1");
+    BankAccount account2 = new BankAccount(Long.MAX_VALUE - 100, "Account 2");
+    StripedLockTransferEngine engine = new StripedLockTransferEngine();
+
+    try {
+      engine.transfer(account1, account2, Money.parse("1.01", usd));
+      throw new AssertionError("overflow was not detected");
+    } catch (ArithmeticException e) {
+      System.out.println("Transfer rejected: " + e.getMessage());
+    }
+    assertEquals("3000000000.00", Money.format(account1.getBalance(), usd));
+    assertEquals(Long.MAX_VALUE - 100, account2.getBalance());
+
+    engine.transfer(account1, account2, 100);
+    assertEquals(Long.MAX_VALUE, account2.getBalance());
+    try {
+      engine.transfer(account2, account1, -1);
+      throw new AssertionError("negative amount was accepted");
+    } catch (IllegalArgumentException e) {
+      System.out.println("Transfer rejected: " + e.getMessage());
+    }
+    //every other entry point rejects it too, before any balance changes
+    BankAccount payer = new BankAccount(100, "Payer");
+    BankAccount payee = new BankAccount(5, "Payee");
+    assertNegativeAmountRejected(() -> new BatchTransferEngine().transferAll(List.of(new Transfer(payer, payee, -1000))));
+    assertNegativeAmountRejected(() -> {
+      new DeadlockRecoveringTransferEngine().transfer(payer, payee, -1000);
+      return null;
+    });
+    assertNegativeAmountRejected(() -> {
+      new MoneyTransferRunnableWithIdentityHashCode(payer, payee, -1000).run();
+      return null;
+    });
+    assertNegativeAmountRejected(() -> {
+      new MoneyTransferRunnableOrderedReentrantLock(payer, payee, -1000).run();
+      return null;
+    });
+    try (ShardedLedger ledger = new ShardedLedger(2)) {
+      assertNegativeAmountRejected(() -> ledger.transfer(payer, payee, -1000));
+      assertNegativeAmountRejected(() -> ledger.pay(payer, -1000));
+      assertNegativeAmountRejected(() -> ledger.deposit(payee, -1000));
+    }
+    assertEquals(100, payer.getBalance());
+    assertEquals(5, payee.getBalance());
+    StampedBankAccount stampedPayer = new StampedBankAccount(100, "Payer");
+    StampedBankAccount stampedPayee = new StampedBankAccount(5, "Payee");
+    assertNegativeAmountRejected(() -> {
+      StampedBankAccount.transfer(stampedPayer, stampedPayee, -1000);
+      return null;
+    });
+    assertNegativeAmountRejected(() -> stampedPayer.tryWithdraw(-1000));
+    assertEquals(100, stampedPayer.getBalance());
+    assertEquals(5, stampedPayee.getBalance());
+
+    //the locking strategies check the overflow before the first write
+    for (String name : TransferStrategies.names()) {
+      TransferService service = TransferService.create(name);
+      Account payerAccount = service.openAccount(100, "Payer");
+      Account fullAccount = service.openAccount(Long.MAX_VALUE - 10, "Full");
+      try {
+        service.transfer(payerAccount, fullAccount, 50);
+        throw new AssertionError(name + ": overflow was not detected");
+      } catch (ArithmeticException e) {
+        System.out.println(name + " rejected the transfer: " + e.getMessage());
+      }
+      assertEquals(name, 100, service.getBalance(payerAccount));
+      assertEquals(name, Long.MAX_VALUE - 10, service.getBalance(fullAccount));
+    }
+    BankAccount fullAccount = new BankAccount(Long.MAX_VALUE - 10, "Full");
+    try {
+      new MoneyTransferRunnableWithIdentityHashCode(payer, fullAccount, 50).run();
+      throw new AssertionError("overflow was not detected");
+    } catch (ArithmeticException e) {
+      System.out.println("Transfer rejected: " + e.getMessage());
+    }
+    assertEquals(100, payer.getBalance());
+    assertEquals(Long.MAX_VALUE - 10, fullAccount.getBalance());
+
+    //the lock-free strategies can't check before withdrawing, they put the amount back
+    PrimitiveAccountStore store = new PrimitiveAccountStore(4);
+    int from = store.create(1000, "Account 1");
+    int full = store.create(Long.MAX_VALUE - 100, "Account 2");
+    try {
+      new LockFreeTransferEngine().transfer(store, from, full, 101);
+      throw new AssertionError("overflow was not detected");
+    } catch (ArithmeticException e) {
+      System.out.println("Transfer rejected: " + e.getMessage());
+    }
+    assertEquals(1000, store.getBalance(from));
+    assertEquals(Long.MAX_VALUE - 100, store.getBalance(full));
+
+    AdaptiveBankAccount customer = new AdaptiveBankAccount(1000, "Customer");
+    AdaptiveBankAccount merchant = new AdaptiveBankAccount(Long.MAX_VALUE - 100, "Merchant", 0);
+    try {
+      new LockFreeTransferEngine().transfer(customer, merchant, 101);
+      throw new AssertionError("overflow was not detected");
+    } catch (ArithmeticException e) {
+      System.out.println("Transfer rejected: " + e.getMessage());
+    }
+    assertEquals(1000, customer.getBalance());
+    assertEquals(Long.MAX_VALUE - 100, merchant.getBalance());
+
+    //in the pipeline the source is already debited by its owner when the target owner sees the overflow
+    AtomicInteger rejected = new AtomicInteger();
+    try (TransferPipeline pipeline = new TransferPipeline(store, 2, 64)) {
+      pipeline.submit(from, full, 101, (fromId, toId, amount, transferred) -> {
+        if (!transferred) {
+          rejected.incrementAndGet();
+        }
+      });
+      pipeline.flush();
+    }
+    assertEquals(1, rejected.get());
+    assertEquals(1000, store.getBalance(from));
+    assertEquals(Long.MAX_VALUE - 100, store.getBalance(full));
+    //0.25% fee on 10.00 is 2.5 cents and on 14.00 3.5 cents, both rounded half to even
+    assertEquals(2, Money.fraction(Money.parse("10.00", usd), 25));
+    assertEquals(4, Money.fraction(Money.parse("14.00", usd), 25));
+  }
+
+  private static void assertNegativeAmountRejected(Callable<?> transfer) throws Exception {
+    try {
+      transfer.call();
+      throw new AssertionError("negative amount was accepted");
+    } catch (IllegalArgumentException e) {
+      System.out.println("Rejected: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Same lock-free transfer, but the accounts are slots in one long[] instead of objects.
+   * Balances are updated through a VarHandle with the same compareAndSet loop.
+   **/
+  @Test
+  public void testOverdraftFixWithPrimitiveAccountStore() throws InterruptedException {
+    PrimitiveAccountStore store = new PrimitiveAccountStore(2);
+    int account1 = store.create(1000, "Account 1");
+    int account2 = store.create(500, "Account 2");
+    LockFreeTransferEngine engine = new LockFreeTransferEngine();
+
+    Runnable transfer = () -> {
+      try {
+        engine.transfer(store, account1, account2, 600);
+      } catch (InsufficientFundsException e) {
+        System.out.println(Thread.currentThread().getName() + " does nothing cause it's less then 600$ on" + store.getName(account1));
+      }
+    };
+    Thread transferThread1 = new Thread(transfer);
+    Thread transferThread2 = new Thread(transfer);
+
+    transferThread1.start();
+    transferThread2.start();
+    transferThread1.join();
+    transferThread2.join();
+
+    System.out.println("Final balance of Account 1: " + store.getBalance(account1));
+    System.out.println("Final balance of Account 2: " + store.getBalance(account2));
+    assertEquals(400, store.getBalance(account1));
+    assertEquals(1100, store.getBalance(account2));
+  }
+
+  /**
+   * The overdraft fix once more with every balance on its own cache line, in the store and as an account object.
+   * Spacing changes where the balances are, not what the transfers do.
+   **/
+  @Test
+  public void testOverdraftFixWithPaddedBalances() throws InterruptedException {
+    for (BalanceLayout layout : BalanceLayout.values()) {
+      PrimitiveAccountStore store = new PrimitiveAccountStore(3, layout);
+      int account1 = store.create(1000, "Account 1");
+      int account2 = store.create(500, "Account 2");
+      PaddedAtomicBankAccount account3 = new PaddedAtomicBankAccount(1000, "Account 3", layout);
+      PaddedAtomicBankAccount account4 = new PaddedAtomicBankAccount(500, "Account 4", layout);
+      LockFreeTransferEngine engine = new LockFreeTransferEngine();
+
+      Runnable transfer = () -> {
+        try {
+          engine.transfer(store, account1, account2, 600);
+        } catch (InsufficientFundsException e) {
+          System.out.println(layout + ": less than 600$ on " + store.getName(account1));
+        }
+        try {
+          engine.transfer(account3, account4, 600);
+        } catch (InsufficientFundsException e) {
+          System.out.println(layout + ": less than 600$ on " + account3.getName());
+        }
+      };
+      Thread transferThread1 = new Thread(transfer);
+      Thread transferThread2 = new Thread(transfer);
+      transferThread1.start();
+      transferThread2.start();
+      transferThread1.join();
+      transferThread2.join();
+
+      assertEquals(3, store.getCapacity());
+      assertEquals(400, store.getBalance(account1));
+      assertEquals(1100, store.getBalance(account2));
+      assertEquals(1500, store.totalBalance());
+      assertEquals(400, account3.getBalance());
+      assertEquals(1100, account4.getBalance());
+    }
+  }
+
   @Test
   public void testRaceConditionFixWithMutex() throws InterruptedException {
     BankAccount account1 = new BankAccount(1000, "Account 1");
@@ -154,6 +1123,149 @@ public class MoneyTransferTest {
   }
 
 
+  /**
+   * Global lock above is correct but every transfer in the JVM waits for it, even when
+   * the accounts are unrelated. Lock striping keeps a fixed array of locks and maps every
+   * account to one of them by id. Stripes are always taken in index order, so opposite
+   * transfers can't deadlock, and transfers on different stripes run in parallel.
+   **/
+  @Test
+  public void testRaceConditionFixWithStripedLock() throws InterruptedException {
+    BankAccount account1 = new BankAccount(1000, "Account 1");
+    BankAccount account2 = new BankAccount(500, "Account 2");
+
+    Thread transferThread1 = new Thread(new MoneyTransferRunnableStripedLock(account1, account2, 200));
+    Thread transferThread2 = new Thread(new MoneyTransferRunnableStripedLock(account2, account1, 300));
+
+    transferThread1.start();
+    transferThread2.start();
+    transferThread1.join();
+    transferThread2.join();
+
+    System.out.println("Final balance of Account 1: " + account1.getBalance());
+    System.out.println("Final balance of Account 2: " + account2.getBalance());
+    assertEquals(1100, account1.getBalance());
+    assertEquals(400, account2.getBalance());
+  }
+
+  /**
+   * Printing inside a critical section makes every thread holding an account lock also wait
+   * for the synchronized System.out. The runnables now only record events into a ring buffer
+   * and a background thread formats and prints them later.
+   **/
+  @Test
+  public void testTransferEventLog() throws InterruptedException {
+    BankAccount account1 = new BankAccount(1000, "Account 1");
+    BankAccount account2 = new BankAccount(500, "Account 2");
+    List<String> lines = new ArrayList<>();
+
+    try (TransferEventLog eventLog = new TransferEventLog(4, event -> {
+      StringBuilder line = new StringBuilder();
+      event.appendTo(line);
+      lines.add(line.toString());
+    })) {
+      for (int i = 0; i < 5; i++) {
+        account1.withdraw(100);
+        eventLog.withdrew(account1, 100);
+        account2.deposit(100);
+        eventLog.deposited(account2, 100);
+      }
+      eventLog.flush();
+    }
+
+    lines.forEach(System.out::println);
+    assertEquals(10, lines.size());
+    assertTrue(lines.get(0).endsWith(" withdrew 100 from Account 1 (900$)"));
+    assertTrue(lines.get(9).endsWith(" deposited 100 to Account 2 (1000$)"));
+  }
+
+  /**
+   * Instead of a platform thread per transfer, every transfer runs on a virtual thread.
+   * A blocked virtual thread (here in Thread.sleep) unmounts from its carrier thread, so thousands
+   * of them wait at the same time on a few carriers. The locks are ReentrantLocks, because waiting
+   * in synchronized would pin the carrier.
+   **/
+  @Test
+  public void testVirtualThreadTransferExecutor() throws InterruptedException {
+    BankAccount account1 = new BankAccount(200_000, "Account 1");
+    BankAccount account2 = new BankAccount(200_000, "Account 2");
+
+    try (VirtualThreadTransferExecutor executor = new VirtualThreadTransferExecutor(10_000)) {
+      System.out.println("virtual threads: " + executor.isVirtual());
+      List<CompletableFuture<Void>> transfers = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        boolean forward = i % 2 == 0;
+        Runnable transfer = new MoneyTransferRunnableOrderedReentrantLock(forward ? account1 : account2, forward ? account2 : account1, forward ? 200 : 300);
+        transfers.add(executor.submit(() -> {
+          try {
+            Thread.sleep(50);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          transfer.run();
+        }));
+      }
+      CompletableFuture.allOf(transfers.toArray(new CompletableFuture[0])).join();
+    }
+
+    System.out.println("Final balance of Account 1: " + account1.getBalance());
+    System.out.println("Final balance of Account 2: " + account2.getBalance());
+    assertEquals(250_000, account1.getBalance());
+    assertEquals(150_000, account2.getBalance());
+  }
+
+  /**
+   * Printing balances after join() only works because nothing is running any more.
+   * Snapshot starts a new epoch and waits just for the transfers of the old one; transfers of the new
+   * epoch save the old balance of an account before changing it. So the snapshot sees every transfer
+   * either completely or not at all, and the total is always right while transfers keep running.
+   **/
+  @Test
+  public void testSnapshotWhileTransfersRun() throws InterruptedException {
+    SnapshotTransferEngine engine = new SnapshotTransferEngine(4);
+    BankAccount[] accounts = new BankAccount[16];
+    for (int i = 0; i < accounts.length; i++) {
+      accounts[i] = new BankAccount(1000, "Account " + i);
+      engine.register(accounts[i]);
+    }
+
+    Thread[] transferThreads = new Thread[4];
+    for (int t = 0; t < transferThreads.length; t++) {
+      int offset = t;
+      transferThreads[t] = new Thread(() -> {
+        for (int i = 0; i < 20_000; i++) {
+          try {
+            engine.transfer(accounts[(i + offset) % accounts.length], accounts[(i * 7 + offset + 1) % accounts.length], 10);
+          } catch (InsufficientFundsException ignored) {
+          }
+        }
+      });
+      transferThreads[t].start();
+    }
+    int snapshots = 0;
+    while (snapshots < 100 || transferThreads[0].isAlive()) {
+      assertEquals(16_000, engine.snapshot().getTotal());
+      snapshots++;
+    }
+    for (Thread transferThread : transferThreads) {
+      transferThread.join();
+    }
+
+    BalanceSnapshot last = engine.snapshot();
+    System.out.println("Snapshots taken: " + snapshots + ", final balance of Account 0: " + last.getBalance(accounts[0]));
+    assertEquals(accounts[0].getBalance(), last.getBalance(accounts[0]));
+
+    BankAccount full = new BankAccount(Long.MAX_VALUE, "Full account");
+    engine.register(full);
+    try {
+      engine.transfer(accounts[0], full, 1);
+      throw new AssertionError("the deposit overflowed");
+    } catch (ArithmeticException e) {
+      System.out.println("Overflowing transfer rejected");
+    }
+    assertEquals(accounts[0].getBalance(), engine.snapshot().getBalance(accounts[0]));
+  }
+
   //TODO: in the book "Java concurrency in practice" read part "The Java Memory Model in 500 words or less" it is great
   //https://kb.epam.com/pages/viewpage.action?spaceKey=GDOKB&title=Data+Engineering+CommunityLow+latency+course this list is also great
   /**
@@ -198,6 +1310,75 @@ public class MoneyTransferTest {
     Final balance of Account 2: 700*/
   }
 
+  /**
+   * StampedLock optimistic read: take a stamp, read the balance, check the stamp is still valid.
+   * No lock is taken when no writer got in between, yet the value is never stale. For many accounts
+   * all stamps are taken before the reads and validated after them, which gives a consistent snapshot:
+   * here the total never changes while transfers keep running.
+   **/
+  @Test
+  public void testConsistentSnapshotWithStampedLock() throws InterruptedException {
+    StampedBankAccount account1 = new StampedBankAccount(10_000, "Account 1");
+    StampedBankAccount account2 = new StampedBankAccount(10_000, "Account 2");
+
+    Thread transferThread1 = new Thread(() -> {
+      for (int i = 0; i < 10_000; i++) {
+        StampedBankAccount.transfer(account1, account2, 1);
+      }
+    });
+    Thread transferThread2 = new Thread(() -> {
+      for (int i = 0; i < 10_000; i++) {
+        StampedBankAccount.transfer(account2, account1, 1);
+      }
+    });
+
+    transferThread1.start();
+    transferThread2.start();
+    while (transferThread1.isAlive() || transferThread2.isAlive()) {
+      long[] balances = StampedBankAccount.snapshot(account1, account2);
+      assertEquals(20_000, balances[0] + balances[1]);
+    }
+    transferThread1.join();
+    transferThread2.join();
+
+    System.out.println("Final balance of Account 1: " + account1.getBalance());
+    System.out.println("Final balance of Account 2: " + account2.getBalance());
+    assertEquals(10_000, account1.getBalance());
+    assertEquals(10_000, account2.getBalance());
+  }
+
+  /**
+   * Single writer: the account belongs to one shard thread and every operation on it is a message
+   * executed by that thread. Check-then-withdraw can't see a stale balance and can't interleave with
+   * another withdrawal, so without any lock exactly as many payments succeed as the money allows.
+   * Transfer between shards reserves the amount on the source shard and commits after the target shard
+   * has credited it.
+   **/
+  @Test
+  public void testFixVisibilityProblemWithSingleWriter() throws InterruptedException {
+    BankAccount account1 = new BankAccount(1, 1000, "Account 1");
+    BankAccount account2 = new BankAccount(2, 500, "Account 2");
+
+    try (ShardedLedger ledger = new ShardedLedger(2)) {
+      ledger.transfer(account1, account2, 200).join();
+
+      Thread[] payThreads = new Thread[5];
+      for (int i = 0; i < payThreads.length; i++) {
+        payThreads[i] = new Thread(new PayRunnableSingleWriter(ledger, account2, 300));
+        payThreads[i].start();
+      }
+      for (Thread payThread : payThreads) {
+        payThread.join();
+      }
+
+      System.out.println("Final balance of Account 1: " + ledger.getBalance(account1).join());
+      System.out.println("Final balance of Account 2: " + ledger.getBalance(account2).join());
+      assertEquals(800, (long) ledger.getBalance(account1).join());
+      assertEquals(100, (long) ledger.getBalance(account2).join());
+      assertEquals(0L, (long) ledger.getReservedTotal().join());
+    }
+  }
+
   @Test
   public void testFixVisibilityProblemWithVolatile()throws InterruptedException {
     BankAccount account1 = new BankAccount(1000, "Account 1");
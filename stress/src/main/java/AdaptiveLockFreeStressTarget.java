@@ -0,0 +1,27 @@
+import stress.StressTarget;
+
+/**
+ * Accounts that start hot, so every deposit goes to a cell and withdrawals have to drain them.
+ */
+public class AdaptiveLockFreeStressTarget implements StressTarget {
+  private static final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+  private final AdaptiveBankAccount[] accounts = new AdaptiveBankAccount[2];
+
+  public void setUp(long balance0, long balance1) {
+    accounts[0] = new AdaptiveBankAccount(balance0, "Account 0", 0);
+    accounts[1] = new AdaptiveBankAccount(balance1, "Account 1", 0);
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long balance(int index) {
+    return accounts[index].getBalance();
+  }
+}
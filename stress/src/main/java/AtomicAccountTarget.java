@@ -0,0 +1,25 @@
+import stress.AccountTarget;
+
+public class AtomicAccountTarget implements AccountTarget {
+  private AtomicBankAccount account;
+
+  public void setUp(long balance) {
+    account = new AtomicBankAccount(balance, "Account");
+  }
+
+  public void deposit(long amount) {
+    account.deposit(amount);
+  }
+
+  public void withdraw(long amount) {
+    account.withdraw(amount);
+  }
+
+  public void pay(long amount) {
+    account.tryWithdraw(amount);
+  }
+
+  public long balance() {
+    return account.getBalance();
+  }
+}
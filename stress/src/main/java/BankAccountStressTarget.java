@@ -0,0 +1,17 @@
+import stress.StressTarget;
+
+/**
+ * Base for strategies working on plain BankAccount objects.
+ */
+public abstract class BankAccountStressTarget implements StressTarget {
+  protected final BankAccount[] accounts = new BankAccount[2];
+
+  public void setUp(long balance0, long balance1) {
+    accounts[0] = new BankAccount(balance0, "Account 0");
+    accounts[1] = new BankAccount(balance1, "Account 1");
+  }
+
+  public long balance(int index) {
+    return accounts[index].getBalance();
+  }
+}
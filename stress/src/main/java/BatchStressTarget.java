@@ -0,0 +1,10 @@
+import java.util.Collections;
+
+public class BatchStressTarget extends BankAccountStressTarget {
+  private static final BatchTransferEngine engine = new BatchTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    Transfer transfer = new Transfer(accounts[fromIndex], accounts[toIndex], amount);
+    return engine.transferAll(Collections.singletonList(transfer)).get(0).isSuccess();
+  }
+}
@@ -0,0 +1,15 @@
+public class DeadlockRecoveringStressTarget extends BankAccountStressTarget {
+  private static final DeadlockRecoveringTransferEngine engine = new DeadlockRecoveringTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
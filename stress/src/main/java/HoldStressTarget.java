@@ -0,0 +1,17 @@
+/**
+ * Reserve, no slow work, commit. One engine for all states: each engine has its own expiry thread.
+ */
+public class HoldStressTarget extends BankAccountStressTarget {
+  private static final HoldTransferEngine engine = new HoldTransferEngine();
+  private static final Runnable noSlowWork = () -> {
+  };
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount, noSlowWork);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
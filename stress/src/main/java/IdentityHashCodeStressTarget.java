@@ -0,0 +1,11 @@
+public class IdentityHashCodeStressTarget extends BankAccountStressTarget {
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      new MoneyTransferRunnableWithIdentityHashCode(accounts[fromIndex], accounts[toIndex], amount).run();
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,6 @@
+public class LockFreeStrategyStressTarget extends TransferServiceStressTarget {
+
+  public LockFreeStrategyStressTarget() {
+    super("lockFree");
+  }
+}
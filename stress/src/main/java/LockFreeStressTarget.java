@@ -0,0 +1,24 @@
+import stress.StressTarget;
+
+public class LockFreeStressTarget implements StressTarget {
+  private static final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+  private final AtomicBankAccount[] accounts = new AtomicBankAccount[2];
+
+  public void setUp(long balance0, long balance1) {
+    accounts[0] = new AtomicBankAccount(balance0, "Account 0");
+    accounts[1] = new AtomicBankAccount(balance1, "Account 1");
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long balance(int index) {
+    return accounts[index].getBalance();
+  }
+}
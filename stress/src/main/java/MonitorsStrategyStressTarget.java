@@ -0,0 +1,6 @@
+public class MonitorsStrategyStressTarget extends TransferServiceStressTarget {
+
+  public MonitorsStrategyStressTarget() {
+    super("monitors");
+  }
+}
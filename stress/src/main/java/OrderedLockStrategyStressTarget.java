@@ -0,0 +1,6 @@
+public class OrderedLockStrategyStressTarget extends TransferServiceStressTarget {
+
+  public OrderedLockStrategyStressTarget() {
+    super("orderedLock");
+  }
+}
@@ -0,0 +1,11 @@
+public class OrderedReentrantLockStressTarget extends BankAccountStressTarget {
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      new MoneyTransferRunnableOrderedReentrantLock(accounts[fromIndex], accounts[toIndex], amount).run();
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+import stress.StressTarget;
+
+public class PaddedLockFreeStressTarget implements StressTarget {
+  private static final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+  private final PaddedAtomicBankAccount[] accounts = new PaddedAtomicBankAccount[2];
+
+  public void setUp(long balance0, long balance1) {
+    accounts[0] = new PaddedAtomicBankAccount(balance0, "Account 0");
+    accounts[1] = new PaddedAtomicBankAccount(balance1, "Account 1");
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long balance(int index) {
+    return accounts[index].getBalance();
+  }
+}
@@ -0,0 +1,28 @@
+import stress.AccountTarget;
+
+/**
+ * BankAccount as it is: unsynchronized deposit/withdraw, and payments through PayRunnableVisibilityProblem.
+ */
+public class PlainAccountTarget implements AccountTarget {
+  protected BankAccount account;
+
+  public void setUp(long balance) {
+    account = new BankAccount(balance, "Account");
+  }
+
+  public void deposit(long amount) {
+    account.deposit(amount);
+  }
+
+  public void withdraw(long amount) {
+    account.withdraw(amount);
+  }
+
+  public void pay(long amount) {
+    new PayRunnableVisibilityProblem(account, amount).run();
+  }
+
+  public long balance() {
+    return account.getBalance();
+  }
+}
@@ -0,0 +1,12 @@
+public class PrimitiveStoreLockFreeStressTarget extends PrimitiveStoreStressTarget {
+  private static final LockFreeTransferEngine engine = new LockFreeTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(store, fromIndex, toIndex, amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,17 @@
+import stress.StressTarget;
+
+/**
+ * Base for strategies running against a PrimitiveAccountStore instead of account objects.
+ */
+public abstract class PrimitiveStoreStressTarget implements StressTarget {
+  protected final PrimitiveAccountStore store = new PrimitiveAccountStore(2);
+
+  public void setUp(long balance0, long balance1) {
+    store.create(balance0, "Account 0");
+    store.create(balance1, "Account 1");
+  }
+
+  public long balance(int index) {
+    return store.getBalance(index);
+  }
+}
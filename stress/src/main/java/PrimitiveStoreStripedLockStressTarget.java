@@ -0,0 +1,12 @@
+public class PrimitiveStoreStripedLockStressTarget extends PrimitiveStoreStressTarget {
+  private static final StripedLockTransferEngine engine = new StripedLockTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(store, fromIndex, toIndex, amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+import java.util.concurrent.CompletionException;
+
+public class ShardedLedgerStressTarget extends BankAccountStressTarget {
+  //shard threads are shared by all states, a ledger per state would start two threads per state
+  private static final ShardedLedger ledger = new ShardedLedger(2);
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      ledger.transfer(accounts[fromIndex], accounts[toIndex], amount).join();
+      return true;
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof InsufficientFundsException) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public long balance(int index) {
+    return ledger.getBalance(accounts[index]).join();
+  }
+}
@@ -0,0 +1,31 @@
+import stress.AccountTarget;
+
+/**
+ * Every operation runs on the ShardedLedger thread that owns the account, what PayRunnableSingleWriter does
+ * (without its printing).
+ */
+public class SingleWriterAccountTarget implements AccountTarget {
+  private static final ShardedLedger ledger = new ShardedLedger(2);
+  private BankAccount account;
+
+  public void setUp(long balance) {
+    account = new BankAccount(balance, "Account");
+  }
+
+  public void deposit(long amount) {
+    ledger.deposit(account, amount).join();
+  }
+
+  public void withdraw(long amount) {
+    //the ledger has no blind withdraw, a negative deposit on the shard thread is the same
+    ledger.deposit(account, -amount).join();
+  }
+
+  public void pay(long amount) {
+    ledger.pay(account, amount).join();
+  }
+
+  public long balance() {
+    return ledger.getBalance(account).join();
+  }
+}
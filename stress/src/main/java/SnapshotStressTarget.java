@@ -0,0 +1,20 @@
+public class SnapshotStressTarget extends BankAccountStressTarget {
+  //one engine per state: the engine keeps every registered account
+  private final SnapshotTransferEngine engine = new SnapshotTransferEngine(2);
+
+  @Override
+  public void setUp(long balance0, long balance1) {
+    super.setUp(balance0, balance1);
+    engine.register(accounts[0]);
+    engine.register(accounts[1]);
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,6 @@
+public class SpinThenParkLockStrategyStressTarget extends TransferServiceStressTarget {
+
+  public SpinThenParkLockStrategyStressTarget() {
+    super("spinThenParkLock");
+  }
+}
@@ -0,0 +1,12 @@
+public class SpinThenParkLockStressTarget extends BankAccountStressTarget {
+  private static final AccountLocks locks = new AccountLocks(SpinThenParkLock::new);
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      new MoneyTransferRunnableOrderedReentrantLock(locks, accounts[fromIndex], accounts[toIndex], amount).run();
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,6 @@
+public class StampedLockStrategyStressTarget extends TransferServiceStressTarget {
+
+  public StampedLockStrategyStressTarget() {
+    super("stampedLock");
+  }
+}
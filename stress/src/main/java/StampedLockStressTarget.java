@@ -0,0 +1,23 @@
+import stress.StressTarget;
+
+public class StampedLockStressTarget implements StressTarget {
+  private final StampedBankAccount[] accounts = new StampedBankAccount[2];
+
+  public void setUp(long balance0, long balance1) {
+    accounts[0] = new StampedBankAccount(balance0, "Account 0");
+    accounts[1] = new StampedBankAccount(balance1, "Account 1");
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      StampedBankAccount.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long balance(int index) {
+    return accounts[index].getBalance();
+  }
+}
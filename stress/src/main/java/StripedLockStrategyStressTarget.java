@@ -0,0 +1,6 @@
+public class StripedLockStrategyStressTarget extends TransferServiceStressTarget {
+
+  public StripedLockStrategyStressTarget() {
+    super("stripedLock");
+  }
+}
@@ -0,0 +1,12 @@
+public class StripedLockStressTarget extends BankAccountStressTarget {
+  private static final StripedLockTransferEngine engine = new StripedLockTransferEngine();
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      engine.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+}
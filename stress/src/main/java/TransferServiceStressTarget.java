@@ -0,0 +1,32 @@
+import stress.StressTarget;
+
+/**
+ * Base for the strategies behind TransferService. Every state gets a service of its own, so its accounts are
+ * guarded by that strategy's locks only.
+ */
+public abstract class TransferServiceStressTarget implements StressTarget {
+  private final TransferService service;
+  private final Account[] accounts = new Account[2];
+
+  protected TransferServiceStressTarget(String strategyName) {
+    service = TransferService.create(strategyName);
+  }
+
+  public void setUp(long balance0, long balance1) {
+    accounts[0] = service.openAccount(balance0, "Account 0");
+    accounts[1] = service.openAccount(balance1, "Account 1");
+  }
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    try {
+      service.transfer(accounts[fromIndex], accounts[toIndex], amount);
+      return true;
+    } catch (InsufficientFundsException e) {
+      return false;
+    }
+  }
+
+  public long balance(int index) {
+    return service.getBalance(accounts[index]);
+  }
+}
@@ -0,0 +1,15 @@
+/**
+ * Check-then-act without any lock, what MoneyTransferRunnableRaceCondition does: expected to fail the stress tests.
+ */
+public class UnsynchronizedStressTarget extends BankAccountStressTarget {
+
+  public boolean transfer(int fromIndex, int toIndex, long amount) {
+    BankAccount fromAccount = accounts[fromIndex];
+    if (fromAccount.getBalance() < amount) {
+      return false;
+    }
+    fromAccount.withdraw(amount);
+    accounts[toIndex].deposit(amount);
+    return true;
+  }
+}
@@ -0,0 +1,10 @@
+/**
+ * Payments through PayRunnableVisibilityProblemVolatileFix: the reference is volatile, the balance isn't.
+ */
+public class VolatileFixAccountTarget extends PlainAccountTarget {
+
+  @Override
+  public void pay(long amount) {
+    new PayRunnableVisibilityProblemVolatileFix(account, amount).run();
+  }
+}
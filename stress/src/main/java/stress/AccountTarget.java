@@ -0,0 +1,26 @@
+package stress;
+
+/**
+ * Single-account operations for the stress tests of the account classes themselves, bridged like StressTarget.
+ */
+public interface AccountTarget {
+
+  void setUp(long balance);
+
+  void deposit(long amount);
+
+  void withdraw(long amount);
+
+  /**
+   * Withdraws only if the balance covers the amount, the way the Pay runnables do.
+   */
+  void pay(long amount);
+
+  long balance();
+
+  static AccountTarget create(String className, long balance) {
+    AccountTarget target = StressTarget.Adapters.newInstance(className, AccountTarget.class);
+    target.setUp(balance);
+    return target;
+  }
+}
@@ -0,0 +1,19 @@
+package stress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * jcstress Main with the shared TransferEventLog silenced in the forked test VMs: the Pay runnables log every
+ * payment and the stress tests run millions of them. Takes the usual jcstress options.
+ */
+public class StressMain {
+
+  public static void main(String[] args) throws Exception {
+    List<String> options = new ArrayList<>(Arrays.asList(args));
+    options.add("-jvmArgsPrepend");
+    options.add("-Dtransfer.eventLog.print=false");
+    org.openjdk.jcstress.Main.main(options.toArray(new String[0]));
+  }
+}
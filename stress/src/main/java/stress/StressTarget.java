@@ -0,0 +1,51 @@
+package stress;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bridge between the stress tests and the transfer strategies, like benchmarks.TransferTarget:
+ * jcstress rejects test classes in the default package, where all the strategies live.
+ * Each jcstress state creates a fresh pair of accounts through a default-package adapter picked by class name.
+ */
+public interface StressTarget {
+
+  void setUp(long balance0, long balance1);
+
+  /**
+   * @return false if the transfer was rejected because of insufficient funds
+   */
+  boolean transfer(int fromIndex, int toIndex, long amount);
+
+  long balance(int index);
+
+  /**
+   * jcstress creates millions of states, so the adapter constructors are looked up once per class.
+   */
+  static StressTarget create(String className, long balance0, long balance1) {
+    StressTarget target = Adapters.newInstance(className, StressTarget.class);
+    target.setUp(balance0, balance1);
+    return target;
+  }
+
+  final class Adapters {
+    private static final Map<String, Constructor<?>> constructors = new ConcurrentHashMap<>();
+
+    private Adapters() {
+    }
+
+    static <T> T newInstance(String className, Class<T> type) {
+      try {
+        Constructor<?> constructor = constructors.get(className);
+        if (constructor == null) {
+          constructor = Class.forName(className).asSubclass(type).getDeclaredConstructor();
+          constructors.put(className, constructor);
+        }
+        return type.cast(constructor.newInstance());
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalArgumentException("Unknown stress adapter " + className, e);
+      }
+    }
+  }
+}
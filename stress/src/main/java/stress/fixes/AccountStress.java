@@ -0,0 +1,167 @@
+package stress.fixes;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.J_Result;
+
+import stress.AccountTarget;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * The operations of a single account run concurrently: the same outcomes that stress.problems.RaceConditionStress
+ * shows for BankAccount must not happen here.
+ */
+public class AccountStress {
+
+  @JCStressTest
+  @Outcome(id = "90", expect = ACCEPTABLE, desc = "both applied")
+  @Outcome(id = "110", expect = FORBIDDEN, desc = "lost update: the withdrawal was overwritten by the deposit")
+  @Outcome(id = "80", expect = FORBIDDEN, desc = "lost update: the deposit was overwritten by the withdrawal")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class AtomicDepositWithdraw {
+    private final AccountTarget account = AccountTarget.create("AtomicAccountTarget", 100);
+
+    @Actor
+    public void deposit() {
+      account.deposit(10);
+    }
+
+    @Actor
+    public void withdraw() {
+      account.withdraw(20);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40", expect = ACCEPTABLE, desc = "one payment went through, the other saw insufficient funds")
+  @Outcome(id = "-20", expect = FORBIDDEN, desc = "overdraft: each payment checked the balance before the other withdrew")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class AtomicPay {
+    private final AccountTarget account = AccountTarget.create("AtomicAccountTarget", 100);
+
+    @Actor
+    public void pay1() {
+      account.pay(60);
+    }
+
+    @Actor
+    public void pay2() {
+      account.pay(60);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "90", expect = ACCEPTABLE, desc = "both applied")
+  @Outcome(id = "110", expect = FORBIDDEN, desc = "lost update: the withdrawal was overwritten by the deposit")
+  @Outcome(id = "80", expect = FORBIDDEN, desc = "lost update: the deposit was overwritten by the withdrawal")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class SingleWriterDepositWithdraw {
+    private final AccountTarget account = AccountTarget.create("SingleWriterAccountTarget", 100);
+
+    @Actor
+    public void deposit() {
+      account.deposit(10);
+    }
+
+    @Actor
+    public void withdraw() {
+      account.withdraw(20);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40", expect = ACCEPTABLE, desc = "one payment went through, the other saw insufficient funds")
+  @Outcome(id = "-20", expect = FORBIDDEN, desc = "overdraft: each payment checked the balance before the other withdrew")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class SingleWriterPay {
+    private final AccountTarget account = AccountTarget.create("SingleWriterAccountTarget", 100);
+
+    @Actor
+    public void pay1() {
+      account.pay(60);
+    }
+
+    @Actor
+    public void pay2() {
+      account.pay(60);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "90", expect = ACCEPTABLE, desc = "both applied")
+  @Outcome(id = "110", expect = FORBIDDEN, desc = "lost update: the withdrawal was overwritten by the deposit")
+  @Outcome(id = "80", expect = FORBIDDEN, desc = "lost update: the deposit was overwritten by the withdrawal")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class PaddedDepositWithdraw {
+    private final AccountTarget account = AccountTarget.create("PaddedAccountTarget", 100);
+
+    @Actor
+    public void deposit() {
+      account.deposit(10);
+    }
+
+    @Actor
+    public void withdraw() {
+      account.withdraw(20);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40", expect = ACCEPTABLE, desc = "one payment went through, the other saw insufficient funds")
+  @Outcome(id = "-20", expect = FORBIDDEN, desc = "overdraft: each payment checked the balance before the other withdrew")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class PaddedPay {
+    private final AccountTarget account = AccountTarget.create("PaddedAccountTarget", 100);
+
+    @Actor
+    public void pay1() {
+      account.pay(60);
+    }
+
+    @Actor
+    public void pay2() {
+      account.pay(60);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+}
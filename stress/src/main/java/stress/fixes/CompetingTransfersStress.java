@@ -0,0 +1,570 @@
+package stress.fixes;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+
+import stress.StressTarget;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two transfers of 60 from an account holding 100: exactly one may go through, whatever the interleaving.
+ * One test per strategy, jcstress needs the actors declared in the test class itself.
+ */
+public class CompetingTransfersStress {
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class StripedLock {
+    private final StressTarget target = StressTarget.create("StripedLockStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class DeadlockRecovering {
+    private final StressTarget target = StressTarget.create("DeadlockRecoveringStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class Snapshot {
+    private final StressTarget target = StressTarget.create("SnapshotStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class Batch {
+    private final StressTarget target = StressTarget.create("BatchStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class ShardedLedger {
+    private final StressTarget target = StressTarget.create("ShardedLedgerStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class LockFree {
+    private final StressTarget target = StressTarget.create("LockFreeStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class AdaptiveLockFree {
+    private final StressTarget target = StressTarget.create("AdaptiveLockFreeStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class PrimitiveStoreLockFree {
+    private final StressTarget target = StressTarget.create("PrimitiveStoreLockFreeStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class PrimitiveStoreStripedLock {
+    private final StressTarget target = StressTarget.create("PrimitiveStoreStripedLockStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class StampedLock {
+    private final StressTarget target = StressTarget.create("StampedLockStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class Stm {
+    private final StressTarget target = StressTarget.create("StmStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class IdentityHashCode {
+    private final StressTarget target = StressTarget.create("IdentityHashCodeStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class OrderedReentrantLock {
+    private final StressTarget target = StressTarget.create("OrderedReentrantLockStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class MonitorsStrategy {
+    private final StressTarget target = StressTarget.create("MonitorsStrategyStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class OrderedLockStrategy {
+    private final StressTarget target = StressTarget.create("OrderedLockStrategyStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class StripedLockStrategy {
+    private final StressTarget target = StressTarget.create("StripedLockStrategyStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class LockFreeStrategy {
+    private final StressTarget target = StressTarget.create("LockFreeStrategyStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class StampedLockStrategy {
+    private final StressTarget target = StressTarget.create("StampedLockStrategyStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class Hold {
+    private final StressTarget target = StressTarget.create("HoldStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class SpinThenParkLock {
+    private final StressTarget target = StressTarget.create("SpinThenParkLockStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class SpinThenParkLockStrategy {
+    private final StressTarget target = StressTarget.create("SpinThenParkLockStrategyStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = FORBIDDEN, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = FORBIDDEN, desc = "money created or lost")
+  @State
+  public static class PaddedLockFree {
+    private final StressTarget target = StressTarget.create("PaddedLockFreeStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package stress.problems;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JJ_Result;
+import org.openjdk.jcstress.infra.results.J_Result;
+
+import stress.AccountTarget;
+import stress.StressTarget;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE_INTERESTING;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * The problems MoneyTransferTest demonstrates, as stress tests: each of them reports an ACCEPTABLE_INTERESTING
+ * outcome once jcstress hits the bad interleaving, which shows the harness catches them without failing the run.
+ * Only an outcome that no interleaving of the demonstrated bug explains is FORBIDDEN.
+ * - Unsynchronized: check-then-act transfer without locks, as in MoneyTransferRunnableRaceCondition
+ * - BankAccountDepositWithdraw: lost update, balance = balance + amount is a read and a separate write
+ * - BankAccountPay: PayRunnableVisibilityProblem, both payments pass the balance check
+ * - VolatileFixPay: PayRunnableVisibilityProblemVolatileFix, a volatile reference doesn't make the check-then-act atomic,
+ *   which is why testFixVisibilityProblemWithVolatile doesn't work as expected
+ */
+public class RaceConditionStress {
+
+  @JCStressTest
+  @Outcome(id = "40, 60", expect = ACCEPTABLE, desc = "one transfer went through, the other was rejected")
+  @Outcome(id = "-20, 120", expect = ACCEPTABLE_INTERESTING, desc = "overdraft: both transfers passed the balance check")
+  @Outcome(expect = ACCEPTABLE_INTERESTING, desc = "money created or lost")
+  @State
+  public static class Unsynchronized {
+    private final StressTarget target = StressTarget.create("UnsynchronizedStressTarget", 100, 0);
+
+    @Actor
+    public void transfer1() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Actor
+    public void transfer2() {
+      target.transfer(0, 1, 60);
+    }
+
+    @Arbiter
+    public void balances(JJ_Result r) {
+      r.r1 = target.balance(0);
+      r.r2 = target.balance(1);
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "90", expect = ACCEPTABLE, desc = "both applied")
+  @Outcome(id = "110", expect = ACCEPTABLE_INTERESTING, desc = "lost update: the withdrawal was overwritten by the deposit")
+  @Outcome(id = "80", expect = ACCEPTABLE_INTERESTING, desc = "lost update: the deposit was overwritten by the withdrawal")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class BankAccountDepositWithdraw {
+    private final AccountTarget account = AccountTarget.create("PlainAccountTarget", 100);
+
+    @Actor
+    public void deposit() {
+      account.deposit(10);
+    }
+
+    @Actor
+    public void withdraw() {
+      account.withdraw(20);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40", expect = ACCEPTABLE, desc = "one payment went through, the other saw insufficient funds")
+  @Outcome(id = "-20", expect = ACCEPTABLE_INTERESTING, desc = "overdraft: each payment checked the balance before the other withdrew")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class BankAccountPay {
+    private final AccountTarget account = AccountTarget.create("PlainAccountTarget", 100);
+
+    @Actor
+    public void pay1() {
+      account.pay(60);
+    }
+
+    @Actor
+    public void pay2() {
+      account.pay(60);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+
+  @JCStressTest
+  @Outcome(id = "40", expect = ACCEPTABLE, desc = "one payment went through, the other saw insufficient funds")
+  @Outcome(id = "-20", expect = ACCEPTABLE_INTERESTING, desc = "overdraft: each payment checked the balance before the other withdrew")
+  @Outcome(expect = FORBIDDEN, desc = "other")
+  @State
+  public static class VolatileFixPay {
+    private final AccountTarget account = AccountTarget.create("VolatileFixAccountTarget", 100);
+
+    @Actor
+    public void pay1() {
+      account.pay(60);
+    }
+
+    @Actor
+    public void pay2() {
+      account.pay(60);
+    }
+
+    @Arbiter
+    public void balance(J_Result r) {
+      r.r1 = account.balance();
+    }
+  }
+}